@@ -0,0 +1,45 @@
+package com.kaybeefitness.app;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+import androidx.work.WorkManagerInitializer;
+
+import com.example.kaybee.shared.data.FitnessCompactionWorker;
+import com.example.kaybee.shared.platform.KaybeeDatabase;
+import com.example.kaybee.shared.timeseries.HealthTimeSeries;
+import com.kaybeefitness.app.services.StepTrackingService;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs at process start, before the Capacitor bridge loads WearPlugin and before the step
+ * service is created. Firebase and the local stores are opened on background threads so
+ * the splash screen and the WebView do not wait for them. Also schedules the daily
+ * fitness_history compaction.
+ */
+public class AppInitializer implements Initializer<Void> {
+
+    @NonNull
+    @Override
+    public Void create(@NonNull Context context) {
+        KaybeeDatabase.warmUp(context);
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            HealthTimeSeries.get(appContext);
+            // Premier accès au fichier de préférences: chargé en mémoire hors du thread principal
+            appContext.getSharedPreferences(StepTrackingService.PREF_NAME, Context.MODE_PRIVATE).getAll();
+        }, "kaybee-stores-warmup").start();
+        FitnessCompactionWorker.schedule(appContext);
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        // WorkManager doit être initialisé avant schedule()
+        return Collections.singletonList(WorkManagerInitializer.class);
+    }
+}
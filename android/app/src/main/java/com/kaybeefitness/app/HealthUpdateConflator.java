@@ -0,0 +1,143 @@
+package com.kaybeefitness.app;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Sits between the live_data listener and notifyListeners("onHealthUpdate").
+ *
+ * - Echo suppression: snapshots carrying a (source, last_update) pair the plugin
+ *   wrote itself are dropped; the plugin offers its own writes directly instead.
+ * - Conflation: at most {@code maxEventsPerSecond} bridge events; updates arriving
+ *   in between are merged and delivered by the next flush.
+ * - Deltas: only fields whose value changed since the last emitted event are sent.
+ *   A null value removes the field; JS drops it from its state.
+ *   Each event is numbered so JS can detect a gap and re-read {@link #getState}.
+ *
+ * Not thread-safe: WearPlugin drives it from the main thread only.
+ */
+public class HealthUpdateConflator {
+
+    private static final int MAX_TRACKED_WRITES = 8;
+
+    private final long minIntervalMs;
+    private final ArrayDeque<String> localWrites = new ArrayDeque<>();
+    private final Map<String, Object> pending = new HashMap<>();
+    private final Map<String, Object> lastEmitted = new HashMap<>();
+    private long lastEmitAt = Long.MIN_VALUE / 2;
+    private long sequence = 0;
+
+    private long received = 0;
+    private long suppressed = 0;
+    private long emitted = 0;
+
+    public HealthUpdateConflator(int maxEventsPerSecond) {
+        this.minIntervalMs = 1000L / Math.max(1, maxEventsPerSecond);
+    }
+
+    /**
+     * Offers a snapshot received from RTDB; a null value marks a field deleted on the server.
+     * @return the delay in ms before {@link #flush} should be called, or -1 if nothing is pending.
+     */
+    public long offerRemote(Map<String, Object> fields, String source, long lastUpdate, long now) {
+        received++;
+        if (source != null && localWrites.contains(echoKey(source, lastUpdate)) && !changesKnownState(fields)) {
+            suppressed++;
+            return pending.isEmpty() ? -1 : delayUntilFlush(now);
+        }
+        pending.putAll(fields);
+        return delayUntilFlush(now);
+    }
+
+    /**
+     * Offers fields the plugin just wrote to RTDB itself, and remembers the write so
+     * that its echo is suppressed when the listener fires.
+     */
+    public long offerLocal(Map<String, Object> fields, String source, long lastUpdate, long now) {
+        localWrites.addLast(echoKey(source, lastUpdate));
+        while (localWrites.size() > MAX_TRACKED_WRITES) localWrites.removeFirst();
+        pending.putAll(fields);
+        return delayUntilFlush(now);
+    }
+
+    /**
+     * Returns the fields that changed since the last emitted event, null values for the
+     * removed ones, or null if the next event is not due yet or nothing changed.
+     */
+    public Map<String, Object> flush(long now) {
+        if (pending.isEmpty() || now - lastEmitAt < minIntervalMs) return null;
+
+        Map<String, Object> delta = new HashMap<>();
+        for (Map.Entry<String, Object> entry : pending.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            boolean changed = value == null ? lastEmitted.containsKey(key) : !Objects.equals(lastEmitted.get(key), value);
+            if (changed) delta.put(key, value);
+        }
+        pending.clear();
+        if (delta.isEmpty()) return null;
+
+        apply(lastEmitted, delta);
+        lastEmitAt = now;
+        emitted++;
+        sequence++;
+        return delta;
+    }
+
+    /** True while offered fields wait for a flush that is not due yet. */
+    public boolean hasPending() { return !pending.isEmpty(); }
+
+    /** Full state as known to JS once pending fields are delivered. */
+    public Map<String, Object> getState() {
+        Map<String, Object> state = new HashMap<>(lastEmitted);
+        apply(state, pending);
+        return state;
+    }
+
+    /** Sequence number of the last emitted event or {@link #reset}; 0 before the first one. */
+    public long getSequence() { return sequence; }
+
+    /**
+     * Forgets what JS has seen, e.g. after a user switch, and takes the next sequence number:
+     * the caller announces it so that subscribers re-read {@link #getState}.
+     * @return the sequence number of the reset.
+     */
+    public long reset() {
+        pending.clear();
+        lastEmitted.clear();
+        localWrites.clear();
+        lastEmitAt = Long.MIN_VALUE / 2;
+        return ++sequence;
+    }
+
+    public long getReceived() { return received; }
+    public long getSuppressed() { return suppressed; }
+    public long getEmitted() { return emitted; }
+
+    // Un écho peut porter un champ écrit par un autre client (ex: water depuis le JS)
+    private boolean changesKnownState(Map<String, Object> fields) {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            String key = entry.getKey();
+            Object known = pending.containsKey(key) ? pending.get(key) : lastEmitted.get(key);
+            if (!Objects.equals(known, entry.getValue())) return true;
+        }
+        return false;
+    }
+
+    private static void apply(Map<String, Object> state, Map<String, Object> changes) {
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            if (entry.getValue() == null) state.remove(entry.getKey());
+            else state.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private long delayUntilFlush(long now) {
+        return Math.max(0, lastEmitAt + minIntervalMs - now);
+    }
+
+    private static String echoKey(String source, long lastUpdate) {
+        return source + "@" + lastUpdate;
+    }
+}
@@ -0,0 +1,39 @@
+package com.kaybeefitness.app;
+
+import com.example.kaybee.shared.trace.Traces;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sampled traces read by the live_data listener, waiting for the onHealthUpdate event
+ * that delivers their snapshot to JS. Each one ends either at the bridge ({@link #delivered})
+ * or at the listener ({@link #drop}), never at an unrelated later event.
+ *
+ * Not thread-safe: WearPlugin drives it from the main thread only.
+ */
+public class PendingTraces {
+
+    private final List<String> traceIds = new ArrayList<>();
+
+    public void add(String traceId) {
+        if (!traceIds.contains(traceId)) traceIds.add(traceId);
+    }
+
+    /** Their snapshot reached JS at {@code at}: records the bridge hop of each trace. */
+    public void delivered(long at) {
+        for (String traceId : traceIds) {
+            Traces.mark(traceId, Traces.BRIDGE, at);
+            Traces.end(traceId);
+        }
+        traceIds.clear();
+    }
+
+    /** Nothing to deliver (no field changed, user switch): the traces stop at the listener. */
+    public void drop() {
+        for (String traceId : traceIds) Traces.end(traceId);
+        traceIds.clear();
+    }
+
+    public int size() { return traceIds.size(); }
+}
@@ -0,0 +1,116 @@
+package com.kaybeefitness.app;
+
+import com.example.kaybee.core.Clock;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * WearPlugin's initialisation, run as named stages off the bridge start.
+ *
+ * - Stages run on whatever thread calls {@link #stage}; their durations are kept in order.
+ *   A failing stage is recorded and does not stop the following ones.
+ * - Plugin calls go through {@link #whenReady}: before {@link #finish} they are queued,
+ *   then replayed in arrival order by the thread calling finish. Calls arriving during
+ *   the replay are queued behind it, so the order holds. A call can name the stages it
+ *   needs: if one of them failed it gets the failure instead of running.
+ *
+ * Thread-safe.
+ */
+public class StagedInit {
+
+    private final Clock clock;
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+    private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+    private boolean ready = false;
+    private long startedAt = -1;
+    private long readyAt = -1;
+    private int replayed = 0;
+
+    public StagedInit(Clock clock) {
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        startedAt = clock.now();
+    }
+
+    public void stage(String name, Runnable work) {
+        long start = clock.now();
+        String failure = null;
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            failure = String.valueOf(e.getMessage());
+        }
+        synchronized (this) {
+            durations.put(name, clock.now() - start);
+            if (failure != null) failures.put(name, failure);
+        }
+    }
+
+    /** Runs {@code call} now if init is done, otherwise once {@link #finish} replays it. */
+    public void whenReady(Runnable call) {
+        synchronized (this) {
+            if (!ready) {
+                queued.add(call);
+                return;
+            }
+        }
+        call.run();
+    }
+
+    /**
+     * Like {@link #whenReady(Runnable)}, but when one of the {@code required} stages failed,
+     * {@code onFailed} gets "stage: message" and {@code call} does not run.
+     */
+    public void whenReady(Runnable call, Consumer<String> onFailed, String... required) {
+        whenReady(() -> {
+            String failure = failureOf(required);
+            if (failure == null) call.run();
+            else onFailed.accept(failure);
+        });
+    }
+
+    public void finish() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                next = queued.poll();
+                if (next == null) {
+                    ready = true;
+                    readyAt = clock.now();
+                    return;
+                }
+                replayed++;
+            }
+            next.run();
+        }
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /** Stage durations in ms, then "total" (start to ready, replay included) and "replayed" calls. */
+    public synchronized Map<String, Long> getTiming() {
+        Map<String, Long> timing = new LinkedHashMap<>(durations);
+        if (ready) timing.put("total", readyAt - startedAt);
+        timing.put("replayed", (long) replayed);
+        return timing;
+    }
+
+    public synchronized Map<String, String> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    private synchronized String failureOf(String[] stages) {
+        for (String stage : stages) {
+            if (failures.containsKey(stage)) return stage + ": " + failures.get(stage);
+        }
+        return null;
+    }
+}
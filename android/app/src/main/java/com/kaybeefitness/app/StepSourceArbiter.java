@@ -0,0 +1,111 @@
+package com.kaybeefitness.app;
+
+/**
+ * Decides whether the phone or the watch is the authoritative step source.
+ *
+ * The watch always wins when it is live. "Live" is derived from the heartbeats
+ * it leaves in live_data (a watch source with an advancing last_update), with
+ * hysteresis so a single late or missing heartbeat does not flip the phone
+ * sensor on and off:
+ * - the watch takes over after {@code acquireHeartbeats} fresh heartbeats;
+ * - the phone takes back over only after {@code releaseAfterMs} of silence.
+ *
+ * Not thread-safe: StepTrackingService drives it from the main thread only.
+ */
+public class StepSourceArbiter {
+
+    public enum Source { PHONE, WATCH }
+
+    public interface Listener {
+        void onSourceChanged(Source previous, Source current);
+    }
+
+    public static final long DEFAULT_FRESHNESS_MS = 60_000L;
+    public static final long DEFAULT_RELEASE_AFTER_MS = 150_000L;
+    public static final int DEFAULT_ACQUIRE_HEARTBEATS = 2;
+
+    private final long freshnessMs;
+    private final long releaseAfterMs;
+    private final int acquireHeartbeats;
+    private Listener listener;
+
+    private Source activeSource = Source.PHONE;
+    private long lastWatchUpdate = -1;
+    private long lastHeartbeatAt = -1;
+    private int consecutiveHeartbeats = 0;
+
+    public StepSourceArbiter() {
+        this(DEFAULT_FRESHNESS_MS, DEFAULT_RELEASE_AFTER_MS, DEFAULT_ACQUIRE_HEARTBEATS);
+    }
+
+    public StepSourceArbiter(long freshnessMs, long releaseAfterMs, int acquireHeartbeats) {
+        if (releaseAfterMs < freshnessMs) {
+            throw new IllegalArgumentException("releaseAfterMs must be >= freshnessMs");
+        }
+        this.freshnessMs = freshnessMs;
+        this.releaseAfterMs = releaseAfterMs;
+        this.acquireHeartbeats = Math.max(1, acquireHeartbeats);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Source getActiveSource() {
+        return activeSource;
+    }
+
+    public long getReleaseAfterMs() {
+        return releaseAfterMs;
+    }
+
+    /**
+     * Feeds a live_data snapshot. Only watch-written snapshots with an advancing
+     * last_update that is close to {@code now} count as heartbeats; echoes of the
+     * phone's own writes and the stale value delivered on listener attach are ignored.
+     */
+    public Source onLiveData(String source, long lastUpdate, long now) {
+        if (isWatchSource(source) && lastUpdate > lastWatchUpdate) {
+            lastWatchUpdate = lastUpdate;
+            if (Math.abs(now - lastUpdate) <= freshnessMs) {
+                if (lastHeartbeatAt >= 0 && now - lastHeartbeatAt > freshnessMs) {
+                    consecutiveHeartbeats = 0;
+                }
+                consecutiveHeartbeats++;
+                lastHeartbeatAt = now;
+            }
+        }
+        return evaluate(now);
+    }
+
+    /** Re-evaluates the active source when no snapshot arrives (watch went silent). */
+    public Source evaluate(long now) {
+        if (activeSource == Source.PHONE) {
+            if (consecutiveHeartbeats >= acquireHeartbeats && now - lastHeartbeatAt <= freshnessMs) {
+                switchTo(Source.WATCH);
+            }
+        } else if (lastHeartbeatAt < 0 || now - lastHeartbeatAt > releaseAfterMs) {
+            consecutiveHeartbeats = 0;
+            switchTo(Source.PHONE);
+        }
+        return activeSource;
+    }
+
+    /** The watch node disappeared: hand back to the phone without waiting for the timeout. */
+    public void onWatchDisconnected() {
+        consecutiveHeartbeats = 0;
+        lastHeartbeatAt = -1;
+        switchTo(Source.PHONE);
+    }
+
+    private void switchTo(Source next) {
+        if (next == activeSource) return;
+        Source previous = activeSource;
+        activeSource = next;
+        if (listener != null) listener.onSourceChanged(previous, next);
+    }
+
+    static boolean isWatchSource(String source) {
+        return source != null && source.startsWith("watch");
+    }
+}
@@ -1,12 +1,14 @@
 package com.kaybeefitness.app;
 
 import android.Manifest;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.SharedPreferences;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 
 import com.getcapacitor.JSArray;
@@ -21,19 +23,26 @@ import com.google.android.gms.wearable.MessageClient;
 import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.Wearable;
-import com.google.firebase.FirebaseApp;
 import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.kaybeefitness.app.services.StepTrackingService;
+import com.example.kaybee.core.Clock;
+import com.example.kaybee.core.sync.RouteParser;
+import com.example.kaybee.core.sync.RoutePoint;
+import com.example.kaybee.core.sync.WearPayloads;
+import com.example.kaybee.shared.metrics.Counter;
+import com.example.kaybee.shared.metrics.LatencyHistogram;
+import com.example.kaybee.shared.metrics.Metrics;
+import com.example.kaybee.shared.sensor.SensorSessions;
+import com.example.kaybee.shared.timeseries.Bucket;
+import com.example.kaybee.shared.timeseries.HealthTimeSeries;
+import com.example.kaybee.shared.timeseries.TimeSeriesStore;
+import com.example.kaybee.shared.trace.Traces;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -73,153 +82,172 @@ import org.jetbrains.annotations.NotNull;
         )
     }
 )
-public class WearPlugin extends Plugin implements MessageClient.OnMessageReceivedListener, SensorEventListener {
+public class WearPlugin extends Plugin implements MessageClient.OnMessageReceivedListener, StepTrackingService.Client {
 
-    private DatabaseReference firebaseDb;
-    private SensorManager sensorManager;
-    private Sensor stepCounterSensor;
-    
     private String currentUserId = null;
-    private boolean isWatchConnected = false;
-    private ValueEventListener firebaseListener;
     
-    private long lastFirebaseSteps = 0;
-    private String firebaseDate = "";
-
     private SharedPreferences prefs;
-    private static final String PREF_NAME = "KaybeePhoneSteps";
-    private static final String KEY_OFFSET = "day_offset_steps";
-    private static final String KEY_DATE = "last_step_date";
-    private static final String KEY_WATCH_ACTIVE = "watch_app_active";
+
+    // Capteur de pas, listener live_data et écritures vivent dans le service: on ne fait que s'y lier
+    private StepTrackingService trackingService;
+    // Thread principal uniquement: l'étape "service" peut s'exécuter après handleOnDestroy
+    private boolean serviceBound = false;
+    private boolean destroyed = false;
+    private final ServiceConnection trackingConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            trackingService = ((StepTrackingService.LocalBinder) binder).getService();
+            trackingService.setClient(WearPlugin.this);
+            if (currentUserId != null) trackingService.setUserId(currentUserId);
+            else currentUserId = trackingService.getUserId();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            trackingService = null;
+        }
+    };
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Pas plus de N événements onHealthUpdate par seconde vers la WebView
+    private static final int MAX_HEALTH_EVENTS_PER_SECOND = 2;
+    private final HealthUpdateConflator healthUpdates = new HealthUpdateConflator(MAX_HEALTH_EVENTS_PER_SECOND);
+    private final Runnable healthUpdateFlush = this::flushHealthUpdates;
+    private boolean healthFlushScheduled = false;
+
+    // Champs de live_data relayés à la WebView: en mode natif, le JS n'attache plus son propre onValue
+    private static final String[] LIVE_FIELDS = {
+        "steps", "heart_rate", "date", "source", "last_update",
+        "calories_burned", "calories_consumed", "water", "weight",
+        "sleep_duration", "skin_temp", "mindful_minutes", "nutrition"
+    };
+    // Traces échantillonnées (montre -> RTDB) en attente du prochain onHealthUpdate
+    private final PendingTraces pendingTraces = new PendingTraces();
+
+    private TimeSeriesStore timeSeries;
+
+    private static final Counter BRIDGE_EVENTS = Metrics.counter("bridge.health_update");
+    private static final Counter WEARABLE_RECEIVED = Metrics.counter("wearable.receive");
+    private static final Counter WEARABLE_SENT = Metrics.counter("wearable.send");
+    private static final LatencyHistogram WEARABLE_SEND_LATENCY = Metrics.histogram("wearable.send");
+    private static final Counter HEALTH_CONNECT_CALLS = Metrics.counter("health_connect.call");
+    private static final LatencyHistogram HEALTH_CONNECT_INSERT = Metrics.histogram("health_connect.insert");
+    private static final LatencyHistogram HEALTH_CONNECT_READ = Metrics.histogram("health_connect.read");
+
+    // Initialisation par étapes hors du démarrage du bridge: la WebView peint sans l'attendre
+    private final StagedInit init = new StagedInit(Clock.SYSTEM);
 
     @Override
     public void load() {
         super.load();
-        
-        try {
-            if (FirebaseApp.getApps(getContext()).isEmpty()) {
-                FirebaseApp.initializeApp(getContext());
-            }
-            firebaseDb = FirebaseDatabase.getInstance("https://kaybee-fitness-default-rtdb.firebaseio.com/").getReference();
-        } catch (Exception e) {
-            Log.e("WearPlugin", "Firebase init error", e);
-        }
+        init.start();
+        Context context = getContext();
 
-        prefs = getContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        sensorManager = (SensorManager) getContext().getSystemService(Context.SENSOR_SERVICE);
-        stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-        
-        Wearable.getMessageClient(getContext()).addListener(this);
-        checkWatchConnection();
+        new Thread(() -> {
+            init.stage("stores", () -> {
+                prefs = context.getSharedPreferences(StepTrackingService.PREF_NAME, Context.MODE_PRIVATE);
+                timeSeries = HealthTimeSeries.get(context);
+            });
+            init.stage("wearable", () -> Wearable.getMessageClient(context).addListener(this));
+            mainHandler.post(() -> {
+                init.stage("service", () -> {
+                    if (destroyed) return;
+                    // Utilisateur déjà connu: le service reprend le suivi en avant-plan sans attendre le JS
+                    if (prefs != null && prefs.getString(StepTrackingService.KEY_USER_ID, null) != null) StepTrackingService.start(context);
+                    serviceBound = context.bindService(new Intent(context, StepTrackingService.class), trackingConnection, Context.BIND_AUTO_CREATE);
+                });
+                init.finish();
+                Log.i("WearPlugin", "init " + init.getTiming() + (init.getFailures().isEmpty() ? "" : " failures " + init.getFailures()));
+            });
+        }, "wear-plugin-init").start();
     }
 
-    private void startListeningToFirebase() {
-        if (currentUserId == null || firebaseDb == null || firebaseListener != null) return;
-
-        firebaseListener = new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                try {
-                    firebaseDate = snapshot.child("date").getValue(String.class);
-                    Object stepsVal = snapshot.child("steps").getValue();
-                    if (stepsVal != null) {
-                        lastFirebaseSteps = ((Number) stepsVal).longValue();
-                    }
-
-                    Object heartVal = snapshot.child("heart_rate").getValue();
-                    JSObject ret = new JSObject();
-                    if (stepsVal != null) ret.put("steps", stepsVal);
-                    if (heartVal != null) ret.put("heart_rate", heartVal);
-                    
-                    notifyListeners("onHealthUpdate", ret);
-                } catch (Exception e) { Log.e("WearPlugin", "Parse Error", e); }
-            }
-
-            @Override
-            public void onCancelled(DatabaseError error) {}
-        };
-
-        firebaseDb.child("users").child(currentUserId).child("live_data")
-                  .addValueEventListener(firebaseListener);
+    @Override
+    public void onLiveData(DataSnapshot snapshot, long now) {
+        try {
+            String source = snapshot.child("source").getValue(String.class);
+            Object lastUpdateVal = snapshot.child("last_update").getValue();
+            long lastUpdate = lastUpdateVal instanceof Number ? ((Number) lastUpdateVal).longValue() : -1;
+
+            // Un champ absent du snapshot a été supprimé côté serveur: null le retire côté JS
+            Map<String, Object> fields = new HashMap<>();
+            for (String field : LIVE_FIELDS) fields.put(field, snapshot.child(field).getValue());
+
+            long flushDelay = healthUpdates.offerRemote(fields, source, lastUpdate, now);
+            onTraceSeen(snapshot.child(Traces.LIVE_DATA_FIELD), now, flushDelay);
+            scheduleHealthFlush(flushDelay);
+        } catch (Exception e) { Log.e("WearPlugin", "Parse Error", e); }
     }
 
+    // On livre nos propres pas directement à la WebView; l'écho RTDB sera ignoré
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            long rawSensorSteps = (long) event.values[0];
-            long todaySteps = calculateDailySteps(rawSensorSteps);
-            syncPhoneStepsToFirebase(todaySteps);
-        }
+    public void onLocalSteps(Map<String, Object> updates, long now) {
+        scheduleHealthFlush(healthUpdates.offerLocal(updates, "phone", now, now));
     }
 
-    private void syncPhoneStepsToFirebase(long steps) {
-        if (currentUserId == null || firebaseDb == null) return;
-
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-        boolean isNewDay = !today.equals(firebaseDate);
-        
-        if (!isNewDay && steps <= lastFirebaseSteps && lastFirebaseSteps > 0) {
-            return; 
-        }
-
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("steps", steps);
-        updates.put("source", "phone");
-        updates.put("date", today);
-        updates.put("last_update", System.currentTimeMillis());
-
-        firebaseDb.child("users").child(currentUserId).child("live_data").updateChildren(updates);
+    // Trace écrite par la montre avec un échantillon de FC fusionné (HeartRates)
+    private void onTraceSeen(DataSnapshot trace, long now, long flushDelay) {
+        String traceId = trace.child("id").getValue(String.class);
+        Object sentAt = trace.child(Traces.WATCH_SEND).getValue();
+        if (traceId == null || !(sentAt instanceof Number) || !Traces.join(traceId, ((Number) sentAt).longValue(), now)) return;
+        Traces.mark(traceId, Traces.LISTENER, now);
+        // Rien à livrer (doublon): la trace s'arrête au listener
+        if (flushDelay < 0) Traces.end(traceId);
+        else pendingTraces.add(traceId);
     }
 
-    private long calculateDailySteps(long rawSteps) {
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-        String savedDate = prefs.getString(KEY_DATE, "");
-        long offset = prefs.getLong(KEY_OFFSET, -1);
-
-        if (!today.equals(savedDate) || offset == -1) {
-            offset = rawSteps;
-            prefs.edit().putString(KEY_DATE, today).putLong(KEY_OFFSET, rawSteps).apply();
-            return 0;
-        }
-        
-        if (rawSteps < offset) {
-            offset = rawSteps; 
-            prefs.edit().putLong(KEY_OFFSET, offset).apply();
-            return 0;
+    private void scheduleHealthFlush(long delayMs) {
+        if (delayMs < 0 || healthFlushScheduled) return;
+        if (delayMs == 0) {
+            flushHealthUpdates();
+            return;
         }
-        
-        return rawSteps - offset;
+        healthFlushScheduled = true;
+        mainHandler.postDelayed(healthUpdateFlush, delayMs);
     }
 
-    private void startPhoneStepCounting() {
-        if (stepCounterSensor != null) {
-            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_UI);
+    private void flushHealthUpdates() {
+        healthFlushScheduled = false;
+        Map<String, Object> delta = healthUpdates.flush(System.currentTimeMillis());
+        if (delta == null) {
+            // Snapshot tracé sans champ modifié: ses traces s'arrêtent au listener
+            if (!healthUpdates.hasPending()) pendingTraces.drop();
+            return;
         }
-    }
 
-    private void stopPhoneStepCounting() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        JSObject ret = toJSObject(delta);
+        JSArray removed = new JSArray();
+        for (Map.Entry<String, Object> entry : delta.entrySet()) {
+            if (entry.getValue() == null) removed.put(entry.getKey());
         }
+        if (removed.length() > 0) ret.put("removed", removed);
+        ret.put("seq", healthUpdates.getSequence());
+        notifyListeners("onHealthUpdate", ret);
+        BRIDGE_EVENTS.inc();
+
+        pendingTraces.delivered(System.currentTimeMillis());
     }
 
-    private void checkWatchConnection() {
-        Wearable.getNodeClient(getContext()).getConnectedNodes()
-            .addOnSuccessListener(nodes -> {
-                isWatchConnected = !nodes.isEmpty() && prefs.getBoolean(KEY_WATCH_ACTIVE, false);
-                startPhoneStepCounting();
-            });
+    private static JSObject toJSObject(Map<String, Object> fields) {
+        JSObject ret = new JSObject();
+        // wrap() convertit les sous-noeuds (ex: nutrition) en JSONObject
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            if (entry.getValue() != null) ret.put(entry.getKey(), JSONObject.wrap(entry.getValue()));
+        }
+        return ret;
     }
 
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
-        if (!prefs.getBoolean(KEY_WATCH_ACTIVE, false)) {
-            prefs.edit().putBoolean(KEY_WATCH_ACTIVE, true).apply();
+        WEARABLE_RECEIVED.inc();
+        // Étape "stores" en échec: pas de préférences, le message est traité quand même
+        if (prefs != null && !prefs.getBoolean(StepTrackingService.KEY_WATCH_ACTIVE, false)) {
+            prefs.edit().putBoolean(StepTrackingService.KEY_WATCH_ACTIVE, true).apply();
         }
-        isWatchConnected = true;
         
         String path = messageEvent.getPath();
-        if (path.equals("/request-pair")) {
+        if (path.equals(WearPayloads.PATH_REQUEST_PAIR)) {
             if (this.currentUserId != null) replyWithUserId(messageEvent.getSourceNodeId());
             else notifyListeners("onRequestPair", new JSObject());
         }
@@ -227,42 +255,108 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
 
     @PluginMethod
     public void setUserId(PluginCall call) {
-        this.currentUserId = call.getString("userId");
-        checkWatchConnection();
-        startListeningToFirebase();
-        call.resolve();
+        String userId = call.getString("userId");
+        init.whenReady(() -> mainHandler.post(() -> {
+            switchUser(userId);
+            if (trackingService != null) trackingService.refreshWatchConnection();
+            call.resolve();
+        }));
+    }
+
+    private void switchUser(String userId) {
+        if (!Objects.equals(userId, currentUserId)) {
+            // Les abonnés JS relisent l'état complet au lieu d'appliquer des deltas d'un autre compte
+            JSObject ret = new JSObject();
+            ret.put("seq", healthUpdates.reset());
+            ret.put("reset", true);
+            pendingTraces.drop();
+            notifyListeners("onHealthUpdate", ret);
+        }
+        this.currentUserId = userId;
+        if (userId != null) StepTrackingService.start(getContext());
+        if (trackingService != null) trackingService.setUserId(userId);
     }
 
+    // Amorçage du mode natif: état complet + numéro de séquence, les deltas suivent via onHealthUpdate
     @PluginMethod
-    public void pairWatch(PluginCall call) {
-        String userId = call.getString("userId");
-        if (userId == null) { call.reject("ID requis"); return; }
-        this.currentUserId = userId; 
-        prefs.edit().putBoolean(KEY_WATCH_ACTIVE, true).apply();
-        isWatchConnected = true;
-        startListeningToFirebase();
-        
-        JSObject data = new JSObject();
-        data.put("userId", userId);
-        new Thread(() -> {
+    public void getLiveData(PluginCall call) {
+        init.whenReady(() -> mainHandler.post(() -> {
+            JSObject ret = new JSObject();
+            ret.put("userId", currentUserId);
+            ret.put("seq", healthUpdates.getSequence());
+            ret.put("data", toJSObject(healthUpdates.getState()));
+            call.resolve(ret);
+        }));
+    }
+
+    // Graphiques: lit l'historique local agrégé (minute/hour/day) sans passer par fitness_history
+    @PluginMethod
+    public void getHealthHistory(PluginCall call) {
+        String series = call.getString("series", HealthTimeSeries.STEPS);
+        String bucket = call.getString("bucket", "hour");
+        long to = call.getLong("to", System.currentTimeMillis());
+        long from = call.getLong("from", to - TimeSeriesStore.DAY_MS);
+        long bucketMs = "day".equals(bucket) ? TimeSeriesStore.DAY_MS
+                : "minute".equals(bucket) ? TimeSeriesStore.MINUTE_MS : TimeSeriesStore.HOUR_MS;
+
+        init.whenReady(() -> new Thread(() -> {
             try {
-                List<Node> nodes = Tasks.await(Wearable.getNodeClient(getContext()).getConnectedNodes());
-                for (Node node : nodes) {
-                    Tasks.await(Wearable.getMessageClient(getContext())
-                            .sendMessage(node.getId(), "/pair", data.toString().getBytes()));
+                long zoneOffset = TimeZone.getDefault().getOffset(from);
+                JSArray results = new JSArray();
+                for (Bucket b : timeSeries.rollup(series, from, to, bucketMs, zoneOffset)) {
+                    JSObject obj = new JSObject();
+                    obj.put("start", b.getStart());
+                    obj.put("count", b.getCount());
+                    obj.put("min", b.getMin());
+                    obj.put("max", b.getMax());
+                    obj.put("sum", b.getSum());
+                    obj.put("avg", b.getAverage());
+                    results.put(obj);
                 }
-                call.resolve();
+                JSObject ret = new JSObject();
+                ret.put("buckets", results);
+                call.resolve(ret);
             } catch (Exception e) { call.reject(e.getMessage()); }
-        }).start();
+        }).start(), call::reject, "stores");
+    }
+
+    @PluginMethod
+    public void getHealthUpdateStats(PluginCall call) {
+        mainHandler.post(() -> {
+            JSObject ret = new JSObject();
+            ret.put("received", healthUpdates.getReceived());
+            ret.put("suppressed", healthUpdates.getSuppressed());
+            ret.put("emitted", healthUpdates.getEmitted());
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void pairWatch(PluginCall call) {
+        String userId = call.getString("userId");
+        if (userId == null) { call.reject("ID requis"); return; }
+        init.whenReady(() -> {
+            prefs.edit().putBoolean(StepTrackingService.KEY_WATCH_ACTIVE, true).apply();
+            mainHandler.post(() -> switchUser(userId));
+
+            byte[] data = WearPayloads.encodePair(userId);
+            new Thread(() -> {
+                try {
+                    List<Node> nodes = Tasks.await(Wearable.getNodeClient(getContext()).getConnectedNodes());
+                    for (Node node : nodes) {
+                        sendToNode(node.getId(), WearPayloads.PATH_PAIR, data);
+                    }
+                    call.resolve();
+                } catch (Exception e) { call.reject(e.getMessage()); }
+            }).start();
+        }, call::reject, "stores");
     }
     
     private void replyWithUserId(String nodeId) {
-        JSObject data = new JSObject();
-        data.put("userId", this.currentUserId);
+        byte[] data = WearPayloads.encodePair(this.currentUserId);
         new Thread(() -> {
             try {
-                Tasks.await(Wearable.getMessageClient(getContext())
-                        .sendMessage(nodeId, "/pair", data.toString().getBytes()));
+                sendToNode(nodeId, WearPayloads.PATH_PAIR, data);
             } catch (Exception e) {}
         }).start();
     }
@@ -275,14 +369,65 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
             try {
                 List<Node> nodes = Tasks.await(Wearable.getNodeClient(getContext()).getConnectedNodes());
                 for (Node node : nodes) {
-                    Tasks.await(Wearable.getMessageClient(getContext())
-                            .sendMessage(node.getId(), path, data.getBytes()));
+                    sendToNode(node.getId(), path, data.getBytes());
                 }
                 call.resolve();
             } catch (Exception e) { call.reject(e.getMessage()); }
         }).start();
     }
 
+    // Bloquant: à appeler hors du thread principal
+    private void sendToNode(String nodeId, String path, byte[] payload) throws Exception {
+        long start = System.nanoTime();
+        WEARABLE_SENT.inc();
+        Tasks.await(Wearable.getMessageClient(getContext()).sendMessage(nodeId, path, payload));
+        WEARABLE_SEND_LATENCY.recordSince(start);
+    }
+
+    // Continuation Health Connect qui mesure l'appel puis résout la PluginCall
+    private static <T> Continuation<T> resolveWhenInserted(PluginCall call) {
+        HEALTH_CONNECT_CALLS.inc();
+        long start = System.nanoTime();
+        return new Continuation<T>() {
+            @NotNull
+            @Override
+            public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
+            @Override
+            public void resumeWith(@NotNull Object o) {
+                HEALTH_CONNECT_INSERT.recordSince(start);
+                call.resolve();
+            }
+        };
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        JSObject ret = new JSObject();
+        for (Map.Entry<String, Object> entry : Metrics.snapshot().entrySet()) ret.put(entry.getKey(), JSONObject.wrap(entry.getValue()));
+        ret.put("sensors", JSONObject.wrap(SensorSessions.get(getContext()).snapshot()));
+        if (call.getBoolean("reset", false)) Metrics.reset();
+        call.resolve(ret);
+    }
+
+    // Détail de l'initialisation par étapes: durées en ms, total et appels rejoués
+    @PluginMethod
+    public void getInitTiming(PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("ready", init.isReady());
+        for (Map.Entry<String, Long> entry : init.getTiming().entrySet()) ret.put(entry.getKey(), entry.getValue());
+        JSObject failures = new JSObject();
+        for (Map.Entry<String, String> entry : init.getFailures().entrySet()) failures.put(entry.getKey(), entry.getValue());
+        ret.put("failures", failures);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getTraceStats(PluginCall call) {
+        JSObject ret = new JSObject();
+        for (Map.Entry<String, Object> entry : Traces.snapshot().entrySet()) ret.put(entry.getKey(), JSONObject.wrap(entry.getValue()));
+        call.resolve(ret);
+    }
+
     @PluginMethod
     public void writeRunToHealthConnect(PluginCall call) {
         if (HealthConnectClient.getSdkStatus(getContext(), "com.google.android.apps.healthdata") != HealthConnectClient.SDK_AVAILABLE) {
@@ -302,23 +447,20 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
             Instant start = Instant.parse(startTimeStr);
             Instant end = Instant.parse(endTimeStr);
 
-            List<ExerciseRoute.Location> locations = new ArrayList<>();
-            if (routeArray != null) {
-                for (int i = 0; i < routeArray.length(); i++) {
-                    try {
-                        JSONObject pointJson = routeArray.getJSONObject(i);
-                        locations.add(new ExerciseRoute.Location(
-                            Instant.ofEpochMilli(pointJson.getLong("timestamp")),
-                            pointJson.getDouble("lat"),
-                            pointJson.getDouble("lng"),
-                            pointJson.isNull("altitude") ? null : Length.meters(pointJson.getDouble("altitude")),
-                            null,
-                            null
-                        ));
-                    } catch (Exception e) {
-                        Log.e("WearPlugin", "Error parsing route point", e);
-                    }
-                }
+            List<RoutePoint> points = RouteParser.parse(routeArray);
+            if (routeArray != null && points.size() < routeArray.length()) {
+                Log.e("WearPlugin", "Skipped " + (routeArray.length() - points.size()) + " malformed route points");
+            }
+            List<ExerciseRoute.Location> locations = new ArrayList<>(points.size());
+            for (RoutePoint point : points) {
+                locations.add(new ExerciseRoute.Location(
+                    Instant.ofEpochMilli(point.getTimestamp()),
+                    point.getLatitude(),
+                    point.getLongitude(),
+                    point.getAltitude() == null ? null : Length.meters(point.getAltitude()),
+                    null,
+                    null
+                ));
             }
 
             ExerciseRoute route = null;
@@ -361,13 +503,7 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
 
             new Thread(() -> {
                 try {
-                    client.insertRecords(Arrays.asList(session, caloriesRecord, distanceRecord), new Continuation<androidx.health.connect.client.response.InsertRecordsResponse>() {
-                        @NotNull
-                        @Override
-                        public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
-                        @Override
-                        public void resumeWith(@NotNull Object o) { call.resolve(); }
-                    });
+                    client.insertRecords(Arrays.asList(session, caloriesRecord, distanceRecord), resolveWhenInserted(call));
                 } catch (Exception e) {
                     call.reject(e.getMessage());
                 }
@@ -391,26 +527,14 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
                 StepsRecord record = new StepsRecord(now.minus(Duration.ofMinutes(1)), ZoneOffset.UTC, now, ZoneOffset.UTC, count, Metadata.manualEntry());
                 new Thread(() -> {
                     try { 
-                        client.insertRecords(Collections.singletonList(record), new Continuation<androidx.health.connect.client.response.InsertRecordsResponse>() {
-                            @NotNull
-                            @Override
-                            public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
-                            @Override
-                            public void resumeWith(@NotNull Object o) { call.resolve(); }
-                        });
+                        client.insertRecords(Collections.singletonList(record), resolveWhenInserted(call));
                     } catch (Exception e) { call.reject(e.getMessage()); }
                 }).start();
             } else if ("mindfulness".equals(type)) {
                 MindfulnessSessionRecord record = new MindfulnessSessionRecord(now.minus(Duration.ofMinutes(10)), ZoneOffset.UTC, now, ZoneOffset.UTC, Metadata.manualEntry(), MindfulnessSessionRecord.MINDFULNESS_SESSION_TYPE_MEDITATION, "Méditation Kaybee", null);
                 new Thread(() -> {
                     try { 
-                        client.insertRecords(Collections.singletonList(record), new Continuation<androidx.health.connect.client.response.InsertRecordsResponse>() {
-                            @NotNull
-                            @Override
-                            public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
-                            @Override
-                            public void resumeWith(@NotNull Object o) { call.resolve(); }
-                        });
+                        client.insertRecords(Collections.singletonList(record), resolveWhenInserted(call));
                     } catch (Exception e) { call.reject(e.getMessage()); }
                 }).start();
             } else if ("skin_temperature".equals(type)) {
@@ -418,26 +542,14 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
                 SkinTemperatureRecord record = new SkinTemperatureRecord(now, ZoneOffset.UTC, now, ZoneOffset.UTC, Metadata.manualEntry(), Collections.emptyList(), Temperature.celsius(temp), SkinTemperatureRecord.MEASUREMENT_LOCATION_WRIST);
                 new Thread(() -> {
                     try { 
-                        client.insertRecords(Collections.singletonList(record), new Continuation<androidx.health.connect.client.response.InsertRecordsResponse>() {
-                            @NotNull
-                            @Override
-                            public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
-                            @Override
-                            public void resumeWith(@NotNull Object o) { call.resolve(); }
-                        });
+                        client.insertRecords(Collections.singletonList(record), resolveWhenInserted(call));
                     } catch (Exception e) { call.reject(e.getMessage()); }
                 }).start();
             } else if ("sleep".equals(type)) {
                 SleepSessionRecord record = new SleepSessionRecord(now.minus(Duration.ofHours(8)), ZoneOffset.UTC, now, ZoneOffset.UTC, Metadata.manualEntry(), "Sommeil Kaybee", null, Collections.emptyList());
                 new Thread(() -> {
                     try { 
-                        client.insertRecords(Collections.singletonList(record), new Continuation<androidx.health.connect.client.response.InsertRecordsResponse>() {
-                            @NotNull
-                            @Override
-                            public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
-                            @Override
-                            public void resumeWith(@NotNull Object o) { call.resolve(); }
-                        });
+                        client.insertRecords(Collections.singletonList(record), resolveWhenInserted(call));
                     } catch (Exception e) { call.reject(e.getMessage()); }
                 }).start();
             }
@@ -464,12 +576,15 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
                     null
                 );
                 
+                HEALTH_CONNECT_CALLS.inc();
+                long readStart = System.nanoTime();
                 client.readRecords(request, new Continuation<androidx.health.connect.client.response.ReadRecordsResponse<ExerciseSessionRecord>>() {
                     @NotNull
                     @Override
                     public CoroutineContext getContext() { return EmptyCoroutineContext.INSTANCE; }
                     @Override
                     public void resumeWith(@NotNull Object o) {
+                        HEALTH_CONNECT_READ.recordSince(readStart);
                         if (o instanceof androidx.health.connect.client.response.ReadRecordsResponse) {
                             @SuppressWarnings("unchecked")
                             List<ExerciseSessionRecord> records = ((androidx.health.connect.client.response.ReadRecordsResponse<ExerciseSessionRecord>) o).getRecords();
@@ -501,6 +616,16 @@ public class WearPlugin extends Plugin implements MessageClient.OnMessageReceive
         }).start();
     }
 
+    // Le service continue de compter (et d'écrire) après la WebView
     @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+    protected void handleOnDestroy() {
+        mainHandler.removeCallbacks(healthUpdateFlush);
+        destroyed = true;
+        if (trackingService != null) trackingService.setClient(null);
+        trackingService = null;
+        // Détruit avant l'étape "service": rien n'a été lié
+        if (serviceBound) getContext().unbindService(trackingConnection);
+        serviceBound = false;
+        super.handleOnDestroy();
+    }
 }
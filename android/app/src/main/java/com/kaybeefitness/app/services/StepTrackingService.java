@@ -0,0 +1,338 @@
+package com.kaybeefitness.app.services;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+import com.google.android.gms.wearable.Wearable;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+import com.kaybeefitness.app.StepSourceArbiter;
+import com.example.kaybee.core.Clock;
+import com.example.kaybee.core.engine.StepEngine;
+import com.example.kaybee.core.engine.StepIncrements;
+import com.example.kaybee.shared.metrics.Counter;
+import com.example.kaybee.shared.metrics.Metrics;
+import com.example.kaybee.shared.metrics.TaskMetrics;
+import com.example.kaybee.shared.platform.KaybeeDatabase;
+import com.example.kaybee.shared.platform.SharedPreferencesStore;
+import com.example.kaybee.shared.sensor.SensorSessionManager;
+import com.example.kaybee.shared.sensor.SensorSessions;
+import com.example.kaybee.shared.timeseries.HealthTimeSeries;
+import java.util.Map;
+
+/**
+ * Foreground service owning the phone step pipeline: step counter registration, StepEngine,
+ * local history, live_data writes and the single live_data listener. It outlives the
+ * WebView; WearPlugin only binds to it and relays to JS through {@link Client}.
+ *
+ * Everything runs on the main thread. The step counter is cumulative, so events held in
+ * the sensor FIFO while batched are never lost, only delivered later.
+ */
+public class StepTrackingService extends Service {
+    private static final String TAG = "StepTrackingService";
+
+    public static final String PREF_NAME = "KaybeePhoneSteps";
+    public static final String KEY_USER_ID = "userId";
+    public static final String KEY_WATCH_ACTIVE = "watch_app_active";
+
+    private static final String CHANNEL_ID = "step_tracking";
+    private static final int NOTIFICATION_ID = 1036;
+
+    // Latence de livraison du FIFO matériel: écran allumé on veut les pas tout de suite,
+    // écran éteint ou montre source on se contente de réveils groupés
+    private static final int SCREEN_ON_LATENCY_US = 0;
+    private static final int SCREEN_OFF_LATENCY_US = 60 * 1000 * 1000;
+    private static final int WATCH_SOURCE_LATENCY_US = 5 * 60 * 1000 * 1000;
+    private static final String SENSOR_CONSUMER = "step_tracking";
+
+    private static final Counter LIVE_DATA_SNAPSHOTS = Metrics.counter("firebase.live_data.snapshot");
+
+    /** Bound WearPlugin; callbacks arrive on the main thread. */
+    public interface Client {
+        /** Steps written by the phone, delivered before their RTDB echo. */
+        void onLocalSteps(Map<String, Object> updates, long now);
+
+        void onLiveData(DataSnapshot snapshot, long now);
+    }
+
+    public class LocalBinder extends Binder {
+        public StepTrackingService getService() {
+            return StepTrackingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final StepSourceArbiter stepSourceArbiter = new StepSourceArbiter();
+    private final Runnable arbiterCheck = this::reevaluateStepSource;
+    private final StepIncrements phoneStepIncrements = new StepIncrements();
+
+    private SharedPreferences prefs;
+    private StepEngine stepEngine;
+    private SensorSessionManager<SensorEvent> sensorSessions;
+    private boolean screenOn = true;
+
+    private DatabaseReference firebaseDb;
+    private DatabaseReference liveDataRef;
+    private ValueEventListener liveDataListener;
+    private DataSnapshot lastLiveData;
+    private long lastHeartRateAt = -1;
+    private String userId;
+    private Client client;
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+            updateSensorRegistration();
+        }
+    };
+
+    /** Starts the service in the foreground; without ACTIVITY_RECOGNITION it only runs while bound. */
+    public static void start(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        ContextCompat.startForegroundService(context, new Intent(context, StepTrackingService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        try {
+            // Déjà créée par AppInitializer dans la plupart des cas
+            firebaseDb = KaybeeDatabase.get(this).getReference();
+        } catch (Exception e) {
+            Log.e(TAG, "Firebase init failed in service", e);
+        }
+
+        prefs = getSharedPreferences(PREF_NAME, MODE_PRIVATE);
+        stepEngine = new StepEngine(new SharedPreferencesStore(prefs), Clock.SYSTEM);
+        sensorSessions = SensorSessions.get(this);
+        screenOn = ((PowerManager) getSystemService(Context.POWER_SERVICE)).isInteractive();
+        stepSourceArbiter.setListener((previous, current) -> {
+            Log.d(TAG, "Step source " + previous + " -> " + current);
+            updateSensorRegistration();
+        });
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        registerReceiver(screenReceiver, filter);
+
+        setUserId(prefs.getString(KEY_USER_ID, null));
+        refreshWatchConnection();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE ? ServiceInfo.FOREGROUND_SERVICE_TYPE_HEALTH : 0;
+        try {
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(), type);
+        } catch (Exception e) {
+            // Permission retirée entre-temps: on reste un service lié, comme avant
+            Log.e(TAG, "startForeground refused", e);
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        mainHandler.removeCallbacks(arbiterCheck);
+        unregisterReceiver(screenReceiver);
+        stopListeningToLiveData();
+        sensorSessions.release(Sensor.TYPE_STEP_COUNTER, SENSOR_CONSUMER);
+        super.onDestroy();
+    }
+
+    /** A new client first receives the last live_data snapshot, so a fresh WebView starts complete. */
+    public void setClient(Client client) {
+        this.client = client;
+        if (client != null && lastLiveData != null) client.onLiveData(lastLiveData, System.currentTimeMillis());
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Idempotent: the same user keeps its listener and sensor registration. Going from a
+     * user to none (logout) leaves the foreground; the service then lives only while bound.
+     */
+    public void setUserId(String newUserId) {
+        if (newUserId != null && newUserId.equals(userId) && liveDataListener != null) return;
+        boolean loggedOut = newUserId == null && userId != null;
+        stopListeningToLiveData();
+        userId = newUserId;
+        if (newUserId != null) prefs.edit().putString(KEY_USER_ID, newUserId).apply();
+        startListeningToLiveData();
+        updateSensorRegistration();
+        if (loggedOut) {
+            prefs.edit().remove(KEY_USER_ID).apply();
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            stopSelf();
+        }
+    }
+
+    public void refreshWatchConnection() {
+        Wearable.getNodeClient(this).getConnectedNodes()
+            .addOnSuccessListener(nodes -> {
+                boolean connected = !nodes.isEmpty() && prefs.getBoolean(KEY_WATCH_ACTIVE, false);
+                if (!connected) stepSourceArbiter.onWatchDisconnected();
+                stepSourceArbiter.evaluate(System.currentTimeMillis());
+                updateSensorRegistration();
+                scheduleArbiterCheck();
+            });
+    }
+
+    private void startListeningToLiveData() {
+        if (userId == null || firebaseDb == null || liveDataListener != null) return;
+
+        liveDataListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                LIVE_DATA_SNAPSHOTS.inc();
+                long now = System.currentTimeMillis();
+                try {
+                    Object stepsVal = snapshot.child("steps").getValue();
+                    stepEngine.onRemoteSteps(snapshot.child("date").getValue(String.class),
+                            stepsVal instanceof Number ? ((Number) stepsVal).longValue() : null);
+
+                    Object lastUpdateVal = snapshot.child("last_update").getValue();
+                    long lastUpdate = lastUpdateVal instanceof Number ? ((Number) lastUpdateVal).longValue() : -1;
+                    if (lastUpdate >= 0) {
+                        stepSourceArbiter.onLiveData(snapshot.child("source").getValue(String.class), lastUpdate, now);
+                        scheduleArbiterCheck();
+                    }
+                    recordWatchHeartRate(snapshot);
+                } catch (Exception e) { Log.e(TAG, "Parse Error", e); }
+                lastLiveData = snapshot;
+                if (client != null) client.onLiveData(snapshot, now);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        };
+
+        liveDataRef = firebaseDb.child("users").child(userId).child("live_data");
+        liveDataRef.addValueEventListener(liveDataListener);
+    }
+
+    // FC fusionnée par la montre (HeartRates, horodatage serveur): seul flux de l'historique local
+    private void recordWatchHeartRate(DataSnapshot snapshot) {
+        Object bpm = snapshot.child("heart_rate").getValue();
+        Object at = snapshot.child("timestamp").getValue();
+        if (!(bpm instanceof Number) || !(at instanceof Number)) return;
+        long timestamp = ((Number) at).longValue();
+        if (timestamp <= lastHeartRateAt) return;
+        lastHeartRateAt = timestamp;
+        HealthTimeSeries.append(this, HealthTimeSeries.HEART_RATE, timestamp, ((Number) bpm).longValue());
+    }
+
+    private void stopListeningToLiveData() {
+        if (liveDataRef != null && liveDataListener != null) {
+            liveDataRef.removeEventListener(liveDataListener);
+        }
+        liveDataRef = null;
+        liveDataListener = null;
+        lastLiveData = null;
+    }
+
+    private void onStepCounter(SensorEvent event) {
+        // Toujours maintenir l'offset du jour, mais n'écrire que si le téléphone est la source
+        long todaySteps = stepEngine.onStepCounter((long) event.values[0]);
+        recordPhoneSteps(todaySteps);
+        if (stepSourceArbiter.getActiveSource() == StepSourceArbiter.Source.PHONE) {
+            syncPhoneStepsToFirebase(todaySteps);
+        }
+    }
+
+    // Historique local: on stocke les incréments, la somme d'un bucket = pas faits dans ce bucket
+    private void recordPhoneSteps(long todaySteps) {
+        long increment = phoneStepIncrements.next(todaySteps);
+        if (increment > 0) {
+            HealthTimeSeries.append(this, HealthTimeSeries.STEPS, System.currentTimeMillis(), increment);
+        }
+    }
+
+    private void syncPhoneStepsToFirebase(long steps) {
+        if (userId == null || firebaseDb == null) return;
+
+        Map<String, Object> updates = stepEngine.syncUpdate(steps);
+        if (updates == null) return;
+
+        long now = ((Number) updates.get("last_update")).longValue();
+        TaskMetrics.track("firebase.write", firebaseDb.child("users").child(userId).child("live_data").updateChildren(updates));
+        if (client != null) client.onLocalSteps(updates, now);
+    }
+
+    // Idempotent: SensorSessions ne ré-enregistre le capteur que si la requête change
+    private void updateSensorRegistration() {
+        int latencyUs = stepSourceArbiter.getActiveSource() == StepSourceArbiter.Source.WATCH ? WATCH_SOURCE_LATENCY_US
+                : screenOn ? SCREEN_ON_LATENCY_US : SCREEN_OFF_LATENCY_US;
+        int samplingPeriodUs = latencyUs == 0 ? SensorSessionManager.PERIOD_UI_US : SensorSessionManager.PERIOD_NORMAL_US;
+        sensorSessions.acquire(Sensor.TYPE_STEP_COUNTER, SENSOR_CONSUMER,
+                new SensorSessionManager.Request(samplingPeriodUs, latencyUs), this::onStepCounter);
+    }
+
+    private void reevaluateStepSource() {
+        stepSourceArbiter.evaluate(System.currentTimeMillis());
+        scheduleArbiterCheck();
+    }
+
+    // Sans heartbeat, aucun snapshot n'arrive: on re-vérifie nous-mêmes pour rendre la main au téléphone
+    private void scheduleArbiterCheck() {
+        mainHandler.removeCallbacks(arbiterCheck);
+        if (stepSourceArbiter.getActiveSource() == StepSourceArbiter.Source.WATCH) {
+            mainHandler.postDelayed(arbiterCheck, stepSourceArbiter.getReleaseAfterMs());
+        }
+    }
+
+    private Notification buildNotification() {
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager.getNotificationChannel(CHANNEL_ID) == null) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Suivi des pas", NotificationManager.IMPORTANCE_LOW));
+        }
+        Intent launch = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setSmallIcon(getApplicationInfo().icon)
+            .setContentTitle("Kaybee Fitness")
+            .setContentText("Suivi des pas actif")
+            .setOngoing(true);
+        if (launch != null) {
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, launch, PendingIntent.FLAG_IMMUTABLE));
+        }
+        return builder.build();
+    }
+}
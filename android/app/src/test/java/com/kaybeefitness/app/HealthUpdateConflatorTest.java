@@ -0,0 +1,138 @@
+package com.kaybeefitness.app;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HealthUpdateConflatorTest {
+
+    private static Map<String, Object> fields(Object steps, Object heartRate) {
+        Map<String, Object> map = new HashMap<>();
+        if (steps != null) map.put("steps", steps);
+        if (heartRate != null) map.put("heart_rate", heartRate);
+        return map;
+    }
+
+    @Test
+    public void firstUpdateIsEmittedImmediately() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        assertEquals(0, conflator.offerRemote(fields(100L, 70L), "watch", 1_000L, 1_000L));
+        assertEquals(fields(100L, 70L), conflator.flush(1_000L));
+        assertEquals(1, conflator.getEmitted());
+    }
+
+    @Test
+    public void ownWritesAreNotEchoedBackToJs() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        conflator.offerLocal(fields(50L, null), "phone", 5_000L, 5_000L);
+        assertEquals(fields(50L, null), conflator.flush(5_000L));
+
+        assertEquals(-1, conflator.offerRemote(fields(50L, null), "phone", 5_000L, 5_200L));
+        assertNull(conflator.flush(6_000L));
+        assertEquals(1, conflator.getReceived());
+        assertEquals(1, conflator.getSuppressed());
+        assertEquals(1, conflator.getEmitted());
+    }
+
+    @Test
+    public void echoCarryingAForeignChangeIsStillDelivered() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        conflator.offerLocal(fields(50L, null), "phone", 5_000L, 5_000L);
+        conflator.flush(5_000L);
+
+        Map<String, Object> echo = fields(50L, null);
+        echo.put("water", 0.5);
+        conflator.offerRemote(echo, "phone", 5_000L, 6_000L);
+        Map<String, Object> delta = conflator.flush(6_000L);
+        assertEquals(1, delta.size());
+        assertEquals(0.5, delta.get("water"));
+        assertEquals(0, conflator.getSuppressed());
+    }
+
+    @Test
+    public void stateAndSequenceSeedLateSubscribers() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        conflator.offerRemote(fields(100L, 70L), "watch", 1_000L, 1_000L);
+        conflator.flush(1_000L);
+        conflator.offerRemote(fields(120L, null), "watch", 1_100L, 1_100L);
+
+        assertEquals(1, conflator.getSequence());
+        assertEquals(fields(120L, 70L), conflator.getState());
+        conflator.flush(1_500L);
+        assertEquals(2, conflator.getSequence());
+    }
+
+    @Test
+    public void burstIsConflatedToOneEventPerInterval() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        long now = 10_000L;
+        conflator.offerRemote(fields(1L, 60L), "watch", now, now);
+        conflator.flush(now);
+
+        for (int i = 1; i <= 20; i++) {
+            long delay = conflator.offerRemote(fields(1L + i, 60L + i), "watch", now + i * 10, now + i * 10);
+            assertTrue(delay > 0);
+            assertNull(conflator.flush(now + i * 10));
+        }
+        Map<String, Object> delta = conflator.flush(now + 500);
+        assertEquals(fields(21L, 80L), delta);
+        assertEquals(21, conflator.getReceived());
+        assertEquals(2, conflator.getEmitted());
+    }
+
+    @Test
+    public void onlyChangedFieldsAreDelivered() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        conflator.offerRemote(fields(100L, 70L), "watch", 1_000L, 1_000L);
+        conflator.flush(1_000L);
+
+        conflator.offerRemote(fields(100L, 72L), "watch", 2_000L, 2_000L);
+        assertEquals(fields(null, 72L), conflator.flush(2_000L));
+
+        conflator.offerRemote(fields(100L, 72L), "watch", 3_000L, 3_000L);
+        assertNull(conflator.flush(3_000L));
+        assertEquals(2, conflator.getEmitted());
+    }
+
+    @Test
+    public void deletedFieldIsDeliveredAsRemoved() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        Map<String, Object> snapshot = fields(100L, 70L);
+        snapshot.put("water", null);
+        conflator.offerRemote(snapshot, "watch", 1_000L, 1_000L);
+        // Jamais vu côté JS: rien à retirer
+        assertEquals(fields(100L, 70L), conflator.flush(1_000L));
+
+        conflator.offerRemote(fields(100L, null), "watch", 2_000L, 2_000L);
+        Map<String, Object> removal = new HashMap<>();
+        removal.put("heart_rate", null);
+        conflator.offerRemote(removal, "watch", 2_100L, 2_100L);
+        Map<String, Object> delta = conflator.flush(2_000L + 500);
+        assertEquals(1, delta.size());
+        assertTrue(delta.containsKey("heart_rate"));
+        assertNull(delta.get("heart_rate"));
+        assertEquals(fields(100L, null), conflator.getState());
+
+        conflator.offerRemote(removal, "watch", 3_000L, 3_000L);
+        assertNull(conflator.flush(3_000L));
+    }
+
+    @Test
+    public void resetTakesASequenceNumberAndForgetsTheState() {
+        HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+        conflator.offerRemote(fields(100L, 70L), "watch", 1_000L, 1_000L);
+        conflator.flush(1_000L);
+
+        assertEquals(2, conflator.reset());
+        assertTrue(conflator.getState().isEmpty());
+
+        // Mêmes valeurs pour le nouveau compte: renvoyées, numérotées après le reset
+        conflator.offerRemote(fields(100L, 70L), "watch", 2_000L, 2_000L);
+        assertEquals(fields(100L, 70L), conflator.flush(2_000L));
+        assertEquals(3, conflator.getSequence());
+        assertEquals(2, conflator.getEmitted());
+    }
+}
@@ -0,0 +1,84 @@
+package com.kaybeefitness.app;
+
+import com.example.kaybee.shared.metrics.Metrics;
+import com.example.kaybee.shared.trace.Traces;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PendingTracesTest {
+
+    private final HealthUpdateConflator conflator = new HealthUpdateConflator(2);
+    private final PendingTraces pending = new PendingTraces();
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    private static Map<String, Object> steps(long steps) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("steps", steps);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long endToEnd() {
+        Map<String, Map<String, Object>> hops = (Map<String, Map<String, Object>>) Traces.snapshot().get("hops");
+        return (Long) hops.get("end_to_end").get("count");
+    }
+
+    // Même enchaînement que WearPlugin.onLiveData puis flushHealthUpdates
+    private void receive(String traceId, long sentAt, Map<String, Object> fields, long lastUpdate, long now) {
+        long delay = conflator.offerRemote(fields, "watch", lastUpdate, now);
+        if (traceId != null && Traces.join(traceId, sentAt, now)) {
+            Traces.mark(traceId, Traces.LISTENER, now);
+            if (delay < 0) Traces.end(traceId);
+            else pending.add(traceId);
+        }
+        Map<String, Object> delta = conflator.flush(now + Math.max(0, delay));
+        if (delta != null) pending.delivered(now + Math.max(0, delay));
+        else if (!conflator.hasPending()) pending.drop();
+    }
+
+    @Test
+    public void tracedSnapshotChangingNoFieldEndsAtTheListener() {
+        receive(null, 0L, steps(100L), 1_000L, 1_000L);
+
+        // Nouveau last_update mais aucun champ relayé ne change: pas d'onHealthUpdate
+        receive("t1", 1_950L, steps(100L), 2_000L, 2_000L);
+        assertEquals(0, pending.size());
+        assertFalse(Traces.isOpen("t1"));
+
+        // L'événement suivant ne doit pas porter t1 jusqu'au bridge
+        receive(null, 0L, steps(130L), 60_000L, 60_000L);
+        assertEquals(0L, endToEnd());
+    }
+
+    @Test
+    public void deliveredTracesReachTheBridge() {
+        receive("t2", 900L, steps(100L), 1_000L, 1_000L);
+        assertFalse(Traces.isOpen("t2"));
+        assertEquals(1L, endToEnd());
+    }
+
+    @Test
+    public void tracesWaitForAFlushThatIsNotDueYet() {
+        receive(null, 0L, steps(100L), 1_000L, 1_000L);
+        long delay = conflator.offerRemote(steps(110L), "watch", 1_100L, 1_100L);
+        assertTrue(Traces.join("t3", 1_050L, 1_100L));
+        pending.add("t3");
+
+        assertNull(conflator.flush(1_100L));
+        assertTrue(conflator.hasPending());
+        assertEquals(1, pending.size());
+
+        assertNotNull(conflator.flush(1_100L + delay));
+        pending.delivered(1_100L + delay);
+        assertEquals(1L, endToEnd());
+    }
+}
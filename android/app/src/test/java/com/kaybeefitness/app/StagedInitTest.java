@@ -0,0 +1,92 @@
+package com.kaybeefitness.app;
+
+import com.example.kaybee.core.sim.ManualClock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StagedInitTest {
+
+    private final ManualClock clock = new ManualClock(1_000L);
+    private final List<String> calls = new ArrayList<>();
+    private StagedInit init;
+
+    @Before
+    public void setUp() {
+        init = new StagedInit(clock);
+        init.start();
+    }
+
+    @Test
+    public void callsBeforeFinishAreReplayedInOrder() {
+        init.whenReady(() -> calls.add("setUserId"));
+        init.whenReady(() -> calls.add("getLiveData"));
+        init.stage("stores", () -> clock.advance(40));
+        assertTrue(calls.isEmpty());
+        assertFalse(init.isReady());
+
+        init.finish();
+        init.whenReady(() -> calls.add("getHealthHistory"));
+        assertEquals(Arrays.asList("setUserId", "getLiveData", "getHealthHistory"), calls);
+        assertTrue(init.isReady());
+    }
+
+    @Test
+    public void callArrivingDuringReplayWaitsForTheQueue() {
+        init.whenReady(() -> {
+            calls.add("first");
+            // Appel arrivé pendant le rejeu (autre thread en pratique): derrière la file
+            init.whenReady(() -> calls.add("late"));
+        });
+        init.whenReady(() -> calls.add("second"));
+        init.finish();
+        assertEquals(Arrays.asList("first", "second", "late"), calls);
+        assertEquals(Long.valueOf(3), init.getTiming().get("replayed"));
+    }
+
+    @Test
+    public void timingListsStagesThenTotal() {
+        init.stage("stores", () -> clock.advance(40));
+        init.stage("wearable", () -> clock.advance(15));
+        clock.advance(5);
+        init.stage("service", () -> clock.advance(10));
+        init.finish();
+
+        Map<String, Long> timing = init.getTiming();
+        assertEquals(Arrays.asList("stores", "wearable", "service", "total", "replayed"), new ArrayList<>(timing.keySet()));
+        assertEquals(Long.valueOf(40), timing.get("stores"));
+        assertEquals(Long.valueOf(70), timing.get("total"));
+    }
+
+    @Test
+    public void failingStageIsRecordedAndInitCompletes() {
+        init.stage("wearable", () -> { throw new IllegalStateException("no play services"); });
+        init.stage("service", () -> calls.add("service"));
+        init.finish();
+
+        assertEquals("no play services", init.getFailures().get("wearable"));
+        assertEquals(Arrays.asList("service"), calls);
+        assertTrue(init.isReady());
+    }
+
+    @Test
+    public void callNeedingAFailedStageGetsTheFailure() {
+        List<String> rejected = new ArrayList<>();
+        init.whenReady(() -> calls.add("pairWatch"), rejected::add, "stores");
+        init.whenReady(() -> calls.add("setUserId"), rejected::add, "service");
+        init.stage("stores", () -> { throw new IllegalStateException("disk full"); });
+        init.stage("service", () -> {});
+        init.finish();
+        init.whenReady(() -> calls.add("getHealthHistory"), rejected::add, "stores");
+
+        assertEquals(Arrays.asList("setUserId"), calls);
+        assertEquals(Arrays.asList("stores: disk full", "stores: disk full"), rejected);
+    }
+}
@@ -0,0 +1,99 @@
+package com.kaybeefitness.app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StepSourceArbiterTest {
+
+    private static final long FRESHNESS = 60_000L;
+    private static final long RELEASE = 150_000L;
+
+    private StepSourceArbiter arbiter;
+    private final List<String> handoffs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        arbiter = new StepSourceArbiter(FRESHNESS, RELEASE, 2);
+        arbiter.setListener((previous, current) -> handoffs.add(previous + "->" + current));
+    }
+
+    @Test
+    public void phoneIsSourceUntilWatchHeartbeatsAccumulate() {
+        long now = 1_000_000L;
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.onLiveData("watch", now, now));
+        assertEquals(StepSourceArbiter.Source.WATCH, arbiter.onLiveData("watch", now + 10_000, now + 10_000));
+        assertEquals(1, handoffs.size());
+        assertEquals("PHONE->WATCH", handoffs.get(0));
+    }
+
+    @Test
+    public void staleSnapshotOnAttachIsNotAHeartbeat() {
+        long now = 10_000_000L;
+        arbiter.onLiveData("watch", now - 3_600_000L, now);
+        arbiter.onLiveData("watch", now - 3_600_000L, now + 1_000);
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.getActiveSource());
+        assertTrue(handoffs.isEmpty());
+    }
+
+    @Test
+    public void phoneEchoesDoNotKeepWatchAlive() {
+        long now = 1_000_000L;
+        arbiter.onLiveData("watch", now, now);
+        arbiter.onLiveData("watch", now + 5_000, now + 5_000);
+        for (long t = now + 30_000; t < now + 300_000; t += 30_000) {
+            arbiter.onLiveData("phone", t, t);
+        }
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.getActiveSource());
+        assertEquals(2, handoffs.size());
+        assertEquals("WATCH->PHONE", handoffs.get(1));
+    }
+
+    @Test
+    public void singleMissedHeartbeatDoesNotHandBack() {
+        long now = 1_000_000L;
+        arbiter.onLiveData("watch", now, now);
+        arbiter.onLiveData("watch", now + 10_000, now + 10_000);
+        // 90 s de silence: au-delà de la fraîcheur mais sous le seuil de relâche
+        assertEquals(StepSourceArbiter.Source.WATCH, arbiter.evaluate(now + 100_000));
+        assertEquals(StepSourceArbiter.Source.WATCH, arbiter.onLiveData("watch_background", now + 100_000, now + 100_000));
+        assertEquals(1, handoffs.size());
+    }
+
+    @Test
+    public void silentWatchHandsBackAfterReleaseTimeout() {
+        long now = 1_000_000L;
+        arbiter.onLiveData("watch", now, now);
+        arbiter.onLiveData("watch", now + 10_000, now + 10_000);
+        assertEquals(StepSourceArbiter.Source.WATCH, arbiter.evaluate(now + 10_000 + RELEASE));
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.evaluate(now + 10_001 + RELEASE));
+        // Un seul heartbeat ne suffit pas à reprendre la main
+        arbiter.onLiveData("watch", now + 200_000, now + 200_000);
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.getActiveSource());
+        arbiter.onLiveData("watch", now + 210_000, now + 210_000);
+        assertEquals(StepSourceArbiter.Source.WATCH, arbiter.getActiveSource());
+        assertEquals(3, handoffs.size());
+    }
+
+    @Test
+    public void disconnectHandsBackImmediately() {
+        long now = 1_000_000L;
+        arbiter.onLiveData("watch", now, now);
+        arbiter.onLiveData("watch", now + 10_000, now + 10_000);
+        arbiter.onWatchDisconnected();
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.getActiveSource());
+        assertEquals("WATCH->PHONE", handoffs.get(1));
+    }
+
+    @Test
+    public void duplicateLastUpdateCountsOnce() {
+        long now = 1_000_000L;
+        arbiter.onLiveData("watch", now, now);
+        arbiter.onLiveData("watch", now, now + 1_000);
+        assertEquals(StepSourceArbiter.Source.PHONE, arbiter.getActiveSource());
+    }
+}
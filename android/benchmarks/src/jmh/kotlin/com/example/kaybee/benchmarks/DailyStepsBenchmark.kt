@@ -0,0 +1,41 @@
+package com.example.kaybee.benchmarks
+
+import com.example.kaybee.core.sync.DailyStepBaseline
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/** One TYPE_STEP_COUNTER event as handled by WearPlugin.onSensorChanged. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class DailyStepsBenchmark {
+
+    private lateinit var baseline: DailyStepBaseline
+    private var rawSteps = 0L
+
+    @Setup
+    fun setUp() {
+        baseline = DailyStepBaseline("2024-05-01", 120_000L)
+        rawSteps = 120_000L
+    }
+
+    @Benchmark
+    fun sameDay(): Long {
+        rawSteps++
+        return baseline.stepsFor(rawSteps, "2024-05-01")
+    }
+
+    @Benchmark
+    fun dayRollover(): Long {
+        rawSteps++
+        val steps = baseline.stepsFor(rawSteps, if ((rawSteps and 1L) == 0L) "2024-05-01" else "2024-05-02")
+        baseline.markPersisted()
+        return steps
+    }
+}
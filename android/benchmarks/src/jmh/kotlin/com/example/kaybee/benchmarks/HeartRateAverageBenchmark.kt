@@ -0,0 +1,29 @@
+package com.example.kaybee.benchmarks
+
+import com.example.kaybee.core.sync.HeartRateAverage
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/** Average of the last 50 fitness_history/heart_rate values, as in FitnessRepository. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class HeartRateAverageBenchmark {
+
+    private lateinit var values: List<Any?>
+
+    @Setup
+    fun setUp() {
+        // RTDB renvoie des Long, parfois des Double
+        values = List(50) { i -> if (i % 10 == 0) 70.5 + i else (60L + i) }
+    }
+
+    @Benchmark
+    fun average(): Int? = HeartRateAverage.of(values)
+}
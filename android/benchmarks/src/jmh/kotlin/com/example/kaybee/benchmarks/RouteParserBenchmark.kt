@@ -0,0 +1,49 @@
+package com.example.kaybee.benchmarks
+
+import com.example.kaybee.core.sync.RouteParser
+import com.example.kaybee.core.sync.RoutePoint
+import org.json.JSONArray
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/** Parsing of the route passed to writeRunToHealthConnect (one GPS point per second). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class RouteParserBenchmark {
+
+    @Param("600", "3600")
+    @JvmField
+    var points = 0
+
+    private lateinit var json: String
+    private lateinit var route: JSONArray
+
+    @Setup
+    fun setUp() {
+        route = JSONArray()
+        for (i in 0 until points) {
+            route.put(JSONObject()
+                .put("timestamp", 1_714_560_000_000L + i * 1_000L)
+                .put("lat", 48.8566 + i * 1e-5)
+                .put("lng", 2.3522 + i * 1e-5)
+                .put("altitude", if (i % 30 == 0) JSONObject.NULL else 35.0 + i % 7))
+        }
+        json = route.toString()
+    }
+
+    @Benchmark
+    fun parse(): List<RoutePoint> = RouteParser.parse(route)
+
+    /** Including the bridge side: the JS array arrives as a string. */
+    @Benchmark
+    fun parseFromString(): List<RoutePoint> = RouteParser.parse(JSONArray(json))
+}
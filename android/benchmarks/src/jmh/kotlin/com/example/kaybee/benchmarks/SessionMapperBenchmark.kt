@@ -0,0 +1,53 @@
+package com.example.kaybee.benchmarks
+
+import com.example.kaybee.core.sync.SessionData
+import com.example.kaybee.core.sync.SessionMapper
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * live_data/session -> SessionData, run by the watch on every snapshot of users/{uid}.
+ * The session is built as DataSnapshot.getValue() returns it (Lists for array-like nodes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class SessionMapperBenchmark {
+
+    @Param("2", "6")
+    @JvmField
+    var groups = 0
+
+    private lateinit var session: Map<String, Any?>
+
+    @Setup
+    fun setUp() {
+        val logs = HashMap<String, Any?>()
+        val groupList = List(groups) { g ->
+            val exercises = List(3) { e ->
+                for (s in 0 until 4) {
+                    if ((g + e + s) % 2 == 0) logs["$g-$e-$s"] = mapOf("done" to true, "weight" to 42.5, "reps" to 8L, "timestamp" to 1_714_560_000_000L)
+                }
+                mapOf("name" to "Exercice $g.$e", "reps" to 10L, "weight" to 40L)
+            }
+            mapOf("setType" to if (g % 2 == 0) "superset" else "straight", "sets" to 4L, "rest" to 90L, "exercises" to exercises)
+        }
+        session = mapOf(
+            "active" to true,
+            "workoutName" to "Push",
+            "elapsedSeconds" to 1_260L,
+            "groups" to groupList,
+            "logs" to logs
+        )
+    }
+
+    @Benchmark
+    fun map(): SessionData? = SessionMapper.map(session)
+}
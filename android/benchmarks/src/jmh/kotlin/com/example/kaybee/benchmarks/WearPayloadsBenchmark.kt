@@ -0,0 +1,37 @@
+package com.example.kaybee.benchmarks
+
+import com.example.kaybee.core.sync.WearPayloads
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/** Encode/decode of the /pair and /health-data Wearable messages. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class WearPayloadsBenchmark {
+
+    private val health = WearPayloads.HealthData(steps = 8_432L, heartRate = 72, timestamp = 1_714_560_000_000L)
+    private lateinit var healthBytes: ByteArray
+    private lateinit var pairBytes: ByteArray
+
+    @Setup
+    fun setUp() {
+        healthBytes = WearPayloads.encodeHealthData(health)
+        pairBytes = WearPayloads.encodePair("uTq3kV9x2LbQm7RzP0aWc4Ns8Yd1")
+    }
+
+    @Benchmark
+    fun encodeHealthData(): ByteArray = WearPayloads.encodeHealthData(health)
+
+    @Benchmark
+    fun decodeHealthData(): WearPayloads.HealthData? = WearPayloads.decodeHealthData(healthBytes, 0L)
+
+    @Benchmark
+    fun decodePair(): String? = WearPayloads.decodePair(pairBytes)
+}
@@ -0,0 +1,11 @@
+package com.example.kaybee.core
+
+/** Wall-clock time in epoch milliseconds; replaced by a manual clock in tests (core test fixtures). */
+fun interface Clock {
+    fun now(): Long
+
+    companion object {
+        @JvmField
+        val SYSTEM: Clock = Clock { System.currentTimeMillis() }
+    }
+}
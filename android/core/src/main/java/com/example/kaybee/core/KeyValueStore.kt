@@ -0,0 +1,10 @@
+package com.example.kaybee.core
+
+/** Small persistent settings store (SharedPreferences on Android). */
+interface KeyValueStore {
+    fun getString(key: String, default: String): String
+    fun getLong(key: String, default: Long): Long
+
+    /** Persists all [values] (String, Long or Boolean) in one edit. */
+    fun put(values: Map<String, Any>)
+}
@@ -0,0 +1,29 @@
+package com.example.kaybee.core
+
+import java.time.Instant
+import java.time.ZoneId
+
+/**
+ * Today's date as yyyy-MM-dd, formatted once per day instead of once per sensor event.
+ * The zone is read again only when the cached day is over.
+ */
+class LocalDateCache @JvmOverloads constructor(
+    private val clock: Clock,
+    private val zone: () -> ZoneId = { ZoneId.systemDefault() }
+) {
+    private var dayStart = Long.MAX_VALUE
+    private var dayEnd = Long.MIN_VALUE
+    private var date = ""
+
+    fun today(): String {
+        val now = clock.now()
+        if (now < dayStart || now >= dayEnd) {
+            val zoneId = zone()
+            val day = Instant.ofEpochMilli(now).atZone(zoneId).toLocalDate()
+            dayStart = day.atStartOfDay(zoneId).toInstant().toEpochMilli()
+            dayEnd = day.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli()
+            date = day.toString()
+        }
+        return date
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.kaybee.core
+
+/** Destination of live_data field updates (an RTDB updateChildren on Android). */
+fun interface Sink {
+    fun update(fields: Map<String, Any>)
+}
@@ -0,0 +1,6 @@
+package com.example.kaybee.core
+
+/** Fire-and-forget messages to the paired device(s) (Wearable MessageClient on Android). */
+fun interface Transport {
+    fun send(path: String, payload: ByteArray)
+}
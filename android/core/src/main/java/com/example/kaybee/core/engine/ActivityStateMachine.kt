@@ -0,0 +1,105 @@
+package com.example.kaybee.core.engine
+
+/** Ordered by energy: a state may only go up after [ActivityStateMachine.enterDwellMs], down after exitDwellMs. */
+enum class ActivityState { IDLE, WALKING, TRAINING, RUNNING }
+
+/**
+ * Sensor and publish rates for one [ActivityState]. Periods and latencies are in µs, as
+ * SensorManager expects them; [livePublishMs] is the live_data interval.
+ */
+data class SamplingProfile(
+    val accelPeriodUs: Int,
+    val batchLatencyUs: Int,
+    val livePublishMs: Long
+) {
+    companion object {
+        @JvmField
+        val BY_STATE: Map<ActivityState, SamplingProfile> = mapOf(
+            // Poignet au repos: 1 Hz, réveils groupés toutes les 10 s
+            ActivityState.IDLE to SamplingProfile(1_000_000, 10_000_000, 5_000L),
+            ActivityState.WALKING to SamplingProfile(200_000, 2_000_000, 2_000L),
+            // Séance de muscu: pas de regroupement, FC et pas arrivent sans délai
+            ActivityState.TRAINING to SamplingProfile(66_667, 0, 1_000L),
+            ActivityState.RUNNING to SamplingProfile(200_000, 1_000_000, 1_000L)
+        )
+
+        @JvmStatic
+        fun of(state: ActivityState): SamplingProfile = BY_STATE.getValue(state)
+    }
+}
+
+/**
+ * Classifies the wearer's activity from step cadence, heart rate and whether a workout is
+ * running, with hysteresis so that a pause at a red light does not drop the sampling rate.
+ * Timestamps must share one time base (elapsed realtime on the watch). Not thread-safe.
+ */
+class ActivityStateMachine(
+    private val windowMs: Long = 30_000L,
+    val enterDwellMs: Long = 10_000L,
+    val exitDwellMs: Long = 60_000L,
+    private val onChange: (previous: ActivityState, current: ActivityState) -> Unit = { _, _ -> }
+) {
+    var state = ActivityState.IDLE
+        private set
+
+    private val steps = ArrayDeque<Long>()
+    private var heartRate = 0
+    private var heartRateAt = Long.MIN_VALUE / 2
+    private var workoutActive = false
+    private var candidate = ActivityState.IDLE
+    private var candidateSince = 0L
+
+    fun onStep(timestamp: Long) {
+        steps.addLast(timestamp)
+        evaluate(timestamp)
+    }
+
+    fun onHeartRate(bpm: Int, timestamp: Long) {
+        heartRate = bpm
+        heartRateAt = timestamp
+        evaluate(timestamp)
+    }
+
+    fun setWorkoutActive(active: Boolean, now: Long) {
+        workoutActive = active
+        evaluate(now)
+    }
+
+    /** Steps per minute over the last window. */
+    fun cadence(now: Long): Int {
+        while (steps.isNotEmpty() && steps.first() <= now - windowMs) steps.removeFirst()
+        return (steps.size * 60_000L / windowMs).toInt()
+    }
+
+    fun evaluate(now: Long): ActivityState {
+        val next = classify(cadence(now), if (now - heartRateAt <= windowMs) heartRate else 0)
+        if (next != candidate) {
+            candidate = next
+            candidateSince = now
+        }
+        val dwell = if (candidate > state) enterDwellMs else exitDwellMs
+        if (candidate != state && now - candidateSince >= dwell) {
+            val previous = state
+            state = candidate
+            onChange(previous, state)
+        }
+        return state
+    }
+
+    private fun classify(cadence: Int, bpm: Int): ActivityState = when {
+        cadence >= RUNNING_CADENCE || (cadence >= BRISK_CADENCE && bpm >= RUNNING_BPM) -> ActivityState.RUNNING
+        // FC haute sans pas: séance de renfo; en marchant, c'est juste une côte
+        workoutActive || (bpm >= TRAINING_BPM && cadence < STILL_CADENCE) -> ActivityState.TRAINING
+        cadence >= WALKING_CADENCE -> ActivityState.WALKING
+        else -> ActivityState.IDLE
+    }
+
+    companion object {
+        const val STILL_CADENCE = 10
+        const val WALKING_CADENCE = 40
+        const val BRISK_CADENCE = 120
+        const val RUNNING_CADENCE = 140
+        const val RUNNING_BPM = 140
+        const val TRAINING_BPM = 110
+    }
+}
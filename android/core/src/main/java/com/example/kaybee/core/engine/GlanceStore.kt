@@ -0,0 +1,96 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.KeyValueStore
+import kotlin.math.abs
+
+/** Latest values shown outside the app: tile and complications. [heartRateAt] tells a stale BPM apart. */
+data class Glance(val steps: Long = 0L, val heartRate: Int = 0, val updatedAt: Long = 0L, val heartRateAt: Long = 0L)
+
+/**
+ * Latest [Glance], readable synchronously without Firebase. Every sample updates the value in
+ * memory; it is persisted, and the surfaces asked to refresh, only once steps or heart rate
+ * moved by their threshold since the last refresh. The values belong to the paired uid and
+ * are reset by [switchUser]. Thread-safe.
+ */
+class GlanceStore(
+    private val store: KeyValueStore,
+    private val stepThreshold: Long = STEP_THRESHOLD,
+    private val heartRateThreshold: Int = HEART_RATE_THRESHOLD
+) {
+    @Volatile
+    private var glance: Glance? = null
+    private var published = Glance()
+    private var owner = ""
+
+    fun current(): Glance = glance ?: load()
+
+    /**
+     * Null values keep the previous ones.
+     * @return true when the surfaces should be refreshed.
+     */
+    @Synchronized
+    fun publish(steps: Long?, heartRate: Int?, now: Long): Boolean {
+        val previous = current()
+        val next = Glance(steps ?: previous.steps, heartRate ?: previous.heartRate, now, if (heartRate != null) now else previous.heartRateAt)
+        glance = next
+        if (abs(next.steps - published.steps) < stepThreshold && abs(next.heartRate - published.heartRate) < heartRateThreshold) {
+            return false
+        }
+        published = next
+        store.put(mapOf(
+            KEY_STEPS to next.steps,
+            KEY_HEART_RATE to next.heartRate.toLong(),
+            KEY_UPDATED_AT to now,
+            KEY_HEART_RATE_AT to next.heartRateAt
+        ))
+        return true
+    }
+
+    /**
+     * Resets the glance unless it belongs to [uid], e.g. when the watch is paired with
+     * another account.
+     * @return true when the surfaces should be refreshed.
+     */
+    @Synchronized
+    fun switchUser(uid: String): Boolean {
+        current()
+        if (uid == owner) return false
+        val cleared = Glance()
+        store.put(mapOf(
+            KEY_UID to uid,
+            KEY_STEPS to cleared.steps,
+            KEY_HEART_RATE to cleared.heartRate.toLong(),
+            KEY_UPDATED_AT to cleared.updatedAt,
+            KEY_HEART_RATE_AT to cleared.heartRateAt
+        ))
+        owner = uid
+        published = cleared
+        glance = cleared
+        return true
+    }
+
+    @Synchronized
+    private fun load(): Glance {
+        glance?.let { return it }
+        val loaded = Glance(
+            store.getLong(KEY_STEPS, 0L),
+            store.getLong(KEY_HEART_RATE, 0L).toInt(),
+            store.getLong(KEY_UPDATED_AT, 0L),
+            store.getLong(KEY_HEART_RATE_AT, 0L)
+        )
+        owner = store.getString(KEY_UID, "")
+        published = loaded
+        glance = loaded
+        return loaded
+    }
+
+    companion object {
+        const val STEP_THRESHOLD = 100L
+        const val HEART_RATE_THRESHOLD = 5
+        const val KEY_UID = "glance_uid"
+        const val KEY_STEPS = "glance_steps"
+        const val KEY_HEART_RATE = "glance_heart_rate"
+        const val KEY_UPDATED_AT = "glance_updated_at"
+        const val KEY_HEART_RATE_AT = "glance_heart_rate_at"
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.kaybee.core.engine
+
+/**
+ * Watch heart-rate pipeline: drops sensor glitches, keeps a rolling average over the last
+ * [windowSize] samples and hands live_data fields to [scheduler].
+ * [serverTimestamp] (Firebase's ServerValue.TIMESTAMP) is written as `timestamp` when set,
+ * the sample time otherwise.
+ */
+class HeartRateEngine @JvmOverloads constructor(
+    private val scheduler: SyncScheduler,
+    private val windowSize: Int = 50,
+    private val source: String = "watch",
+    private val serverTimestamp: Any? = null
+) {
+    private val window = ArrayDeque<Int>(windowSize)
+    private var windowSum = 0L
+
+    var lastBpm = 0
+        private set
+
+    @get:Synchronized
+    val average: Int?
+        get() = if (window.isEmpty()) null else (windowSum / window.size).toInt()
+
+    /**
+     * [extra] fields (e.g. a trace) go out in the same update as the sample.
+     * @return the delay returned by [SyncScheduler.offer]; -1 as well for a rejected sample.
+     */
+    @Synchronized
+    @JvmOverloads
+    fun onSample(bpm: Int, timestamp: Long, extra: Map<String, Any> = emptyMap()): Long {
+        if (bpm !in VALID_BPM) return -1
+        lastBpm = bpm
+        window.addLast(bpm)
+        windowSum += bpm
+        if (window.size > windowSize) windowSum -= window.removeFirst()
+        return scheduler.offer(mapOf("heart_rate" to bpm, "source" to source, "timestamp" to (serverTimestamp ?: timestamp)) + extra)
+    }
+
+    companion object {
+        /** 0 is what the sensors report while searching; above 250 is noise. */
+        val VALID_BPM = 25..250
+    }
+}
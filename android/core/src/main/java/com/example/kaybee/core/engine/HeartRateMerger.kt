@@ -0,0 +1,102 @@
+package com.example.kaybee.core.engine
+
+import java.util.TreeMap
+import java.util.TreeSet
+
+/** Watch heart-rate producers, from the least to the most trusted. */
+enum class HeartRateSource { PASSIVE, SENSOR, MEASURE }
+
+/** [timestamp] is the measurement time in epoch ms, not the arrival time. */
+data class HeartRateSample(val bpm: Int, val timestamp: Long, val source: HeartRateSource)
+
+/**
+ * Merges the watch heart-rate streams (MeasureClient, raw sensor, passive batches) into one
+ * canonical stream: at most one sample per [windowMs] bucket, taken from the most trusted
+ * source of the bucket (the latest one on a tie), emitted in timestamp order once the bucket
+ * is [latenessMs] old, so the output never goes back in time.
+ *
+ * A sample arriving after its bucket became final (a passive batch delivered minutes late)
+ * stays out of that live stream: it is kept for [takeBackfill], the history only, unless
+ * its bucket was already emitted or backfilled within the last [historyMs]. Not thread-safe.
+ */
+class HeartRateMerger(
+    private val windowMs: Long = 1_000L,
+    private val latenessMs: Long = 3_000L,
+    private val historyMs: Long = 15 * 60_000L
+) {
+    private val pending = TreeMap<Long, HeartRateSample>()
+    private var nextBucket = Long.MIN_VALUE
+    // Seaux déjà écrits dans l'historique (émis ou rattrapés), sur historyMs
+    private val final = TreeSet<Long>()
+    private val backfill = ArrayList<HeartRateSample>()
+
+    /** Samples replaced by, or losing to, another one of the same bucket. */
+    var duplicates = 0L
+        private set
+    /** Samples arriving after their bucket became final, kept out of the live stream. */
+    var late = 0L
+        private set
+    /** Late samples handed to [takeBackfill]. */
+    var backfilled = 0L
+        private set
+    var emitted = 0L
+        private set
+
+    /** @return the samples that became final at [now], in timestamp order. */
+    fun offer(sample: HeartRateSample, now: Long): List<HeartRateSample> {
+        // Seaux échus d'abord: un échantillon dont le seau est déjà final n'entre plus dans pending
+        val out = advance(now)
+        if (sample.bpm in HeartRateEngine.VALID_BPM) add(sample, now)
+        final.headSet(Math.floorDiv(now - historyMs, windowMs)).clear()
+        return out
+    }
+
+    fun advance(now: Long): List<HeartRateSample> {
+        val out = ArrayList<HeartRateSample>()
+        while (pending.isNotEmpty() && deadlineOf(pending.firstKey()) <= now) {
+            val entry = pending.pollFirstEntry()
+            out += entry.value
+            nextBucket = entry.key + 1
+            final += entry.key
+        }
+        emitted += out.size
+        return out
+    }
+
+    /** Late samples to append to the history only, in arrival order; cleared by the call. */
+    fun takeBackfill(): List<HeartRateSample> {
+        if (backfill.isEmpty()) return emptyList()
+        val out = ArrayList(backfill)
+        backfill.clear()
+        return out
+    }
+
+    /** Emits everything pending, e.g. when monitoring stops. */
+    fun flush(): List<HeartRateSample> = advance(Long.MAX_VALUE)
+
+    /** When [advance] has something to emit, or -1 when nothing is pending. */
+    fun nextDeadline(): Long = if (pending.isEmpty()) -1L else deadlineOf(pending.firstKey())
+
+    private fun add(sample: HeartRateSample, now: Long) {
+        val bucket = Math.floorDiv(sample.timestamp, windowMs)
+        if (bucket < nextBucket || deadlineOf(bucket) <= now) {
+            late++
+            if (final.add(bucket)) {
+                backfill += sample
+                backfilled++
+            }
+            return
+        }
+        val current = pending[bucket]
+        if (current != null) {
+            duplicates++
+            if (!isBetter(sample, current)) return
+        }
+        pending[bucket] = sample
+    }
+
+    private fun isBetter(a: HeartRateSample, b: HeartRateSample): Boolean =
+        a.source > b.source || (a.source == b.source && a.timestamp > b.timestamp)
+
+    private fun deadlineOf(bucket: Long): Long = (bucket + 1) * windowMs + latenessMs
+}
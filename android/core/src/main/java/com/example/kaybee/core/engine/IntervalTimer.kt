@@ -0,0 +1,83 @@
+package com.example.kaybee.core.engine
+
+/** One step of a timer program; [label] is shown while it runs. */
+data class TimerInterval(val label: String, val durationMs: Long)
+
+/**
+ * Rest/interval timer driven by deadlines on a monotonic clock (elapsedRealtime on the watch).
+ * The whole state is the program and its start time: interval i ends at [startedAt] plus the
+ * durations up to i, so a late wake never shifts the following intervals. The owner schedules
+ * one wake at each deadline returned by [start] and [onWake]; nothing ticks in between.
+ * Not thread-safe.
+ */
+class IntervalTimer(
+    private val onIntervalEnd: (index: Int, last: Boolean) -> Unit = { _, _ -> }
+) {
+    var program: List<TimerInterval> = emptyList()
+        private set
+    var startedAt = 0L
+        private set
+    /** Intervals whose end has been reported. */
+    var ended = 0
+        private set
+
+    val running: Boolean
+        get() = ended < program.size
+
+    /** @return the first deadline, or [NONE] for an empty program. */
+    fun start(program: List<TimerInterval>, now: Long): Long {
+        restore(program, now, 0)
+        return nextDeadline()
+    }
+
+    /** Resumes a persisted timer, e.g. when the alarm fires in a fresh process. */
+    fun restore(program: List<TimerInterval>, startedAt: Long, ended: Int) {
+        this.program = program
+        this.startedAt = startedAt
+        this.ended = ended.coerceIn(0, program.size)
+    }
+
+    fun cancel() {
+        program = emptyList()
+        ended = 0
+    }
+
+    fun deadlineOf(index: Int): Long = startedAt + program.take(index + 1).sumOf { it.durationMs }
+
+    /** Deadline of the running interval, or [NONE]. */
+    fun nextDeadline(): Long = if (running) deadlineOf(ended) else NONE
+
+    fun current(): TimerInterval? = program.getOrNull(ended)
+
+    fun remainingMs(now: Long): Long = if (running) (nextDeadline() - now).coerceAtLeast(0L) else 0L
+
+    /**
+     * Reports every interval that ended by [now], once each, even after a late wake.
+     * @return the next deadline to wake at, or [NONE] when the program is over.
+     */
+    fun onWake(now: Long): Long {
+        while (running && deadlineOf(ended) <= now) {
+            ended++
+            onIntervalEnd(ended - 1, ended == program.size)
+        }
+        return nextDeadline()
+    }
+
+    companion object {
+        const val NONE = -1L
+
+        @JvmStatic
+        fun rest(seconds: Int): List<TimerInterval> = listOf(TimerInterval("Repos", seconds * 1_000L))
+
+        /** Every minute on the minute: one interval per round. */
+        @JvmStatic
+        fun emom(rounds: Int, periodMs: Long = 60_000L): List<TimerInterval> =
+            List(rounds) { TimerInterval("Minute ${it + 1}", periodMs) }
+
+        /** Work/rest alternation, e.g. a superset done for time; the last rest is dropped. */
+        @JvmStatic
+        fun rounds(rounds: Int, workMs: Long, restMs: Long): List<TimerInterval> =
+            List(rounds) { listOf(TimerInterval("Effort ${it + 1}", workMs), TimerInterval("Repos", restMs)) }
+                .flatten().dropLast(1)
+    }
+}
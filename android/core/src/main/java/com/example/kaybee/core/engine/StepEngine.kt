@@ -0,0 +1,59 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.KeyValueStore
+import com.example.kaybee.core.LocalDateCache
+import com.example.kaybee.core.sync.DailyStepBaseline
+import java.time.ZoneId
+
+/**
+ * Phone step pipeline: raw TYPE_STEP_COUNTER values -> today's steps, with the daily
+ * baseline persisted in [store] -> live_data fields, skipping writes that would not
+ * change what live_data already holds.
+ */
+class StepEngine @JvmOverloads constructor(
+    private val store: KeyValueStore,
+    private val clock: Clock,
+    private val source: String = "phone",
+    zone: () -> ZoneId = { ZoneId.systemDefault() }
+) {
+    private val dates = LocalDateCache(clock, zone)
+    private val baseline = DailyStepBaseline(
+        store.getString(KEY_DATE, ""),
+        store.getLong(KEY_OFFSET, DailyStepBaseline.NO_OFFSET)
+    )
+    private var syncedDate: String? = null
+    private var syncedSteps = 0L
+
+    fun today(): String = dates.today()
+
+    /** Handles one step-counter event and returns today's steps. */
+    fun onStepCounter(rawSteps: Long): Long {
+        val steps = baseline.stepsFor(rawSteps, dates.today())
+        if (baseline.isDirty) {
+            store.put(mapOf(KEY_DATE to baseline.date, KEY_OFFSET to baseline.offset))
+            baseline.markPersisted()
+        }
+        return steps
+    }
+
+    /** What live_data currently holds (from the RTDB listener), so that stale writes are skipped. */
+    fun onRemoteSteps(date: String?, steps: Long?) {
+        syncedDate = date
+        if (steps != null) syncedSteps = steps
+    }
+
+    /** live_data fields to write for [steps], or null when live_data is already up to date. */
+    fun syncUpdate(steps: Long): Map<String, Any>? {
+        val today = dates.today()
+        if (today == syncedDate && steps <= syncedSteps && syncedSteps > 0) return null
+        syncedDate = today
+        syncedSteps = steps
+        return linkedMapOf("steps" to steps, "source" to source, "date" to today, "last_update" to clock.now())
+    }
+
+    companion object {
+        const val KEY_OFFSET = "day_offset_steps"
+        const val KEY_DATE = "last_step_date"
+    }
+}
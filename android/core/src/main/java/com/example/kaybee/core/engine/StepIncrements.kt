@@ -0,0 +1,21 @@
+package com.example.kaybee.core.engine
+
+/**
+ * Turns a running step total into increments for the local history, where the sum of a
+ * bucket is the number of steps taken in it. A total going backwards (new day, counter
+ * reset) restarts from zero.
+ */
+class StepIncrements {
+    private var last = -1L
+
+    /** Steps taken since the previous total; 0 for the first one. */
+    fun next(total: Long): Long {
+        val increment = when {
+            last < 0 -> 0
+            total < last -> total
+            else -> total - last
+        }
+        last = total
+        return increment
+    }
+}
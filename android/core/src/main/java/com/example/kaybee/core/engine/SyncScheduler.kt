@@ -0,0 +1,63 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.Sink
+
+/**
+ * Rate-limits writes to a [Sink]: at most one write per [minIntervalMs]. Fields offered in
+ * between are merged (last value wins) and written together once the interval is over,
+ * so the latest value is never dropped. Thread-safe.
+ *
+ * The owner does the actual waiting: when [offer] returns a delay, it calls [flush] after it.
+ */
+class SyncScheduler(
+    private val sink: Sink,
+    private val clock: Clock,
+    minIntervalMs: Long
+) {
+    /** May be changed at any time; a pending flush keeps the delay it was given. */
+    @get:Synchronized
+    @set:Synchronized
+    var minIntervalMs: Long = minIntervalMs
+
+    private val pending = LinkedHashMap<String, Any>()
+    private var lastWriteAt = Long.MIN_VALUE / 2
+    private var flushScheduled = false
+
+    var offered = 0L
+        private set
+    var writes = 0L
+        private set
+
+    /**
+     * Writes [fields] now if the interval is over, otherwise merges them into the pending write.
+     * @return the delay after which [flush] must be called, or -1 if there is nothing to schedule.
+     */
+    @Synchronized
+    fun offer(fields: Map<String, Any>): Long {
+        offered++
+        pending.putAll(fields)
+        if (flushScheduled) return -1
+        val wait = lastWriteAt + minIntervalMs - clock.now()
+        if (wait <= 0) {
+            writePending()
+            return -1
+        }
+        flushScheduled = true
+        return wait
+    }
+
+    @Synchronized
+    fun flush() {
+        flushScheduled = false
+        if (pending.isNotEmpty()) writePending()
+    }
+
+    private fun writePending() {
+        val fields = HashMap(pending)
+        pending.clear()
+        lastWriteAt = clock.now()
+        writes++
+        sink.update(fields)
+    }
+}
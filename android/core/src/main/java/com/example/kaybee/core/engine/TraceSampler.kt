@@ -0,0 +1,14 @@
+package com.example.kaybee.core.engine
+
+import java.util.Random
+
+/** Picks a [rate] fraction of the events to trace, each with a random hex id. */
+class TraceSampler @JvmOverloads constructor(
+    private val rate: Double,
+    private val random: Random = Random()
+) {
+    /** @return a new trace id for a sampled event, null otherwise. */
+    @Synchronized
+    fun next(): String? =
+        if (rate > 0 && random.nextDouble() < rate) java.lang.Long.toHexString(random.nextLong()) else null
+}
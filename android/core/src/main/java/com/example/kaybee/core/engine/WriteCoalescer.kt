@@ -0,0 +1,86 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.Sink
+
+/**
+ * Merges the updates of several writers into one multi-path update per tick. Keys are paths
+ * under the sink's node ("users/u/live_data/steps"); a path offered again takes the new value
+ * and moves to the end, so the update lists its paths by last writer. Thread-safe.
+ *
+ * The first offer of a tick calls [schedule] with [tickMs]; the owner calls [flush] after that
+ * delay. Urgent offers (user-visible actions) are written at once, with everything pending.
+ */
+class WriteCoalescer(
+    private val sink: Sink,
+    private val tickMs: Long,
+    private val schedule: (delayMs: Long) -> Unit
+) {
+    private val pending = LinkedHashMap<String, Any>()
+    private var flushScheduled = false
+
+    /** Updates offered: without coalescing, each one was its own updateChildren. */
+    var calls = 0L
+        private set
+    var fieldsOffered = 0L
+        private set
+    var writes = 0L
+        private set
+    var fieldsWritten = 0L
+        private set
+
+    fun offer(updates: Map<String, Any>, urgent: Boolean = false) {
+        var delay = -1L
+        synchronized(this) {
+            calls++
+            fieldsOffered += updates.size
+            for ((path, value) in updates) put(path, value)
+            if (urgent) {
+                writePending()
+            } else if (!flushScheduled && pending.isNotEmpty()) {
+                flushScheduled = true
+                delay = tickMs
+            }
+        }
+        if (delay > 0) schedule(delay)
+    }
+
+    @Synchronized
+    fun flush() {
+        flushScheduled = false
+        writePending()
+    }
+
+    /** [Sink] writing [fields] under [prefix], e.g. for a [SyncScheduler] of one live_data node. */
+    fun at(prefix: String): Sink = Sink { fields -> offer(fields.mapKeys { "$prefix/${it.key}" }) }
+
+    /** Before/after coalescing; `amplification` = writes_before / writes_after. */
+    @Synchronized
+    fun stats(): Map<String, Any> = linkedMapOf(
+        "writes_before" to calls,
+        "writes_after" to writes,
+        "fields_before" to fieldsOffered,
+        "fields_after" to fieldsWritten,
+        "amplification" to if (writes > 0) calls.toDouble() / writes else 0.0
+    )
+
+    private fun put(path: String, value: Any) {
+        // RTDB refuse un update où un chemin est l'ancêtre d'un autre
+        if (pending.keys.any { path.startsWith("$it/") }) writePending()
+        pending.keys.removeAll { it.startsWith("$path/") }
+        pending.remove(path)
+        pending[path] = value
+    }
+
+    private fun writePending() {
+        if (pending.isEmpty()) return
+        val fields = LinkedHashMap(pending)
+        pending.clear()
+        writes++
+        fieldsWritten += fields.size
+        sink.update(fields)
+    }
+
+    companion object {
+        const val TICK_MS = 200L
+    }
+}
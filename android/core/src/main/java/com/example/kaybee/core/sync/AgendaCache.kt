@@ -0,0 +1,115 @@
+package com.example.kaybee.core.sync
+
+import com.example.kaybee.core.KeyValueStore
+import java.time.DayOfWeek
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+data class ScheduleDay(val day: String, val workout: String)
+
+/**
+ * Persisted copy of users/{uid}/schedule, so that the agenda screen, the tile and the
+ * complication can read it synchronously without Firebase. The cached agenda belongs to one
+ * uid: pairing another account drops it. [update] only persists the branch when its encoded
+ * content changed; entries written with another [FORMAT] are ignored. Thread-safe.
+ */
+class AgendaCache(private val store: KeyValueStore) {
+
+    @Volatile
+    private var days: List<ScheduleDay>? = null
+    private var owner = ""
+    private var encoded = ""
+
+    /** Cached agenda, loaded from the store on first use; empty when nothing was cached. */
+    fun days(): List<ScheduleDay> = days ?: load()
+
+    /**
+     * [schedule] of [uid] as `DataSnapshot.getValue()` returns it.
+     * @return true when the cached agenda changed.
+     */
+    @Synchronized
+    fun update(uid: String, schedule: Any?): Boolean {
+        days()
+        val parsed = (schedule as? Map<*, *>)?.let { map(it) }.orEmpty()
+        // Agenda vide côté serveur: on garde le dernier connu, s'il est du même compte
+        if (parsed.isEmpty()) return switchUser(uid)
+        val json = encode(parsed)
+        if (uid == owner && json == encoded) return false
+        store.put(mapOf(KEY_FORMAT to FORMAT, KEY_UID to uid, KEY_DAYS to json))
+        owner = uid
+        encoded = json
+        days = parsed
+        return true
+    }
+
+    /**
+     * Drops the cached agenda unless it belongs to [uid], e.g. when the watch is paired
+     * with another account.
+     * @return true when the cached agenda changed.
+     */
+    @Synchronized
+    fun switchUser(uid: String): Boolean {
+        val previous = days()
+        if (uid == owner) return false
+        store.put(mapOf(KEY_FORMAT to FORMAT, KEY_UID to uid, KEY_DAYS to ""))
+        owner = uid
+        encoded = ""
+        days = emptyList()
+        return previous.isNotEmpty()
+    }
+
+    @Synchronized
+    private fun load(): List<ScheduleDay> {
+        days?.let { return it }
+        if (store.getLong(KEY_FORMAT, 0L) == FORMAT) {
+            owner = store.getString(KEY_UID, "")
+            encoded = store.getString(KEY_DAYS, "")
+        }
+        val loaded = if (encoded.isEmpty()) emptyList() else decode(encoded)
+        days = loaded
+        return loaded
+    }
+
+    companion object {
+        // 2: agenda rattaché à un uid; les entrées sans propriétaire sont ignorées
+        const val FORMAT = 2L
+        const val KEY_FORMAT = "agenda_format"
+        const val KEY_UID = "agenda_uid"
+        const val KEY_DAYS = "agenda_days"
+
+        /** Days in RTDB key order, like `snapshot.children`. */
+        @JvmStatic
+        fun map(schedule: Map<*, *>): List<ScheduleDay> =
+            schedule.entries.sortedWith(SessionMapper.KEY_ORDER).map { (day, value) ->
+                ScheduleDay(day.toString(), (value as? Map<*, *>)?.get("workout") as? String ?: REST)
+            }
+
+        private val WEEK = listOf("lundi", "mardi", "mercredi", "jeudi", "vendredi", "samedi", "dimanche")
+
+        /** First day with a workout from [today] on, over one week; null when the week is all rest. */
+        @JvmStatic
+        fun next(days: List<ScheduleDay>, today: DayOfWeek): ScheduleDay? {
+            val byName = days.associateBy { it.day.lowercase() }
+            return (0 until 7).asSequence()
+                .mapNotNull { byName[WEEK[(today.value - 1 + it) % 7]] }
+                .firstOrNull { it.workout != REST }
+        }
+
+        private const val REST = "Repos"
+
+        private fun encode(days: List<ScheduleDay>): String = JSONArray().apply {
+            days.forEach { put(JSONObject().put("day", it.day).put("workout", it.workout)) }
+        }.toString()
+
+        private fun decode(json: String): List<ScheduleDay> = try {
+            val array = JSONArray(json)
+            List(array.length()) { i ->
+                val item = array.getJSONObject(i)
+                ScheduleDay(item.getString("day"), item.getString("workout"))
+            }
+        } catch (e: JSONException) {
+            emptyList()
+        }
+    }
+}
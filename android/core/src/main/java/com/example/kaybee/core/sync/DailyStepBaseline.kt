@@ -0,0 +1,41 @@
+package com.example.kaybee.core.sync
+
+/**
+ * Turns the cumulative TYPE_STEP_COUNTER value into today's steps. The baseline is the raw
+ * counter seen at the first event of the day, or after a reboot reset the counter.
+ *
+ * Pure state so that it can be benchmarked off-device; the caller persists [date] and
+ * [offset] whenever [isDirty] is set.
+ */
+class DailyStepBaseline(date: String = "", offset: Long = NO_OFFSET) {
+    var date: String = date
+        private set
+    var offset: Long = offset
+        private set
+    var isDirty = false
+        private set
+
+    /** Today's steps for [rawSteps]; [today] is the local date (yyyy-MM-dd). */
+    fun stepsFor(rawSteps: Long, today: String): Long {
+        if (today != date || offset == NO_OFFSET) {
+            date = today
+            offset = rawSteps
+            isDirty = true
+            return 0
+        }
+        if (rawSteps < offset) {
+            offset = rawSteps
+            isDirty = true
+            return 0
+        }
+        return rawSteps - offset
+    }
+
+    fun markPersisted() {
+        isDirty = false
+    }
+
+    companion object {
+        const val NO_OFFSET = -1L
+    }
+}
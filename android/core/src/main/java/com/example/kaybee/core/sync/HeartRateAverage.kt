@@ -0,0 +1,18 @@
+package com.example.kaybee.core.sync
+
+object HeartRateAverage {
+
+    /** Integer mean of the numeric [values] (non-numbers are skipped), or null if there is none. */
+    @JvmStatic
+    fun of(values: Iterable<Any?>): Int? {
+        var sum = 0L
+        var count = 0
+        for (value in values) {
+            if (value is Number) {
+                sum += value.toInt()
+                count++
+            }
+        }
+        return if (count > 0) (sum / count).toInt() else null
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.kaybee.core.sync
+
+import org.json.JSONArray
+import org.json.JSONException
+
+data class RoutePoint(val timestamp: Long, val latitude: Double, val longitude: Double, val altitude: Double?)
+
+/** Parses the GPS route sent by the JS run tracker: `[{timestamp, lat, lng, altitude?}]`. */
+object RouteParser {
+
+    /** Malformed points are skipped; compare the result size with the input to detect them. */
+    @JvmStatic
+    fun parse(route: JSONArray?): List<RoutePoint> {
+        if (route == null) return emptyList()
+        val points = ArrayList<RoutePoint>(route.length())
+        for (i in 0 until route.length()) {
+            try {
+                val point = route.getJSONObject(i)
+                points.add(RoutePoint(
+                    timestamp = point.getLong("timestamp"),
+                    latitude = point.getDouble("lat"),
+                    longitude = point.getDouble("lng"),
+                    altitude = if (point.isNull("altitude")) null else point.getDouble("altitude")
+                ))
+            } catch (e: JSONException) {
+                // point ignoré
+            }
+        }
+        return points
+    }
+}
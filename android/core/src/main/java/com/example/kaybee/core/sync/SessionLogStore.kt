@@ -0,0 +1,99 @@
+package com.example.kaybee.core.sync
+
+import com.example.kaybee.core.Clock
+
+/**
+ * Optimistic copy of live_data/session for the watch: set edits show up at once, are queued
+ * for sync and stay on top of the server state until RTDB echoes them back. Each edit carries
+ * a [KEY_REV], monotonic and taken from the clock, written with the log; an echo confirms the
+ * edits of that log up to its rev. The phone and the web rewrite logs without rev: an echo
+ * also confirms an edit when it holds the same values, or when it has no rev and its
+ * [KEY_TIMESTAMP] is later than the edit. Not thread-safe: main thread only.
+ *
+ * Weight and reps edits are debounced, so a burst of taps is written once with the final
+ * value; completing (or reopening) a set is written at once.
+ */
+class SessionLogStore(
+    private val clock: Clock,
+    private val debounceMs: Long = DEBOUNCE_MS
+) {
+    private class Edit(val weight: Float, val reps: Int, val done: Boolean, val rev: Long, val at: Long) {
+        fun fields(): Map<String, Any> = mapOf("done" to done, "weight" to weight, "reps" to reps, KEY_REV to rev)
+
+        fun isConfirmedBy(log: Map<*, *>): Boolean {
+            val rev = (log[KEY_REV] as? Number)?.toLong()
+            if (rev != null && rev >= this.rev) return true
+            if (log["done"] == done && (log["weight"] as? Number)?.toFloat() == weight && (log["reps"] as? Number)?.toInt() == reps) return true
+            val timestamp = (log[KEY_TIMESTAMP] as? Number)?.toLong() ?: return false
+            return rev == null && timestamp > at
+        }
+    }
+
+    private var server: Map<*, *>? = null
+    private val edits = LinkedHashMap<String, Edit>()
+    private val unsent = LinkedHashSet<String>()
+    private var lastRev = 0L
+
+    /** Server session with the pending edits applied; null when no session is active. */
+    var session: SessionData? = null
+        private set
+
+    /** Edits not echoed by RTDB yet. */
+    val pending: Int
+        get() = edits.size
+
+    /** Server live_data/session, as `DataSnapshot.getValue()` returns it. */
+    fun onServer(node: Any?): SessionData? {
+        server = node as? Map<*, *>
+        edits.entries.removeAll { (logKey, edit) -> logKey !in unsent && serverLog(logKey)?.let(edit::isConfirmedBy) == true }
+        return refresh()
+    }
+
+    /**
+     * Applies a set edit locally.
+     * @return the delay after which [drain] must be called; the owner restarts its timer on
+     * each edit. 0 when the done state changed.
+     */
+    fun edit(logKey: String, weight: Float, reps: Int, done: Boolean): Long {
+        val wasDone = edits[logKey]?.done ?: (serverLog(logKey)?.get("done") == true)
+        val now = clock.now()
+        lastRev = maxOf(lastRev + 1, now)
+        edits[logKey] = Edit(weight, reps, done, lastRev, now)
+        unsent += logKey
+        refresh()
+        return if (wasDone != done) 0L else debounceMs
+    }
+
+    /** Log fields to write, by log key, with their rev; each edit is handed out once. */
+    fun drain(): Map<String, Map<String, Any>> {
+        val result = LinkedHashMap<String, Map<String, Any>>()
+        for (logKey in unsent) edits[logKey]?.let { result[logKey] = it.fields() }
+        unsent.clear()
+        return result
+    }
+
+    private fun serverLog(logKey: String): Map<*, *>? = (server?.get("logs") as? Map<*, *>)?.get(logKey) as? Map<*, *>
+
+    private fun refresh(): SessionData? {
+        val node = server
+        session = if (node == null || edits.isEmpty()) {
+            SessionMapper.map(node)
+        } else {
+            val logs = HashMap<Any?, Any?>(node["logs"] as? Map<*, *> ?: emptyMap<Any?, Any?>())
+            for ((logKey, edit) in edits) logs[logKey] = edit.fields()
+            SessionMapper.map(HashMap<Any?, Any?>(node).apply { put("logs", logs) })
+        }
+        // Séance terminée: les modifications en attente n'ont plus de cible
+        if (session == null) {
+            edits.clear()
+            unsent.clear()
+        }
+        return session
+    }
+
+    companion object {
+        const val KEY_REV = "rev"
+        const val KEY_TIMESTAMP = "timestamp"
+        const val DEBOUNCE_MS = 600L
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.kaybee.core.sync
+
+data class SessionData(val name: String, val groups: List<SessionGroup>)
+data class SessionGroup(val type: String, val exercises: List<SessionExercise>, val sets: Int, val rest: Int)
+data class SessionExercise(val name: String, val sets: List<SessionSet>, val rest: Int = 60)
+data class SessionSet(val weight: Float, val reps: Int, val isDone: Boolean = false)
+
+/**
+ * Maps live_data/session, as returned by `DataSnapshot.getValue()`, to a [SessionData].
+ * RTDB hands back array-like children as a List and the others as a Map, so both are
+ * accepted and Map children are visited in RTDB key order, like `snapshot.children`.
+ */
+object SessionMapper {
+
+    /** @return null when there is no active session. */
+    @JvmStatic
+    fun map(session: Any?): SessionData? {
+        val node = session as? Map<*, *> ?: return null
+        if (node["active"] != true) return null
+
+        val name = node["workoutName"] as? String ?: "Séance"
+        val logs = node["logs"] as? Map<*, *> ?: emptyMap<Any, Any>()
+        val groups = node["groups"]
+        return SessionData(name, if (groups != null) mapGroups(groups, logs) else mapExercises(node["exercises"], logs))
+    }
+
+    private fun mapGroups(groups: Any, logs: Map<*, *>): List<SessionGroup> =
+        children(groups).mapIndexed { groupIdx, group ->
+            val setType = group["setType"] as? String ?: "straight"
+            val setsCount = (group["sets"] as? Number)?.toInt() ?: 3
+            val restDefault = (group["rest"] as? Number)?.toInt() ?: 60
+
+            val exercises = children(group["exercises"]).mapIndexed { exoIdx, exo ->
+                val sets = mapSets(exo, setsCount, logs) { setIdx -> "$groupIdx-$exoIdx-$setIdx" }
+                SessionExercise(exo["name"] as? String ?: "Exo", sets, restDefault)
+            }
+            SessionGroup(setType, exercises, setsCount, restDefault)
+        }
+
+    // Ancien format: une liste d'exercices sans groupes, chacun devient un groupe "straight"
+    private fun mapExercises(exercises: Any?, logs: Map<*, *>): List<SessionGroup> =
+        children(exercises).mapIndexed { exoIdx, exo ->
+            val setsCount = (exo["sets"] as? Number)?.toInt() ?: 3
+            val sets = mapSets(exo, setsCount, logs) { setIdx -> "$exoIdx-$setIdx" }
+            val rest = (exo["rest"] as? Number)?.toInt() ?: 60
+            SessionGroup("straight", listOf(SessionExercise(exo["name"] as? String ?: "Exo", sets, rest)), setsCount, rest)
+        }
+
+    private inline fun mapSets(exo: Map<*, *>, setsCount: Int, logs: Map<*, *>, logKey: (Int) -> String): List<SessionSet> {
+        val repsDefault = (exo["reps"] as? Number)?.toInt() ?: 10
+        val weightDefault = (exo["weight"] as? Number)?.toFloat() ?: 0f
+        return List(setsCount) { setIdx ->
+            val log = logs[logKey(setIdx)] as? Map<*, *>
+            SessionSet(
+                weight = (log?.get("weight") as? Number)?.toFloat() ?: weightDefault,
+                reps = (log?.get("reps") as? Number)?.toInt() ?: repsDefault,
+                isDone = log?.get("done") as? Boolean ?: false
+            )
+        }
+    }
+
+    private fun children(node: Any?): List<Map<*, *>> = when (node) {
+        is List<*> -> node.filterIsInstance<Map<*, *>>()
+        is Map<*, *> -> node.entries.sortedWith(KEY_ORDER).mapNotNull { it.value as? Map<*, *> }
+        else -> emptyList()
+    }
+
+    // Ordre RTDB: clés entières d'abord (numériquement), puis les autres (lexicographiquement)
+    internal val KEY_ORDER = Comparator<Map.Entry<*, *>> { a, b ->
+        val keyA = a.key.toString()
+        val keyB = b.key.toString()
+        val intA = keyA.toIntOrNull()
+        val intB = keyB.toIntOrNull()
+        when {
+            intA != null && intB != null -> intA.compareTo(intB)
+            intA != null -> -1
+            intB != null -> 1
+            else -> keyA.compareTo(keyB)
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.kaybee.core.sync
+
+import org.json.JSONException
+import org.json.JSONObject
+
+/** Paths and JSON payloads of the Wearable messages exchanged between the phone and the watch. */
+object WearPayloads {
+    const val PATH_PAIR = "/pair"
+    const val PATH_REQUEST_PAIR = "/request-pair"
+    const val PATH_HEALTH_DATA = "/health-data"
+
+    /** [timestamp] is the send time on the watch; [traceId] is set on sampled messages only. */
+    data class HealthData(val steps: Long?, val heartRate: Int?, val timestamp: Long, val traceId: String? = null)
+
+    @JvmStatic
+    fun encodePair(userId: String?): ByteArray = JSONObject().put("userId", userId).toString().toByteArray(Charsets.UTF_8)
+
+    /** @return the paired user id, or null if the payload is malformed or has none. */
+    @JvmStatic
+    fun decodePair(data: ByteArray?): String? {
+        if (data == null) return null
+        return try {
+            JSONObject(String(data, Charsets.UTF_8)).optString("userId").takeIf { it.isNotEmpty() }
+        } catch (e: JSONException) {
+            null
+        }
+    }
+
+    @JvmStatic
+    fun encodeHealthData(health: HealthData): ByteArray {
+        val json = JSONObject().put("type", "passive_update")
+        health.steps?.let { json.put("steps", it) }
+        health.heartRate?.let { json.put("heart_rate", it) }
+        json.put("timestamp", health.timestamp)
+        health.traceId?.let { json.put("trace_id", it) }
+        return json.toString().toByteArray(Charsets.UTF_8)
+    }
+
+    /** @return null if the payload is malformed; a missing timestamp defaults to [now]. */
+    @JvmStatic
+    fun decodeHealthData(data: ByteArray?, now: Long): HealthData? {
+        if (data == null) return null
+        return try {
+            val json = JSONObject(String(data, Charsets.UTF_8))
+            HealthData(
+                steps = if (json.has("steps")) json.getLong("steps") else null,
+                heartRate = if (json.has("heart_rate")) json.getInt("heart_rate") else null,
+                timestamp = json.optLong("timestamp", now),
+                traceId = json.optString("trace_id").takeIf { it.isNotEmpty() }
+            )
+        } catch (e: JSONException) {
+            null
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.ManualClock
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ActivityStateMachineTest {
+
+    private val clock = ManualClock(0L)
+    private val transitions = mutableListOf<ActivityState>()
+    private val machine = ActivityStateMachine { _, current -> transitions += current }
+
+    /** Advances [seconds] at [cadence] steps/min and [bpm], one heart rate sample per second. */
+    private fun play(seconds: Int, cadence: Int, bpm: Int) {
+        var stepsDue = 0.0
+        repeat(seconds) {
+            clock.advance(1_000L)
+            stepsDue += cadence / 60.0
+            while (stepsDue >= 1.0) {
+                machine.onStep(clock.now())
+                stepsDue -= 1.0
+            }
+            machine.onHeartRate(bpm, clock.now())
+        }
+    }
+
+    @Test
+    fun walkingNeedsTheEnterDwell() {
+        play(5, cadence = 100, bpm = 90)
+        assertEquals(ActivityState.IDLE, machine.state)
+        play(30, cadence = 100, bpm = 90)
+        assertEquals(ActivityState.WALKING, machine.state)
+    }
+
+    @Test
+    fun shortStopDoesNotDropTheRate() {
+        play(120, cadence = 160, bpm = 150)
+        assertEquals(ActivityState.RUNNING, machine.state)
+
+        val before = transitions.size
+
+        // Feu rouge: 40 s sans pas, FC qui redescend
+        play(40, cadence = 0, bpm = 100)
+        assertEquals(ActivityState.RUNNING, machine.state)
+        play(120, cadence = 0, bpm = 70)
+        assertEquals(listOf(ActivityState.IDLE), transitions.drop(before))
+    }
+
+    @Test
+    fun uphillWalkIsNotTraining() {
+        play(120, cadence = 90, bpm = 125)
+        assertEquals(listOf(ActivityState.WALKING), transitions)
+    }
+
+    @Test
+    fun workoutFlagSelectsTraining() {
+        machine.setWorkoutActive(true, clock.now())
+        play(60, cadence = 0, bpm = 95)
+        assertEquals(ActivityState.TRAINING, machine.state)
+        machine.setWorkoutActive(false, clock.now())
+        play(120, cadence = 0, bpm = 80)
+        assertEquals(ActivityState.IDLE, machine.state)
+    }
+
+    @Test
+    fun profileFollowsTheStateThroughTheDay() {
+        val profiles = mutableListOf<SamplingProfile>()
+        val machine = ActivityStateMachine { _, current -> profiles += SamplingProfile.of(current) }
+        fun replay(seconds: Int, stepEverySecond: Boolean, bpm: Int) = repeat(seconds) {
+            clock.advance(1_000L)
+            if (stepEverySecond) machine.onStep(clock.now())
+            machine.onHeartRate(bpm, clock.now())
+        }
+
+        replay(60, stepEverySecond = true, bpm = 95)
+        assertEquals(SamplingProfile.of(ActivityState.WALKING), profiles.last())
+        machine.setWorkoutActive(true, clock.now())
+        replay(60, stepEverySecond = false, bpm = 120)
+        assertEquals(SamplingProfile.of(ActivityState.TRAINING), profiles.last())
+        machine.setWorkoutActive(false, clock.now())
+        replay(120, stepEverySecond = false, bpm = 70)
+
+        assertEquals(
+            listOf(ActivityState.WALKING, ActivityState.TRAINING, ActivityState.IDLE).map(SamplingProfile::of),
+            profiles
+        )
+    }
+
+    @Test
+    fun onlyTrainingIsUnbatched() {
+        // Au repos et en marche, les événements sont groupés: pas un réveil par échantillon
+        assertTrue(SamplingProfile.of(ActivityState.IDLE).batchLatencyUs > 0)
+        assertTrue(SamplingProfile.of(ActivityState.WALKING).batchLatencyUs > 0)
+        assertEquals(0, SamplingProfile.of(ActivityState.TRAINING).batchLatencyUs)
+        assertTrue(SamplingProfile.of(ActivityState.IDLE).accelPeriodUs > SamplingProfile.of(ActivityState.TRAINING).accelPeriodUs)
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.MemoryKeyValueStore
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class GlanceStoreTest {
+
+    private val store = MemoryKeyValueStore()
+    private val glances = GlanceStore(store)
+
+    @Test
+    fun smallMovesStayInMemory() {
+        assertTrue(glances.publish(1_000L, 70, 1L))
+        assertFalse(glances.publish(1_050L, 72, 2L))
+        assertFalse(glances.publish(null, 66, 3L))
+        assertEquals(Glance(1_050L, 66, 3L, 3L), glances.current())
+        assertEquals(1, store.edits)
+
+        // Seuil franchi par rapport au dernier rafraîchissement, pas au dernier échantillon
+        assertTrue(glances.publish(1_100L, 66, 4L))
+        assertTrue(glances.publish(null, 75, 5L))
+        assertEquals(3, store.edits)
+    }
+
+    @Test
+    fun midnightResetIsPushed() {
+        glances.publish(9_000L, 70, 1L)
+        assertTrue(glances.publish(0L, 70, 2L))
+    }
+
+    @Test
+    fun newProcessStartsFromTheLastRefresh() {
+        glances.publish(5_000L, 80, 1L)
+        glances.publish(5_020L, 81, 2L)
+
+        val reopened = GlanceStore(store)
+        assertEquals(Glance(5_000L, 80, 1L, 1L), reopened.current())
+        assertFalse(reopened.publish(5_060L, 82, 3L))
+    }
+
+    @Test
+    fun pairingAnotherUserResetsTheGlance() {
+        glances.switchUser("u1")
+        glances.publish(5_000L, 80, 1L)
+        assertFalse(glances.switchUser("u1"))
+
+        assertTrue(glances.switchUser("u2"))
+        assertEquals(Glance(), glances.current())
+        assertEquals(Glance(), GlanceStore(store).current())
+        assertFalse(GlanceStore(store).switchUser("u2"))
+    }
+}
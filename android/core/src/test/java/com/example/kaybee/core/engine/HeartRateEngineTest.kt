@@ -0,0 +1,45 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.ManualClock
+import com.example.kaybee.core.sim.RecordingSink
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class HeartRateEngineTest {
+
+    private val sink = RecordingSink()
+    private val clock = ManualClock(1_000_000L)
+    private val scheduler = SyncScheduler(sink, clock, 1_000L)
+
+    @Test
+    fun serverTimestampReplacesTheSampleTime() {
+        val serverTime = Any()
+        HeartRateEngine(scheduler, serverTimestamp = serverTime).onSample(72, 999_000L)
+        assertEquals(72, sink.state["heart_rate"])
+        assertEquals(serverTime, sink.state["timestamp"])
+    }
+
+    @Test
+    fun sampleTimeIsWrittenWithoutServerTimestamp() {
+        val engine = HeartRateEngine(scheduler)
+        engine.onSample(72, 999_000L)
+        assertEquals(-1L, engine.onSample(0, 999_500L))
+        assertEquals(999_000L, sink.state["timestamp"])
+        assertEquals(72, engine.average)
+    }
+
+    @Test
+    fun extraFieldsLeaveInTheSampleWrite() {
+        val engine = HeartRateEngine(scheduler)
+        engine.onSample(72, 999_000L)
+        clock.advance(300L)
+        val trace = mapOf("id" to "a1", "watch_send" to 1_000_300L)
+        assertEquals(700L, engine.onSample(75, 1_000_300L, mapOf("trace" to trace)))
+        clock.advance(700L)
+        scheduler.flush()
+
+        assertEquals(2L, sink.writes)
+        assertEquals(75, sink.state["heart_rate"])
+        assertEquals(trace, sink.state["trace"])
+    }
+}
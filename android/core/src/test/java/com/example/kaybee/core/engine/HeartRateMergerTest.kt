@@ -0,0 +1,128 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.engine.HeartRateSource.MEASURE
+import com.example.kaybee.core.engine.HeartRateSource.PASSIVE
+import com.example.kaybee.core.engine.HeartRateSource.SENSOR
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class HeartRateMergerTest {
+
+    private val merger = HeartRateMerger(windowMs = 1_000L, latenessMs = 3_000L)
+
+    @Test
+    fun interleavedStreamsGiveOneOrderedSamplePerSecond() {
+        val random = Random(7)
+        val arrivals = ArrayList<Pair<Long, HeartRateSample>>()
+        for (second in 0 until 60L) {
+            val t = START + second * 1_000L
+            // MeasureClient coupé entre 20 et 30 s, le capteur brut comble le trou
+            if (second !in 20L until 30L) arrivals += t + 400L to HeartRateSample(100, t + 100L, MEASURE)
+            arrivals += t + 50L + random.nextInt(1_500) to HeartRateSample(101, t + 300L + random.nextInt(600), SENSOR)
+        }
+        // Lot passif livré en retard: les secondes déjà émises sont écartées, les autres
+        // perdent face aux sources actives ou prolongent le flux
+        val batch = (10 until 15L) + (58 until 65L)
+        for (second in batch) arrivals += START + 61_000L to HeartRateSample(102, START + second * 1_000L + 500L, PASSIVE)
+        arrivals.sortBy { it.first }
+
+        val out = arrivals.flatMap { (now, sample) -> merger.offer(sample, now) } + merger.flush()
+
+        assertEquals(65, out.size)
+        assertTrue(out.zipWithNext().all { (a, b) -> a.timestamp / 1_000L < b.timestamp / 1_000L })
+        out.forEachIndexed { second, sample ->
+            val expected = when (second) {
+                in 20 until 30 -> SENSOR
+                in 60 until 65 -> PASSIVE
+                else -> MEASURE
+            }
+            assertEquals(expected, sample.source)
+        }
+        assertEquals(65L, merger.emitted)
+        assertEquals(50L + 2L, merger.duplicates)
+        assertEquals(5L, merger.late)
+        // Secondes 10 à 14 déjà émises: rien à rattraper dans l'historique
+        assertTrue(merger.takeBackfill().isEmpty())
+    }
+
+    @Test
+    fun passiveBatchesMinutesLateOnlyReachTheHistory() {
+        val arrivals = ArrayList<Pair<Long, HeartRateSample>>()
+        for (second in 0 until 600L) {
+            val t = START + second * 1_000L
+            // Activité en arrière-plan entre 200 et 400 s: plus de MeasureClient
+            if (second !in 200L until 400L) arrivals += t + 400L to HeartRateSample(90, t + 100L, MEASURE)
+        }
+        // Un point passif toutes les 10 s, livré par lots toutes les 150 s; le lot de 450 s revient deux fois
+        val batches = listOf(150L to 0L, 300L to 150L, 450L to 300L, 451L to 300L, 600L to 450L)
+        for ((delivery, from) in batches) {
+            for (second in from until from + 150L step 10) {
+                arrivals += START + delivery * 1_000L to HeartRateSample(70, START + second * 1_000L + 700L, PASSIVE)
+            }
+        }
+        arrivals.sortBy { it.first }
+
+        val live = ArrayList<Pair<Long, HeartRateSample>>()
+        val history = ArrayList<HeartRateSample>()
+        for ((now, sample) in arrivals) {
+            // Minuterie de HeartRates: chaque seau part à son échéance
+            while (merger.nextDeadline() in 0..now) {
+                val at = merger.nextDeadline()
+                merger.advance(at).forEach { live += at to it }
+            }
+            merger.offer(sample, now).forEach { live += now to it }
+            history += merger.takeBackfill()
+        }
+        merger.flush().forEach { live += Long.MAX_VALUE to it }
+
+        assertEquals(400, live.size)
+        assertTrue(live.all { it.second.source == MEASURE })
+        assertTrue(live.filter { it.first < Long.MAX_VALUE }.all { (at, sample) -> at - sample.timestamp <= 1_000L + 3_000L })
+        // Seuls les points passifs du trou rejoignent l'historique, une fois chacun
+        assertEquals((200L until 400L step 10).map { START + it * 1_000L + 700L }, history.map { it.timestamp })
+        assertTrue(history.all { it.source == PASSIVE })
+        assertEquals(20L, merger.backfilled)
+    }
+
+    @Test
+    fun exactDuplicatesAreEmittedOnce() {
+        val sample = HeartRateSample(80, START, SENSOR)
+        assertTrue(merger.offer(sample, START).isEmpty())
+        assertTrue(merger.offer(sample, START + 10L).isEmpty())
+        assertEquals(listOf(sample), merger.advance(START + 4_000L))
+        assertEquals(1L, merger.duplicates)
+
+        assertTrue(merger.offer(sample, START + 5_000L).isEmpty())
+        assertEquals(1L, merger.late)
+    }
+
+    @Test
+    fun sameSourceKeepsTheLatestSample() {
+        merger.offer(HeartRateSample(80, START + 100L, SENSOR), START)
+        merger.offer(HeartRateSample(84, START + 900L, SENSOR), START)
+        merger.offer(HeartRateSample(82, START + 500L, SENSOR), START)
+        assertEquals(listOf(HeartRateSample(84, START + 900L, SENSOR)), merger.flush())
+    }
+
+    @Test
+    fun nothingIsEmittedBeforeTheLatenessWindow() {
+        merger.offer(HeartRateSample(70, START, PASSIVE), START)
+        assertEquals(START + 4_000L, merger.nextDeadline())
+        assertTrue(merger.advance(START + 3_999L).isEmpty())
+        assertEquals(1, merger.advance(START + 4_000L).size)
+        assertEquals(-1L, merger.nextDeadline())
+    }
+
+    @Test
+    fun invalidReadingsAreIgnored() {
+        merger.offer(HeartRateSample(0, START, MEASURE), START)
+        merger.offer(HeartRateSample(300, START, MEASURE), START)
+        assertTrue(merger.flush().isEmpty())
+    }
+
+    private companion object {
+        const val START = 1_700_000_000_000L
+    }
+}
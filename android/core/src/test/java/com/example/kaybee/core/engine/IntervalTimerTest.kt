@@ -0,0 +1,72 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.ManualClock
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Test
+
+class IntervalTimerTest {
+
+    private val clock = ManualClock(5_000_000L)
+    private val ends = mutableListOf<Pair<Int, Boolean>>()
+    private val timer = IntervalTimer { index, last -> ends += index to last }
+
+    @Test
+    fun restEndsAtItsDeadline() {
+        assertEquals(clock.now() + 90_000L, timer.start(IntervalTimer.rest(90), clock.now()))
+        clock.advance(30_000L)
+        assertEquals(60_000L, timer.remainingMs(clock.now()))
+
+        // Réveil anticipé: rien ne se termine
+        assertEquals(clock.now() + 60_000L, timer.onWake(clock.now()))
+        clock.advance(60_000L)
+        assertEquals(IntervalTimer.NONE, timer.onWake(clock.now()))
+        assertEquals(listOf(0 to true), ends)
+        assertFalse(timer.running)
+    }
+
+    @Test
+    fun lateWakesDoNotDriftTheFollowingIntervals() {
+        val start = clock.now()
+        timer.start(IntervalTimer.emom(5), start)
+
+        // Chaque réveil arrive 700 ms en retard: les échéances restent sur la minute
+        for (round in 1..4) {
+            clock.set(start + round * 60_000L + 700L)
+            assertEquals(start + (round + 1) * 60_000L, timer.onWake(clock.now()))
+        }
+        assertEquals("Minute 5", timer.current()?.label)
+        assertEquals(59_300L, timer.remainingMs(clock.now()))
+    }
+
+    @Test
+    fun oneWakeAfterSeveralDeadlinesReportsEachEndOnce() {
+        timer.start(IntervalTimer.rounds(2, workMs = 40_000L, restMs = 20_000L), clock.now())
+        assertEquals(3, timer.program.size)
+
+        clock.advance(70_000L)
+        assertEquals(clock.now() + 30_000L, timer.onWake(clock.now()))
+        timer.onWake(clock.now())
+        assertEquals(listOf(0 to false, 1 to false), ends)
+
+        clock.advance(30_000L)
+        timer.onWake(clock.now())
+        assertEquals(2 to true, ends.last())
+    }
+
+    @Test
+    fun restoredTimerKeepsItsDeadlines() {
+        val start = clock.now()
+        timer.start(IntervalTimer.emom(3), start)
+        clock.advance(60_000L)
+        timer.onWake(clock.now())
+
+        // Nouveau process: le programme, le départ et l'avancement suffisent
+        val restored = IntervalTimer { index, last -> ends += index to last }
+        restored.restore(timer.program, timer.startedAt, timer.ended)
+        assertEquals(start + 120_000L, restored.nextDeadline())
+        clock.advance(60_000L)
+        restored.onWake(clock.now())
+        assertEquals(listOf(0 to false, 1 to false), ends)
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.ManualClock
+import com.example.kaybee.core.sim.MemoryKeyValueStore
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.time.ZoneOffset
+
+class StepEngineTest {
+
+    private val may1 = 1_714_521_600_000L // 2024-05-01T00:00Z
+    private val clock = ManualClock(may1 + 8 * 3_600_000L)
+    private val store = MemoryKeyValueStore()
+
+    private fun engine() = StepEngine(store, clock, zone = { ZoneOffset.UTC })
+
+    @Test
+    fun baselineIsPersistedAndReloaded() {
+        val engine = engine()
+        assertEquals(0L, engine.onStepCounter(10_000L))
+        assertEquals(250L, engine.onStepCounter(10_250L))
+        assertEquals(1, store.edits)
+        assertEquals("2024-05-01", store.values[StepEngine.KEY_DATE])
+
+        // Processus tué puis relancé dans la journée: on repart de la même baseline
+        assertEquals(300L, engine().onStepCounter(10_300L))
+
+        clock.advance(24 * 3_600_000L)
+        assertEquals(0L, engine().onStepCounter(10_400L))
+        assertEquals("2024-05-02", store.values[StepEngine.KEY_DATE])
+    }
+
+    @Test
+    fun syncSkipsWhatLiveDataAlreadyHolds() {
+        val engine = engine()
+        engine.onRemoteSteps("2024-05-01", 500L)
+
+        assertNull(engine.syncUpdate(480L))
+        val fields = engine.syncUpdate(520L)!!
+        assertEquals(520L, fields["steps"])
+        assertEquals("phone", fields["source"])
+        assertEquals(clock.now(), fields["last_update"])
+        assertNull(engine.syncUpdate(520L))
+
+        // Nouveau jour: même un total plus petit doit être écrit
+        engine.onRemoteSteps("2024-04-30", 9_000L)
+        assertEquals(12L, engine.syncUpdate(12L)!!["steps"])
+    }
+
+    @Test
+    fun incrementsRestartAfterReset() {
+        val increments = StepIncrements()
+        assertEquals(0L, increments.next(100L))
+        assertEquals(20L, increments.next(120L))
+        assertEquals(0L, increments.next(120L))
+        assertEquals(5L, increments.next(5L))
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.sim.ManualClock
+import com.example.kaybee.core.sim.RecordingSink
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class SyncSchedulerTest {
+
+    private val clock = ManualClock(1_000_000L)
+    private val sink = RecordingSink()
+    private val scheduler = SyncScheduler(sink, clock, 1_000L)
+
+    @Test
+    fun firstOfferIsWrittenImmediately() {
+        assertEquals(-1L, scheduler.offer(mapOf("heart_rate" to 70)))
+        assertEquals(1L, sink.writes)
+    }
+
+    @Test
+    fun offersWithinTheIntervalAreMergedIntoOneWrite() {
+        scheduler.offer(mapOf("heart_rate" to 70))
+        clock.advance(300)
+        assertEquals(700L, scheduler.offer(mapOf("heart_rate" to 71)))
+        clock.advance(300)
+        assertEquals(-1L, scheduler.offer(mapOf<String, Any>("heart_rate" to 72, "steps" to 10L)))
+        assertEquals(1L, sink.writes)
+
+        clock.advance(400)
+        scheduler.flush()
+        assertEquals(2L, sink.writes)
+        assertEquals(72, sink.state["heart_rate"])
+        assertEquals(10L, sink.state["steps"])
+        assertEquals(3L, scheduler.offered)
+    }
+
+    @Test
+    fun flushWithNothingPendingDoesNotWrite() {
+        scheduler.offer(mapOf("heart_rate" to 70))
+        scheduler.flush()
+        assertEquals(1L, sink.writes)
+    }
+}
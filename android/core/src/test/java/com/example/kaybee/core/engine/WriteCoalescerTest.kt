@@ -0,0 +1,73 @@
+package com.example.kaybee.core.engine
+
+import com.example.kaybee.core.Sink
+import com.example.kaybee.core.sim.ManualClock
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Test
+
+class WriteCoalescerTest {
+
+    private val written = mutableListOf<Map<String, Any>>()
+    private val scheduled = mutableListOf<Long>()
+    private val coalescer = WriteCoalescer(Sink { written += it }, 200L) { scheduled += it }
+
+    @Test
+    fun writersOfOneTickShareOneUpdate() {
+        coalescer.offer(mapOf("users/u/live_data/heart_rate" to 72, "users/u/live_data/last_update" to 1L))
+        coalescer.offer(mapOf("users/u/live_data/steps" to 1_200L, "users/u/live_data/last_update" to 2L))
+        coalescer.offer(mapOf("users/u/live_data/accel_x" to 0.1f))
+        assertEquals(listOf(200L), scheduled)
+        assertEquals(0, written.size)
+
+        coalescer.flush()
+        assertEquals(1, written.size)
+        // Ordre du dernier écrivain: last_update a été réécrit par le pas
+        assertEquals(
+            listOf("users/u/live_data/heart_rate", "users/u/live_data/steps", "users/u/live_data/last_update", "users/u/live_data/accel_x"),
+            written[0].keys.toList()
+        )
+        assertEquals(2L, written[0]["users/u/live_data/last_update"])
+
+        val stats = coalescer.stats()
+        assertEquals(3L, stats["writes_before"])
+        assertEquals(1L, stats["writes_after"])
+        assertEquals(5L, stats["fields_before"])
+        assertEquals(4L, stats["fields_after"])
+    }
+
+    @Test
+    fun urgentOfferWritesEverythingPendingAtOnce() {
+        coalescer.offer(mapOf("users/u/live_data/heart_rate" to 72))
+        coalescer.offer(mapOf("users/u/live_data/session/logs/0-0-1/done" to true), urgent = true)
+        assertEquals(1, written.size)
+        assertEquals(2, written[0].size)
+
+        // Le flush programmé n'a plus rien à écrire
+        coalescer.flush()
+        assertEquals(1, written.size)
+    }
+
+    @Test
+    fun ancestorAndDescendantNeverShareAnUpdate() {
+        coalescer.offer(mapOf("users/u/live_data/session/logs/0-0-1/done" to true))
+        coalescer.offer(mapOf("users/u/live_data/session" to mapOf("active" to false)))
+        coalescer.flush()
+        assertEquals(listOf(mapOf<String, Any>("users/u/live_data/session" to mapOf("active" to false))), written)
+
+        coalescer.offer(mapOf("users/u/live_data/session" to mapOf("active" to true)))
+        coalescer.offer(mapOf("users/u/live_data/session/logs/0-0-1/done" to true))
+        coalescer.flush()
+        assertEquals(3, written.size)
+        assertFalse(written[2].containsKey("users/u/live_data/session"))
+    }
+
+    @Test
+    fun prefixedSinkFeedsTheSameTick() {
+        val live = coalescer.at("users/u/live_data")
+        SyncScheduler(live, ManualClock(0L), 1_000L).offer(mapOf("heart_rate" to 80))
+        live.update(mapOf("steps" to 10L))
+        coalescer.flush()
+        assertEquals(mapOf<String, Any>("users/u/live_data/heart_rate" to 80, "users/u/live_data/steps" to 10L), written.single())
+    }
+}
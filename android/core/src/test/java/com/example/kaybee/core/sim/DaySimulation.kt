@@ -0,0 +1,141 @@
+package com.example.kaybee.core.sim
+
+import com.example.kaybee.core.engine.HeartRateEngine
+import com.example.kaybee.core.engine.StepEngine
+import com.example.kaybee.core.engine.StepIncrements
+import com.example.kaybee.core.engine.SyncScheduler
+import com.example.kaybee.core.engine.WriteCoalescer
+import com.example.kaybee.core.sync.SessionMapper
+import java.time.LocalDate
+import java.time.ZoneId
+import java.time.ZoneOffset
+import java.util.Random
+
+/**
+ * Drives a synthetic day of sensor events through the engines, against in-memory ports
+ * and a [ManualClock]:
+ * - phone step counter, one event per second while walking;
+ * - watch heart rate at 1 Hz, going through a [WriteCoalescer] as on the watch;
+ * - an evening workout, during which every watch write is mapped back to a SessionData,
+ *   as the watch does on each users/{uid} snapshot.
+ *
+ * A day takes a few seconds at most, so changes to the engines can be load-tested off-device.
+ */
+class DaySimulation @JvmOverloads constructor(
+    private val seed: Long = 42L,
+    private val zone: ZoneId = ZoneOffset.UTC
+) {
+
+    data class Report(
+        val events: Long,
+        val steps: Long,
+        val stepIncrements: Long,
+        val averageHeartRate: Int?,
+        val phoneWrites: Long,
+        val watchUpdates: Long,
+        val watchWrites: Long,
+        val watchFieldsWritten: Long,
+        val sessionsMapped: Long,
+        val elapsedMs: Long
+    )
+
+    fun run(day: LocalDate = LocalDate.of(2024, 5, 1)): Report {
+        val started = System.nanoTime()
+        val dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli()
+        val clock = ManualClock(dayStart)
+        val random = Random(seed)
+
+        // Baseline de la veille: le premier pas du jour la remet à zéro
+        val store = MemoryKeyValueStore().apply {
+            put(mapOf(StepEngine.KEY_DATE to day.minusDays(1).toString(), StepEngine.KEY_OFFSET to 240_000L))
+        }
+        val phoneSink = RecordingSink()
+        val watchSink = RecordingSink()
+
+        val steps = StepEngine(store, clock, zone = { zone })
+        val increments = StepIncrements()
+        var writesFlushAt = -1L
+        val writes = WriteCoalescer(watchSink, WriteCoalescer.TICK_MS) { writesFlushAt = clock.now() + it }
+        val liveData = writes.at("live_data")
+        val hrScheduler = SyncScheduler(liveData, clock, HR_INTERVAL_MS)
+        val heartRate = HeartRateEngine(hrScheduler)
+        val session = workoutSession()
+
+        var rawSteps = 250_000L
+        var todaySteps = 0L
+        var incrementTotal = 0L
+        var events = 0L
+        var sessionsMapped = 0L
+        var hrFlushAt = -1L
+
+        var t = 0L
+        while (t < DAY_MS) {
+            clock.set(dayStart + t)
+            val now = clock.now()
+            val writesBefore = watchSink.writes
+            if (writesFlushAt in 0..now) { writesFlushAt = -1; writes.flush() }
+            if (hrFlushAt in 0..now) { hrFlushAt = -1; hrScheduler.flush() }
+
+            val second = t / 1_000
+            val training = second in WORKOUT
+            val walking = WALKS.any { second in it }
+
+            val base = when { training -> 140; walking -> 95; else -> 62 }
+            val hrDelay = heartRate.onSample(base + (random.nextGaussian() * 6).toInt(), now)
+            if (hrDelay > 0) hrFlushAt = now + hrDelay
+            events++
+
+            if (walking) {
+                rawSteps += 1 + random.nextInt(2)
+                todaySteps = steps.onStepCounter(rawSteps)
+                incrementTotal += increments.next(todaySteps)
+                steps.syncUpdate(todaySteps)?.let { phoneSink.update(it) }
+                events++
+            }
+
+            if (training && watchSink.writes > writesBefore) {
+                SessionMapper.map(session)
+                sessionsMapped++
+            }
+            t += TICK_MS
+        }
+        hrScheduler.flush()
+        writes.flush()
+
+        return Report(
+            events = events,
+            steps = todaySteps,
+            stepIncrements = incrementTotal,
+            averageHeartRate = heartRate.average,
+            phoneWrites = phoneSink.writes,
+            watchUpdates = writes.calls,
+            watchWrites = watchSink.writes,
+            watchFieldsWritten = watchSink.fields,
+            sessionsMapped = sessionsMapped,
+            elapsedMs = (System.nanoTime() - started) / 1_000_000
+        )
+    }
+
+    private fun workoutSession(): Map<String, Any?> {
+        val logs = HashMap<String, Any?>()
+        val groups = List(5) { g ->
+            val exercises = List(2) { e ->
+                for (s in 0 until 4) logs["$g-$e-$s"] = mapOf("done" to true, "weight" to 40.0 + g, "reps" to 10L)
+                mapOf("name" to "Exercice $g.$e", "reps" to 10L, "weight" to 40L)
+            }
+            mapOf("setType" to "superset", "sets" to 4L, "rest" to 90L, "exercises" to exercises)
+        }
+        return mapOf("active" to true, "workoutName" to "Full body", "groups" to groups, "logs" to logs)
+    }
+
+    companion object {
+        const val DAY_MS = 24 * 3_600_000L
+        const val HR_INTERVAL_MS = 1_000L
+        private const val TICK_MS = 1_000L
+
+        private fun hours(from: Double, to: Double) = (from * 3_600).toLong() until (to * 3_600).toLong()
+
+        private val WALKS = listOf(hours(7.5, 8.0), hours(12.0, 12.5), hours(17.5, 18.0), hours(20.0, 20.75))
+        private val WORKOUT = hours(18.0, 19.0)
+    }
+}
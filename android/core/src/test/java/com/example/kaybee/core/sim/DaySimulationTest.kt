@@ -0,0 +1,31 @@
+package com.example.kaybee.core.sim
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DaySimulationTest {
+
+    @Test
+    fun aDayOfSensorEvents() {
+        val report = DaySimulation().run()
+
+        val walkingSeconds = 8_100L
+        assertEquals(86_400L + walkingSeconds, report.events)
+        // Le premier pas du jour remet la baseline à zéro, ensuite chaque pas est compté une fois
+        assertEquals(report.steps, report.stepIncrements)
+        assertTrue(report.steps in walkingSeconds - 1..2 * walkingSeconds)
+        assertEquals(walkingSeconds, report.phoneWrites)
+        // BPM plafonné à une écriture par seconde
+        assertTrue(report.watchWrites <= 86_400L + 2)
+        assertTrue(report.sessionsMapped >= 3_600L)
+        assertTrue(report.averageHeartRate!! in 50..80)
+    }
+
+    @Test
+    fun runsAreDeterministic() {
+        val first = DaySimulation(seed = 7).run()
+        val second = DaySimulation(seed = 7).run()
+        assertEquals(first.copy(elapsedMs = 0), second.copy(elapsedMs = 0))
+    }
+}
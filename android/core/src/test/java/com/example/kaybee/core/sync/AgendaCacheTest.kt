@@ -0,0 +1,98 @@
+package com.example.kaybee.core.sync
+
+import com.example.kaybee.core.sim.MemoryKeyValueStore
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.DayOfWeek
+
+class AgendaCacheTest {
+
+    private val store = MemoryKeyValueStore()
+
+    private fun schedule(monday: String) = mapOf(
+        "Mardi" to mapOf("workout" to "Repos"),
+        "Lundi" to mapOf("workout" to monday)
+    )
+
+    @Test
+    fun unchangedScheduleIsNotWrittenAgain() {
+        val cache = AgendaCache(store)
+        assertTrue(cache.update("u1", schedule("Push")))
+        assertEquals(listOf(ScheduleDay("Lundi", "Push"), ScheduleDay("Mardi", "Repos")), cache.days())
+
+        // Seul le BPM a bougé: même branche schedule, aucune écriture
+        assertFalse(cache.update("u1", schedule("Push")))
+        assertEquals(1, store.edits)
+
+        assertTrue(cache.update("u1", schedule("Pull")))
+        assertEquals(2, store.edits)
+    }
+
+    @Test
+    fun schedulesWithTheSameHashCodeAreToldApart() {
+        // "Aa" et "BB" ont le même String.hashCode, donc des branches de même Map.hashCode
+        val cache = AgendaCache(store)
+        assertEquals(schedule("Aa").hashCode(), schedule("BB").hashCode())
+        cache.update("u1", schedule("Aa"))
+        assertTrue(cache.update("u1", schedule("BB")))
+        assertEquals("BB", cache.days().first().workout)
+    }
+
+    @Test
+    fun newProcessReadsTheCacheWithoutFirebase() {
+        AgendaCache(store).update("u1", schedule("Legs"))
+
+        val reopened = AgendaCache(store)
+        assertEquals("Legs", reopened.days().first().workout)
+        assertFalse(reopened.update("u1", schedule("Legs")))
+        assertFalse(reopened.switchUser("u1"))
+    }
+
+    @Test
+    fun otherFormatIsIgnored() {
+        AgendaCache(store).update("u1", schedule("Legs"))
+        store.put(mapOf(AgendaCache.KEY_FORMAT to AgendaCache.FORMAT + 1))
+        assertTrue(AgendaCache(store).days().isEmpty())
+    }
+
+    @Test
+    fun missingOrEmptyScheduleKeepsTheLastAgenda() {
+        val cache = AgendaCache(store)
+        cache.update("u1", schedule("Push"))
+        assertFalse(cache.update("u1", null))
+        assertFalse(cache.update("u1", emptyMap<String, Any>()))
+        assertEquals(2, cache.days().size)
+    }
+
+    @Test
+    fun pairingAnotherUserDropsTheAgenda() {
+        AgendaCache(store).update("u1", schedule("Push"))
+
+        val cache = AgendaCache(store)
+        assertTrue(cache.switchUser("u2"))
+        assertTrue(cache.days().isEmpty())
+        assertTrue(AgendaCache(store).days().isEmpty())
+
+        // Même contenu que l'agenda de u1: il est quand même écrit, pour u2
+        assertTrue(cache.update("u2", schedule("Push")))
+        assertEquals("u2", store.getString(AgendaCache.KEY_UID, ""))
+    }
+
+    @Test
+    fun emptyScheduleOfAnotherUserDoesNotKeepThePreviousAgenda() {
+        val cache = AgendaCache(store)
+        cache.update("u1", schedule("Push"))
+        assertTrue(cache.update("u2", null))
+        assertTrue(cache.days().isEmpty())
+    }
+
+    @Test
+    fun nextWorkoutWrapsAroundTheWeek() {
+        val days = listOf(ScheduleDay("Lundi", "Push"), ScheduleDay("Mardi", "Repos"), ScheduleDay("Jeudi", "Legs"))
+        assertEquals("Legs", AgendaCache.next(days, DayOfWeek.TUESDAY)?.workout)
+        assertEquals("Push", AgendaCache.next(days, DayOfWeek.FRIDAY)?.workout)
+        assertEquals(null, AgendaCache.next(listOf(ScheduleDay("Lundi", "Repos")), DayOfWeek.MONDAY))
+    }
+}
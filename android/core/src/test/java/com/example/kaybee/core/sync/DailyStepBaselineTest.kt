@@ -0,0 +1,34 @@
+package com.example.kaybee.core.sync
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DailyStepBaselineTest {
+
+    @Test
+    fun firstEventOfTheDaySetsTheBaseline() {
+        val baseline = DailyStepBaseline("2024-05-01", 1_000L)
+
+        assertEquals(500L, baseline.stepsFor(1_500L, "2024-05-01"))
+        assertFalse(baseline.isDirty)
+
+        assertEquals(0L, baseline.stepsFor(1_600L, "2024-05-02"))
+        assertTrue(baseline.isDirty)
+        assertEquals(1_600L, baseline.offset)
+        baseline.markPersisted()
+        assertEquals(40L, baseline.stepsFor(1_640L, "2024-05-02"))
+    }
+
+    @Test
+    fun counterResetAfterRebootRestartsFromZero() {
+        val baseline = DailyStepBaseline()
+        baseline.stepsFor(5_000L, "2024-05-01")
+        baseline.markPersisted()
+
+        assertEquals(0L, baseline.stepsFor(12L, "2024-05-01"))
+        assertTrue(baseline.isDirty)
+        assertEquals(8L, baseline.stepsFor(20L, "2024-05-01"))
+    }
+}
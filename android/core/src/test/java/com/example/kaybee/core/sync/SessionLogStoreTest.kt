@@ -0,0 +1,105 @@
+package com.example.kaybee.core.sync
+
+import com.example.kaybee.core.sim.ManualClock
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SessionLogStoreTest {
+
+    private val clock = ManualClock(1_000_000L)
+    private val store = SessionLogStore(clock)
+
+    private fun session(logs: Map<String, Any> = emptyMap()): Map<String, Any> = mapOf(
+        "active" to true,
+        "workoutName" to "Push",
+        "groups" to listOf(mapOf(
+            "setType" to "straight", "sets" to 3L, "rest" to 90L,
+            "exercises" to listOf(mapOf("name" to "Développé couché", "reps" to 8L, "weight" to 60L))
+        )),
+        "logs" to logs
+    )
+
+    private fun set(idx: Int) = store.session!!.groups[0].exercises[0].sets[idx]
+
+    @Test
+    fun burstOfWeightTapsIsOneWriteWithTheFinalValue() {
+        store.onServer(session())
+        repeat(10) {
+            clock.advance(150)
+            // Chaque tap lit la valeur locale, pas celle du serveur
+            assertEquals(SessionLogStore.DEBOUNCE_MS, store.edit("0-0-1", set(1).weight + 5f, set(1).reps, false))
+        }
+        assertEquals(110f, set(1).weight)
+
+        val writes = store.drain()
+        assertEquals(setOf("0-0-1"), writes.keys)
+        assertEquals(110f, writes.getValue("0-0-1")["weight"])
+        assertTrue(store.drain().isEmpty())
+    }
+
+    @Test
+    fun completingASetIsWrittenAtOnce() {
+        store.onServer(session())
+        assertEquals(0L, store.edit("0-0-0", 60f, 8, true))
+        assertTrue(set(0).isDone)
+        assertEquals(SessionLogStore.DEBOUNCE_MS, store.edit("0-0-0", 65f, 8, true))
+    }
+
+    @Test
+    fun staleEchoDoesNotRevertTheLocalEdit() {
+        store.onServer(session())
+        store.edit("0-0-1", 65f, 8, false)
+        val first = store.drain().getValue("0-0-1")
+        clock.advance(200)
+        store.edit("0-0-1", 70f, 8, false)
+
+        // L'écho de la première écriture arrive avant l'envoi de la seconde
+        store.onServer(session(mapOf("0-0-1" to first)))
+        assertEquals(70f, set(1).weight)
+        val second = store.drain().getValue("0-0-1")
+
+        store.onServer(session(mapOf("0-0-1" to first)))
+        assertEquals(70f, set(1).weight)
+        assertEquals(1, store.pending)
+
+        store.onServer(session(mapOf("0-0-1" to second)))
+        assertEquals(70f, set(1).weight)
+        assertEquals(0, store.pending)
+    }
+
+    @Test
+    fun rewriteWithoutRevConfirmsTheEdit() {
+        store.onServer(session())
+        store.edit("0-0-0", 62.5f, 8, true)
+        val sent = store.drain().getValue("0-0-0")
+
+        // Le téléphone réécrit le log à l'identique, sans rev
+        store.onServer(session(mapOf("0-0-0" to mapOf("done" to true, "weight" to 62.5, "reps" to 8L))))
+        assertEquals(0, store.pending)
+
+        clock.advance(1_000)
+        store.edit("0-0-0", 65f, 8, true)
+        store.drain()
+        // Écriture web antérieure à la modification: ne la confirme pas
+        store.onServer(session(mapOf("0-0-0" to sent - SessionLogStore.KEY_REV + (SessionLogStore.KEY_TIMESTAMP to clock.now() - 500))))
+        assertEquals(1, store.pending)
+        assertEquals(65f, set(0).weight)
+
+        // Écriture web plus récente avec d'autres valeurs: elle remplace la modification
+        store.onServer(session(mapOf("0-0-0" to mapOf("done" to false, "weight" to 50L, "reps" to 10L, SessionLogStore.KEY_TIMESTAMP to clock.now() + 500))))
+        assertEquals(0, store.pending)
+        assertEquals(50f, set(0).weight)
+        assertEquals(false, set(0).isDone)
+    }
+
+    @Test
+    fun endedSessionDropsPendingEdits() {
+        store.onServer(session())
+        store.edit("0-0-2", 80f, 5, false)
+        assertNull(store.onServer(null))
+        assertEquals(0, store.pending)
+        assertTrue(store.drain().isEmpty())
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.kaybee.core.sync
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SessionMapperTest {
+
+    @Test
+    fun inactiveOrMissingSessionIsNull() {
+        assertNull(SessionMapper.map(null))
+        assertNull(SessionMapper.map(mapOf("active" to false, "workoutName" to "Push")))
+    }
+
+    @Test
+    fun groupsUseLogsThenDefaults() {
+        val session = mapOf(
+            "active" to true,
+            "workoutName" to "Push",
+            "groups" to listOf(
+                mapOf("setType" to "superset", "sets" to 2L, "rest" to 90L, "exercises" to listOf(
+                    mapOf("name" to "Développé", "reps" to 8L, "weight" to 60L),
+                    mapOf("name" to "Pompes")
+                ))
+            ),
+            "logs" to mapOf("0-0-1" to mapOf("done" to true, "weight" to 62.5, "reps" to 6L))
+        )
+
+        val data = SessionMapper.map(session)!!
+        assertEquals("Push", data.name)
+        val group = data.groups.single()
+        assertEquals(SessionGroup("superset", group.exercises, 2, 90), group)
+        assertEquals(listOf(SessionSet(60f, 8, false), SessionSet(62.5f, 6, true)), group.exercises[0].sets)
+        assertEquals(listOf(SessionSet(0f, 10, false), SessionSet(0f, 10, false)), group.exercises[1].sets)
+        assertTrue(group.exercises.all { it.rest == 90 })
+    }
+
+    @Test
+    fun mapChildrenFollowRtdbKeyOrder() {
+        // Tableau creux: RTDB renvoie une Map, clés "10" après "2"
+        val exercises = mapOf(
+            "10" to mapOf("name" to "C"),
+            "2" to mapOf("name" to "B"),
+            "0" to mapOf("name" to "A", "sets" to 1L, "rest" to 45L)
+        )
+        val data = SessionMapper.map(mapOf("active" to true, "exercises" to exercises, "logs" to mapOf("0-0" to mapOf("done" to true))))!!
+
+        assertEquals("Séance", data.name)
+        assertEquals(listOf("A", "B", "C"), data.groups.map { it.exercises.single().name })
+        assertEquals(SessionGroup("straight", data.groups[0].exercises, 1, 45), data.groups[0])
+        assertTrue(data.groups[0].exercises[0].sets.single().isDone)
+        // Valeurs par défaut: 3 séries
+        assertEquals(3, data.groups[1].exercises[0].sets.size)
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.kaybee.core.sim
+
+import com.example.kaybee.core.KeyValueStore
+import com.example.kaybee.core.Sink
+import com.example.kaybee.core.Transport
+
+class MemoryKeyValueStore : KeyValueStore {
+    val values = HashMap<String, Any>()
+    var edits = 0
+        private set
+
+    override fun getString(key: String, default: String): String = values[key] as? String ?: default
+
+    override fun getLong(key: String, default: Long): Long = values[key] as? Long ?: default
+
+    override fun put(values: Map<String, Any>) {
+        this.values.putAll(values)
+        edits++
+    }
+}
+
+/** Keeps the merged state and counts writes and written fields. */
+class RecordingSink : Sink {
+    val state = HashMap<String, Any>()
+    var writes = 0L
+        private set
+    var fields = 0L
+        private set
+
+    override fun update(fields: Map<String, Any>) {
+        state.putAll(fields)
+        writes++
+        this.fields += fields.size
+    }
+}
+
+class RecordingTransport : Transport {
+    var messages = 0L
+        private set
+    var bytes = 0L
+        private set
+
+    override fun send(path: String, payload: ByteArray) {
+        messages++
+        bytes += payload.size
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.kaybee.core.sim
+
+import com.example.kaybee.core.Clock
+
+class ManualClock(private var now: Long = 0L) : Clock {
+    override fun now(): Long = now
+
+    fun set(time: Long) {
+        now = time
+    }
+
+    fun advance(ms: Long) {
+        now += ms
+    }
+}
@@ -3,6 +3,7 @@ plugins {
     id("org.jetbrains.kotlin.android")
     id("org.jetbrains.kotlin.plugin.compose")
     id("com.google.gms.google-services")
+    id("androidx.baselineprofile")
 }
 
 android {
@@ -15,6 +16,8 @@ android {
         targetSdk = 35
         versionCode = 9
         versionName = "7.1"
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
     }
 
     buildTypes {
@@ -40,6 +43,10 @@ android {
         checkReleaseBuilds = false
         abortOnError = false
     }
+    // Tests JVM: Firebase n'y est jamais initialisé, tout appel échouerait
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -81,11 +88,20 @@ dependencies {
     implementation("com.google.firebase:firebase-firestore-ktx")
     implementation("com.google.firebase:firebase-auth-ktx")
     
+    testImplementation("junit:junit:${rootProject.extra["junitVersion"]}")
+    testImplementation(testFixtures(project(":core")))
     androidTestImplementation(platform("androidx.compose:compose-bom:2024.09.00"))
     androidTestImplementation("androidx.compose.ui:ui-test-junit4")
+    androidTestImplementation("androidx.test.ext:junit:1.2.1")
+    androidTestImplementation("androidx.test:runner:1.6.2")
     debugImplementation("androidx.compose.ui:ui-tooling")
     debugImplementation("androidx.compose.ui:ui-test-manifest")
     debugImplementation("androidx.wear.tiles:tiles-tooling:1.4.0")
     
     implementation("com.google.code.gson:gson:2.10.1")
+
+    implementation("androidx.startup:startup-runtime:1.2.0")
+    // Installe le Baseline Profile (src/main/baseline-prof.txt + profils générés) hors Play Store
+    implementation("androidx.profileinstaller:profileinstaller:1.4.1")
+    baselineProfile(project(":macrobenchmark:wear"))
 }
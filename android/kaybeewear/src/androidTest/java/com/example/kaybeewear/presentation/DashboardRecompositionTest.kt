@@ -0,0 +1,70 @@
+package com.example.kaybeewear.presentation
+
+import android.util.Log
+import androidx.compose.runtime.SideEffect
+import androidx.compose.ui.test.junit4.createComposeRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Recompositions per second of [DashboardPage] while the sensors stream into [WearUiState]. */
+@RunWith(AndroidJUnit4::class)
+class DashboardRecompositionTest {
+
+    @get:Rule
+    val compose = createComposeRule()
+
+    private val ui = WearUiState()
+    private var compositions = 0
+
+    @Before
+    fun setUp() {
+        compose.mainClock.autoAdvance = false
+        compose.setContent {
+            // Même lecture que la page 0 du pager
+            val state = ui.dashboard
+            SideEffect { compositions++ }
+            DashboardPage(state, onAddWater = {}, onLongClick = {})
+        }
+        compose.mainClock.advanceTimeByFrame()
+        compositions = 0
+    }
+
+    @Test
+    fun accelerometerAloneNeverRecomposes() {
+        stream(SECONDS) { frame -> ui.motion = Motion(frame * 0.01f, 0f, 9.81f) }
+        assertEquals(0, compositions)
+    }
+
+    @Test
+    fun sensorStreamRecomposesAtTheDisplayedRate() {
+        // Accéléromètre à chaque frame, FC à 1 Hz, pas à 2 Hz, calories en centièmes
+        stream(SECONDS) { frame ->
+            ui.motion = Motion(frame * 0.01f, 0f, 9.81f)
+            if (frame % FPS == 0) ui.heartRate = 70 + frame / FPS % 20
+            if (frame % (FPS / 2) == 0) ui.steps += 1
+            ui.calories += 0.01
+        }
+        val perSecond = compositions.toDouble() / SECONDS
+        Log.i("DashboardRecomposition", "recompositions/s: $perSecond")
+        // Pas (2/s) + calories (0,6/s) au plus: jamais la cadence du capteur
+        assertTrue("recompositions/s: $perSecond", perSecond <= 3.0)
+    }
+
+    private fun stream(seconds: Int, onFrame: (Int) -> Unit) {
+        for (frame in 0 until seconds * FPS) {
+            compose.runOnIdle { onFrame(frame) }
+            compose.mainClock.advanceTimeByFrame()
+        }
+        compose.waitForIdle()
+    }
+
+    private companion object {
+        const val SECONDS = 10
+        const val FPS = 60
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.kaybeewear.complication
+
+import com.example.kaybee.core.engine.Glance
+import java.util.Locale
+
+/** What a complication shows; [value] is clamped to [min]..[max] for RANGED_VALUE. */
+data class ComplicationValue(val value: Float, val min: Float, val max: Float, val text: String, val title: String) {
+    companion object {
+        const val STEP_GOAL = 10_000f
+        const val HEART_RATE_STALE_MS = 15 * 60_000L
+
+        fun steps(glance: Glance): ComplicationValue {
+            // SHORT_TEXT n'affiche que quelques caractères: 12.3k au-delà de 10 000
+            val text = if (glance.steps >= 10_000L) String.format(Locale.US, "%.1fk", glance.steps / 1_000.0) else glance.steps.toString()
+            return ComplicationValue(glance.steps.toFloat(), 0f, STEP_GOAL, text, "pas")
+        }
+
+        fun heartRate(glance: Glance, now: Long): ComplicationValue? {
+            if (glance.heartRate <= 0 || now - glance.heartRateAt > HEART_RATE_STALE_MS) return null
+            return ComplicationValue(glance.heartRate.toFloat(), 40f, 200f, glance.heartRate.toString(), "bpm")
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.kaybeewear.complication
+
+import android.content.ComponentName
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import androidx.wear.watchface.complications.datasource.ComplicationDataSourceUpdateRequester
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.Sink
+import com.example.kaybee.core.engine.Glance
+import com.example.kaybee.core.engine.SyncScheduler
+import com.example.kaybee.shared.metrics.Metrics
+
+/**
+ * Pushes the complications when the value they display changes, at most once per interval
+ * per data source, to stay within the watch face update budget. The last value is never
+ * dropped: a change during the interval is pushed when it ends. A heart rate that is not
+ * renewed gets one more push when it becomes stale, so that the complication shows no data.
+ */
+object Complications {
+    private const val STEPS_INTERVAL_MS = 60_000L
+    private const val HEART_RATE_INTERVAL_MS = 30_000L
+
+    private class Pusher(context: Context, service: Class<*>, intervalMs: Long) {
+        private val requester = ComplicationDataSourceUpdateRequester.create(context, ComponentName(context, service))
+        private val pushes = Metrics.counter("complication.push")
+        private val scheduler = SyncScheduler(Sink { requester.requestUpdateAll(); pushes.inc() }, Clock.SYSTEM, intervalMs)
+        private val flush = Runnable { scheduler.flush() }
+        private var shown: ComplicationValue? = null
+
+        @Synchronized
+        fun offer(value: ComplicationValue?) {
+            if (value?.text == shown?.text) return
+            shown = value
+            val delayMs = scheduler.offer(mapOf("text" to (value?.text ?: "")))
+            if (delayMs > 0) handler.postDelayed(flush, delayMs)
+        }
+    }
+
+    private val handler = Handler(Looper.getMainLooper())
+
+    @Volatile
+    private var pushers: Pair<Pusher, Pusher>? = null
+    @Volatile
+    private var glance: Glance? = null
+    private val heartRateStale = Runnable {
+        val last = glance ?: return@Runnable
+        pushers?.second?.offer(ComplicationValue.heartRate(last, System.currentTimeMillis()))
+    }
+
+    fun publish(context: Context, glance: Glance) {
+        val (steps, heartRate) = pushers ?: synchronized(this) {
+            pushers ?: context.applicationContext.let {
+                Pusher(it, StepsComplicationService::class.java, STEPS_INTERVAL_MS) to
+                    Pusher(it, HeartRateComplicationService::class.java, HEART_RATE_INTERVAL_MS)
+            }.also { pushers = it }
+        }
+        this.glance = glance
+        val now = System.currentTimeMillis()
+        steps.offer(ComplicationValue.steps(glance))
+        heartRate.offer(ComplicationValue.heartRate(glance, now))
+
+        // Sans nouvel échantillon, personne ne republie: un seul push à l'échéance
+        handler.removeCallbacks(heartRateStale)
+        if (glance.heartRate > 0) {
+            val staleAt = glance.heartRateAt + ComplicationValue.HEART_RATE_STALE_MS + 1
+            if (staleAt > now) handler.postDelayed(heartRateStale, staleAt - now)
+        }
+    }
+}
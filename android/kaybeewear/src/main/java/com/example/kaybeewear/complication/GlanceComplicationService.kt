@@ -0,0 +1,59 @@
+package com.example.kaybeewear.complication
+
+import androidx.wear.watchface.complications.data.ComplicationData
+import androidx.wear.watchface.complications.data.ComplicationType
+import androidx.wear.watchface.complications.data.NoDataComplicationData
+import androidx.wear.watchface.complications.data.PlainComplicationText
+import androidx.wear.watchface.complications.data.RangedValueComplicationData
+import androidx.wear.watchface.complications.data.ShortTextComplicationData
+import androidx.wear.watchface.complications.datasource.ComplicationRequest
+import androidx.wear.watchface.complications.datasource.SuspendingComplicationDataSourceService
+import com.example.kaybee.core.engine.Glance
+import com.example.kaybeewear.data.Glances
+
+/**
+ * Serves one value of the [Glance] snapshot as RANGED_VALUE or SHORT_TEXT. Requests only read
+ * memory; new values are pushed by [Complications], the watch face never polls.
+ */
+abstract class GlanceComplicationService : SuspendingComplicationDataSourceService() {
+
+    /** Value to show, or null when there is none (no sample yet, stale heart rate). */
+    protected abstract fun valueOf(glance: Glance, now: Long): ComplicationValue?
+
+    override fun getPreviewData(type: ComplicationType): ComplicationData? =
+        build(type, valueOf(Glance(8_421L, 72, PREVIEW_AT, PREVIEW_AT), PREVIEW_AT))
+
+    override suspend fun onComplicationRequest(request: ComplicationRequest): ComplicationData? =
+        build(request.complicationType, valueOf(Glances.get(this).current(), System.currentTimeMillis()))
+
+    private fun build(type: ComplicationType, value: ComplicationValue?): ComplicationData? {
+        if (value == null) return NoDataComplicationData()
+        val text = PlainComplicationText.Builder(value.text).build()
+        val title = PlainComplicationText.Builder(value.title).build()
+        val description = PlainComplicationText.Builder("${value.text} ${value.title}").build()
+        return when (type) {
+            ComplicationType.RANGED_VALUE ->
+                RangedValueComplicationData.Builder(value.value.coerceIn(value.min, value.max), value.min, value.max, description)
+                    .setText(text)
+                    .setTitle(title)
+                    .build()
+            ComplicationType.SHORT_TEXT ->
+                ShortTextComplicationData.Builder(text, description)
+                    .setTitle(title)
+                    .build()
+            else -> null
+        }
+    }
+
+    private companion object {
+        const val PREVIEW_AT = 1L
+    }
+}
+
+class StepsComplicationService : GlanceComplicationService() {
+    override fun valueOf(glance: Glance, now: Long) = ComplicationValue.steps(glance)
+}
+
+class HeartRateComplicationService : GlanceComplicationService() {
+    override fun valueOf(glance: Glance, now: Long) = ComplicationValue.heartRate(glance, now)
+}
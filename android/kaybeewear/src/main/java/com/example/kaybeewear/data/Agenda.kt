@@ -0,0 +1,25 @@
+package com.example.kaybeewear.data
+
+import android.content.Context
+import com.example.kaybee.core.sync.AgendaCache
+import com.example.kaybee.shared.platform.SharedPreferencesStore
+
+/** Process-wide [AgendaCache] of the watch: the activity writes it, the tile and complication read it. */
+object Agenda {
+    private const val PREFS = "kaybee_agenda"
+
+    @Volatile
+    private var instance: AgendaCache? = null
+
+    fun get(context: Context): AgendaCache =
+        instance ?: synchronized(this) {
+            instance ?: AgendaCache(
+                SharedPreferencesStore(context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE))
+            ).also { instance = it }
+        }
+
+    // Tests JVM: remplace les préférences par un store en mémoire
+    internal fun install(cache: AgendaCache) {
+        instance = cache
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.kaybeewear.data
+
+import android.content.Context
+import androidx.wear.tiles.TileService
+import com.example.kaybee.core.engine.GlanceStore
+import com.example.kaybee.shared.platform.SharedPreferencesStore
+import com.example.kaybeewear.complication.Complications
+import com.example.kaybeewear.tile.MainTileService
+
+/**
+ * Process-wide [GlanceStore] of the watch: the health pipeline publishes into it, the tile and
+ * the complications read it. The tile is only asked to refresh when a value moved past its
+ * threshold.
+ */
+object Glances {
+    private const val PREFS = "kaybee_glance"
+
+    @Volatile
+    private var instance: GlanceStore? = null
+
+    fun get(context: Context): GlanceStore =
+        instance ?: synchronized(this) {
+            instance ?: GlanceStore(
+                SharedPreferencesStore(context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE))
+            ).also { instance = it }
+        }
+
+    // Tests JVM: remplace les préférences par un store en mémoire
+    internal fun install(store: GlanceStore) {
+        instance = store
+    }
+
+    fun publish(context: Context, steps: Long?, heartRate: Int?) {
+        val store = get(context)
+        if (store.publish(steps, heartRate, System.currentTimeMillis())) refresh(context)
+        // Les complications suivent chaque valeur affichée, avec leur propre limite de débit
+        Complications.publish(context, store.current())
+    }
+
+    /** Resets the glance of the previous account when the watch is paired with [uid]. */
+    fun switchUser(context: Context, uid: String) {
+        val store = get(context)
+        if (store.switchUser(uid)) {
+            refresh(context)
+            Complications.publish(context, store.current())
+        }
+    }
+
+    /** Asks the tile for a new request, e.g. when the agenda changed. */
+    fun refresh(context: Context) {
+        TileService.getUpdater(context).requestUpdate(MainTileService::class.java)
+    }
+}
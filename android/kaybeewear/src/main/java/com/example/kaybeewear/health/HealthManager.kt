@@ -10,18 +10,35 @@ import androidx.health.services.client.data.DataPointContainer
 import androidx.health.services.client.data.DataType
 import androidx.health.services.client.data.DeltaDataType
 import androidx.health.services.client.data.PassiveListenerConfig
-import androidx.health.services.client.data.SampleDataPoint
 import com.google.android.gms.tasks.Tasks
 import com.google.android.gms.wearable.Wearable
-import com.google.firebase.FirebaseApp
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.Sink
+import com.example.kaybee.core.engine.HeartRateSource
+import com.example.kaybee.core.engine.SamplingProfile
+import com.example.kaybee.core.engine.StepIncrements
+import com.example.kaybee.core.engine.SyncScheduler
+import com.example.kaybee.core.engine.WriteCoalescer
+import com.example.kaybee.shared.metrics.Metrics
+import com.example.kaybee.shared.metrics.TaskMetrics
+import com.example.kaybee.shared.platform.FirebaseWrites
+import com.example.kaybee.shared.platform.KaybeeDatabase
+import com.example.kaybee.shared.platform.OwnedScope
+import com.example.kaybee.shared.platform.SharedStreams
+import com.example.kaybee.shared.platform.values
+import com.example.kaybee.shared.timeseries.HealthTimeSeries
+import com.example.kaybeewear.data.Glances
 import com.google.firebase.database.DataSnapshot
-import com.google.firebase.database.DatabaseError
 import com.google.firebase.database.DatabaseReference
 import com.google.firebase.database.FirebaseDatabase
-import com.google.firebase.database.ValueEventListener
 import com.google.firebase.database.ServerValue
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
 import org.json.JSONObject
 
@@ -29,43 +46,56 @@ class HealthManager(private val context: Context) {
     private val healthClient = HealthServices.getClient(context)
     private val measureClient = healthClient.measureClient
     private val passiveMonitoringClient = healthClient.passiveMonitoringClient
-    private val scope = CoroutineScope(Dispatchers.IO)
+    // Annulé par close() (onDestroy de MainActivity): rien ne survit à l'écran
+    private val scope = OwnedScope("HealthManager")
     
-    private var database: DatabaseReference? = null
+    // Instance créée en arrière-plan par WatchInitializer: rien à attendre à la construction
+    private val database: DatabaseReference? get() = firebase()?.reference
+    private val writes: WriteCoalescer? get() = firebase()?.let { FirebaseWrites.get(it) }
     private var userId: String? = null
     
-    private var lastAccelSync = 0L
-    private val ACCEL_SYNC_INTERVAL_MS = 200L
+    private val LIVE_SYNC_INTERVAL_MS = 1_000L
 
-    init {
-        try {
-            // CORRECTION : Si Firebase n'est pas initialisé, on le force !
-            if (FirebaseApp.getApps(context).isEmpty()) {
-                FirebaseApp.initializeApp(context)
-            }
+    // Écritures live_data de l'utilisateur courant, limitées en débit par les SyncScheduler
+    // puis regroupées avec celles des autres écrivains du process
+    private val liveDataSink = Sink { fields ->
+        val uid = userId ?: return@Sink
+        writes?.at("users/$uid/live_data")?.update(fields)
+    }
+    private val measureEvents = Metrics.counter("health_services.measure")
+    private val liveDataScheduler = SyncScheduler(liveDataSink, Clock.SYSTEM, LIVE_SYNC_INTERVAL_MS)
 
-            // Maintenant on est sûr que ça existe, on se connecte
-            val fbInstance = FirebaseDatabase.getInstance("https://kaybee-fitness-default-rtdb.firebaseio.com/")
-            database = fbInstance.reference
-            fbInstance.goOnline()
+    // Historique local (graphiques/sync): incréments de pas; les BPM passent par HeartRates
+    private val stepIncrements = StepIncrements()
 
-            Log.d("HealthManager", "Firebase initialisé avec succès")
+    // Un seul listener RTDB par chemin, quel que soit le nombre d'appairages ou de collecteurs;
+    // attaché hors du thread principal (attend le warm-up si besoin), détaché 5 s après le dernier
+    private val paths = SharedStreams<String, DataSnapshot>(scope) { path ->
+        flow { firebase()?.getReference(path)?.let { emitAll(it.values()) } }
+            .catch { e -> Log.w("HealthManager", "Listener $path annulé", e) }
+    }
+
+    private fun firebase(): FirebaseDatabase? =
+        try {
+            KaybeeDatabase.get(context)
         } catch (e: Exception) {
             Log.e("HealthManager", "Erreur critique Firebase", e)
+            null
         }
-    }
 
     fun setUserId(id: String) {
         this.userId = id
+        HeartRates.setUserId(id)
     }
 
     private val heartRateCallback = object : MeasureCallback {
         override fun onAvailabilityChanged(dataType: DeltaDataType<*, *>, availability: Availability) {}
         override fun onDataReceived(data: DataPointContainer) {
-            val heartRateDataPoints = data.getData(DataType.HEART_RATE_BPM)
-            val heartRate = heartRateDataPoints.lastOrNull() as? SampleDataPoint<Double>
-            if (heartRate != null) {
-                syncHeartRateToFirebase(heartRate.value.toInt())
+            measureEvents.inc()
+            // Tous les points du lot, datés à la mesure: le merger choisit et ordonne
+            val boot = HeartRates.bootInstant()
+            for (point in data.getData(DataType.HEART_RATE_BPM)) {
+                HeartRates.offer(context, point.value.toInt(), point.getTimeInstant(boot).toEpochMilli(), HeartRateSource.MEASURE)
             }
         }
     }
@@ -74,39 +104,32 @@ class HealthManager(private val context: Context) {
         measureClient.registerMeasureCallback(DataType.HEART_RATE_BPM, heartRateCallback)
     }
 
-    fun syncHeartRateToFirebase(bpm: Int) {
-        val uid = userId ?: return
-        val updates = mapOf(
-            "heart_rate" to bpm,
-            "source" to "watch",
-            "timestamp" to ServerValue.TIMESTAMP
-        )
-        database?.child("users")?.child(uid)?.child("live_data")?.updateChildren(updates)
-    }
-
-    fun syncAccelerometerToFirebase(x: Float, y: Float, z: Float) {
-        val uid = userId ?: return
-        val now = System.currentTimeMillis()
-        if (now - lastAccelSync < ACCEL_SYNC_INTERVAL_MS) return
-        
-        lastAccelSync = now
-        val updates = mapOf(
-            "accel_x" to x,
-            "accel_y" to y,
-            "accel_z" to z,
-            "last_update" to ServerValue.TIMESTAMP
-        )
-        database?.child("users")?.child(uid)?.child("live_data")?.updateChildren(updates)
+    /** Publish cadence of the current activity state. */
+    fun applySamplingProfile(profile: SamplingProfile) {
+        liveDataScheduler.minIntervalMs = profile.livePublishMs
+        HeartRates.setPublishInterval(profile.livePublishMs)
     }
 
     fun syncStepsToFirebase(steps: Long) {
-        val uid = userId ?: return
+        val increment = stepIncrements.next(steps)
+        if (increment > 0) HealthTimeSeries.append(context, HealthTimeSeries.STEPS, System.currentTimeMillis(), increment)
+        Glances.publish(context, steps, null)
+        if (userId == null) return
         val updates = mapOf(
             "steps" to steps,
             "source" to "watch",
             "last_update" to ServerValue.TIMESTAMP
         )
-        database?.child("users")?.child(uid)?.child("live_data")?.updateChildren(updates)
+        scheduleFlush(liveDataScheduler, liveDataScheduler.offer(updates))
+    }
+
+    // Les valeurs reçues pendant l'intervalle partent ensemble (la dernière gagne)
+    private fun scheduleFlush(scheduler: SyncScheduler, delayMs: Long) {
+        if (delayMs <= 0) return
+        scope.launch {
+            delay(delayMs)
+            scheduler.flush()
+        }
     }
 
     fun addWater(amount: Double) {
@@ -114,12 +137,14 @@ class HealthManager(private val context: Context) {
         val ref = database?.child("users")?.child(uid)?.child("live_data")?.child("water")
         ref?.get()?.addOnSuccessListener {
             val current = (it.value as? Number)?.toDouble() ?: 0.0
-            ref.setValue(current + amount)
+            TaskMetrics.track("firebase.write", ref.setValue(current + amount))
         }
     }
 
+    // Action visible sur la montre: part tout de suite, avec ce qui attendait le prochain tick
     fun updateSessionLog(uid: String, logKey: String, updates: Map<String, Any>) {
-        database?.child("users")?.child(uid)?.child("live_data")?.child("session")?.child("logs")?.child(logKey)?.updateChildren(updates)
+        val log = "users/$uid/live_data/session/logs/$logKey"
+        writes?.offer(updates.mapKeys { "$log/${it.key}" }, urgent = true)
     }
 
     fun startPassiveMonitoring() {
@@ -133,20 +158,21 @@ class HealthManager(private val context: Context) {
         }
     }
 
-    fun listenToUserData(onDataChange: (DataSnapshot) -> Unit) {
-        val uid = userId ?: return
-        database?.child("users")?.child(uid)?.addValueEventListener(object : ValueEventListener {
-            override fun onDataChange(snapshot: DataSnapshot) = onDataChange(snapshot)
-            override fun onCancelled(error: DatabaseError) {}
-        })
+    /**
+     * Releases what this manager started: the measure callback, the delayed flushes (their
+     * pending values are written now) and the RTDB listeners. Passive monitoring stays on.
+     */
+    fun close() {
+        measureClient.unregisterMeasureCallbackAsync(DataType.HEART_RATE_BPM, heartRateCallback)
+        scope.close()
+        liveDataScheduler.flush()
     }
 
-    fun monitorFirebaseConnection(onStatusChange: (Boolean) -> Unit) {
-        database?.root?.child(".info/connected")?.addValueEventListener(object : ValueEventListener {
-            override fun onDataChange(snapshot: DataSnapshot) {
-                onStatusChange(snapshot.getValue(Boolean::class.java) ?: false)
-            }
-            override fun onCancelled(error: DatabaseError) {}
-        })
-    }
+    /** Snapshots of users/[uid]; every collector shares the one listener on that path. */
+    fun userData(uid: String): Flow<DataSnapshot> = paths.get("users/$uid")
+
+    /** State of the RTDB socket, from `.info/connected`. */
+    val connected: Flow<Boolean> = paths.get(".info/connected")
+        .map { it.getValue(Boolean::class.java) ?: false }
+        .distinctUntilChanged()
 }
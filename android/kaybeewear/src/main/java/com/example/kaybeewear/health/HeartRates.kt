@@ -0,0 +1,114 @@
+package com.example.kaybeewear.health
+
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.Sink
+import com.example.kaybee.core.engine.HeartRateEngine
+import com.example.kaybee.core.engine.HeartRateMerger
+import com.example.kaybee.core.engine.HeartRateSample
+import com.example.kaybee.core.engine.HeartRateSource
+import com.example.kaybee.core.engine.SyncScheduler
+import com.example.kaybee.core.engine.TraceSampler
+import com.example.kaybee.shared.metrics.Metrics
+import com.example.kaybee.shared.platform.FirebaseWrites
+import com.example.kaybee.shared.platform.KaybeeDatabase
+import com.example.kaybee.shared.timeseries.HealthTimeSeries
+import com.example.kaybee.shared.trace.Traces
+import com.example.kaybeewear.data.Glances
+import com.google.firebase.database.ServerValue
+import java.time.Instant
+
+/**
+ * The watch's single heart-rate stream. MeasureClient, the raw sensor and passive batches all
+ * [offer] here; the [HeartRateMerger] output alone feeds the local history, the glance snapshot
+ * and `live_data/heart_rate`, whether or not the activity is running. Samples arriving after
+ * their merge window (passive batches minutes late) only go to the history.
+ *
+ * A [TRACE_SAMPLE_RATE] fraction of the samples carries a trace in the same update, timed by
+ * the phone up to its WebView (see [Traces]).
+ */
+object HeartRates {
+    private const val LIVE_SYNC_INTERVAL_MS = 1_000L
+    private const val TRACE_SAMPLE_RATE = 0.2
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val merger = HeartRateMerger()
+    private val merged = Metrics.counter("heart_rate.merged")
+    private val backfilled = Metrics.counter("heart_rate.backfilled")
+    private val traced = Metrics.counter("trace.sent")
+    private val traces = TraceSampler(TRACE_SAMPLE_RATE)
+
+    @Volatile
+    private var userId: String? = null
+    private var appContext: Context? = null
+
+    private val liveData = Sink { fields ->
+        val uid = userId ?: return@Sink
+        val context = appContext ?: return@Sink
+        FirebaseWrites.get(KaybeeDatabase.get(context)).at("users/$uid/live_data").update(fields)
+    }
+    private val scheduler = SyncScheduler(liveData, Clock.SYSTEM, LIVE_SYNC_INTERVAL_MS)
+    // Horodatage serveur comme avant le passage par :core: comparable entre montre et téléphone
+    private val engine = HeartRateEngine(scheduler, serverTimestamp = ServerValue.TIMESTAMP)
+    private val flushLiveData = Runnable { scheduler.flush() }
+    private val advance = Runnable { synchronized(this) { drain(merger.advance(System.currentTimeMillis())) } }
+
+    fun setUserId(id: String) {
+        userId = id
+    }
+
+    fun setPublishInterval(intervalMs: Long) {
+        scheduler.minIntervalMs = intervalMs
+    }
+
+    /** [timestamp] is the measurement time in epoch ms, see [epochOfElapsed] for sensor events. */
+    @Synchronized
+    fun offer(context: Context, bpm: Int, timestamp: Long, source: HeartRateSource) {
+        if (appContext == null) {
+            appContext = context.applicationContext
+            // Process lancé par Health Services sans l'activité: l'id vient des préférences
+            if (userId == null) userId = context.getSharedPreferences("kaybee_prefs", Context.MODE_PRIVATE).getString("userId", null)
+        }
+        drain(merger.offer(HeartRateSample(bpm, timestamp, source), System.currentTimeMillis()))
+        backfill(merger.takeBackfill())
+    }
+
+    /** Boot time as an [Instant], to date Health Services data points. */
+    fun bootInstant(): Instant = Instant.ofEpochMilli(System.currentTimeMillis() - SystemClock.elapsedRealtime())
+
+    fun epochOfElapsed(elapsedMs: Long): Long = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - elapsedMs)
+
+    private fun drain(samples: List<HeartRateSample>) {
+        val context = appContext ?: return
+        for (sample in samples) {
+            HealthTimeSeries.append(context, HealthTimeSeries.HEART_RATE, sample.timestamp, sample.bpm.toLong())
+            Glances.publish(context, null, sample.bpm)
+            merged.inc()
+            val delayMs = engine.onSample(sample.bpm, sample.timestamp, traceFields())
+            if (delayMs > 0) handler.postDelayed(flushLiveData, delayMs)
+        }
+
+        // Le dernier échantillon part même si aucune source ne parle plus
+        handler.removeCallbacks(advance)
+        val deadline = merger.nextDeadline()
+        if (deadline > 0) handler.postDelayed(advance, deadline - System.currentTimeMillis())
+    }
+
+    // Trop tard pour la valeur en direct: historique local seulement
+    private fun backfill(samples: List<HeartRateSample>) {
+        val context = appContext ?: return
+        for (sample in samples) {
+            HealthTimeSeries.append(context, HealthTimeSeries.HEART_RATE, sample.timestamp, sample.bpm.toLong())
+            backfilled.inc()
+        }
+    }
+
+    private fun traceFields(): Map<String, Any> {
+        val id = traces.next() ?: return emptyMap()
+        traced.inc()
+        return mapOf(Traces.LIVE_DATA_FIELD to mapOf("id" to id, Traces.WATCH_SEND to System.currentTimeMillis()))
+    }
+}
@@ -5,28 +5,21 @@ import android.util.Log
 import androidx.health.services.client.PassiveListenerService
 import androidx.health.services.client.data.DataPointContainer
 import androidx.health.services.client.data.DataType
-import com.google.android.gms.tasks.Tasks
-import com.google.android.gms.wearable.Wearable
-import com.google.firebase.database.FirebaseDatabase
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
-import org.json.JSONObject
+import com.example.kaybee.core.engine.HeartRateSource
+import com.example.kaybee.shared.metrics.Metrics
+import com.example.kaybee.shared.platform.FirebaseWrites
+import com.example.kaybee.shared.platform.KaybeeDatabase
+import com.example.kaybeewear.data.Glances
 import java.text.SimpleDateFormat
 import java.util.Date
 import java.util.Locale
 
 class PassiveDataReceiver : PassiveListenerService() {
-    private val scope = CoroutineScope(Dispatchers.IO)
-
-    private val database by lazy {
-        val fb = FirebaseDatabase.getInstance("https://kaybee-fitness-default-rtdb.firebaseio.com/")
-        try { fb.setPersistenceEnabled(true) } catch (e: Exception) {}
-        fb.goOnline()
-        fb.reference
-    }
+    // Même coalesceur que HealthManager: un seul updateChildren par tick pour tout le process
+    private val writes by lazy { FirebaseWrites.get(KaybeeDatabase.get(this)) }
 
     override fun onNewDataPointsReceived(dataPoints: DataPointContainer) {
+        Metrics.counter("health_services.passive").inc()
         processDataPoints(dataPoints)
     }
 
@@ -34,17 +27,25 @@ class PassiveDataReceiver : PassiveListenerService() {
         val steps = dataPoints.getData(DataType.STEPS_DAILY).lastOrNull()?.value
         val calories = dataPoints.getData(DataType.CALORIES_TOTAL)?.total
         val distance = dataPoints.getData(DataType.DISTANCE_TOTAL)?.total
-        val heartRate = dataPoints.getData(DataType.HEART_RATE_BPM).lastOrNull()?.value
+        val heartRates = dataPoints.getData(DataType.HEART_RATE_BPM)
+        val heartRate = heartRates.lastOrNull()?.value
 
         if (steps != null || calories != null || heartRate != null) {
             Log.d("KaybeeSync", "⌚ WATCH DATA: Steps: $steps | BPM: $heartRate")
 
-            sendUpdateToPhone(steps, calories, distance, heartRate?.toInt())
-            syncToFirebase(steps, calories, distance, heartRate?.toInt())
+            steps?.let { Glances.publish(this, it, null) }
+
+            syncToFirebase(steps, calories, distance)
+
+            // heart_rate n'est écrit que par HeartRates, après fusion des sources
+            val boot = HeartRates.bootInstant()
+            for (point in heartRates) {
+                HeartRates.offer(this, point.value.toInt(), point.getTimeInstant(boot).toEpochMilli(), HeartRateSource.PASSIVE)
+            }
         }
     }
 
-    private fun syncToFirebase(steps: Long?, calories: Double?, distance: Double?, heartRate: Int?) {
+    private fun syncToFirebase(steps: Long?, calories: Double?, distance: Double?) {
         val prefs = getSharedPreferences("kaybee_prefs", Context.MODE_PRIVATE)
         val userId = prefs.getString("userId", null) ?: return
 
@@ -58,33 +59,7 @@ class PassiveDataReceiver : PassiveListenerService() {
 
         steps?.let { updates["steps"] = it }
         calories?.let { updates["calories_burned"] = it }
-        heartRate?.let { updates["heart_rate"] = it }
 
-        database.child("users").child(userId).child("live_data").updateChildren(updates)
-            .addOnFailureListener { e -> Log.e("KaybeeSync", "Firebase Watch Sync Error: ${e.message}") }
-    }
-
-    private fun sendUpdateToPhone(steps: Long?, calories: Double?, distance: Double?, heartRate: Int?) {
-        scope.launch {
-            try {
-                val nodeClient = Wearable.getNodeClient(this@PassiveDataReceiver)
-                val nodes = Tasks.await(nodeClient.connectedNodes)
-                if (nodes.isEmpty()) return@launch
-
-                val json = JSONObject().apply {
-                    put("type", "passive_update")
-                    steps?.let { put("steps", it) }
-                    heartRate?.let { put("heart_rate", it) }
-                    put("timestamp", System.currentTimeMillis())
-                }
-
-                for (node in nodes) {
-                    Wearable.getMessageClient(this@PassiveDataReceiver)
-                        .sendMessage(node.id, "/health-data", json.toString().toByteArray())
-                }
-            } catch (e: Exception) {
-                Log.e("KaybeeSync", "Bluetooth Send Error: ${e.message}")
-            }
-        }
+        writes.at("users/$userId/live_data").update(updates)
     }
 }
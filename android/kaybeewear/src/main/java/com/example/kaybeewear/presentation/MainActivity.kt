@@ -1,19 +1,15 @@
 package com.example.kaybeewear.presentation
 
 import android.Manifest
-import android.annotation.SuppressLint
 import android.content.Context
 import android.content.pm.PackageManager
 import android.hardware.Sensor
 import android.hardware.SensorEvent
-import android.hardware.SensorEventListener
-import android.hardware.SensorManager
 import android.os.Build
 import android.os.Bundle
-import android.os.CountDownTimer
-import android.os.VibrationEffect
-import android.os.Vibrator
-import android.os.VibratorManager
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
 import android.util.Log
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
@@ -36,26 +32,51 @@ import androidx.compose.ui.draw.clip
 import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.graphics.vector.ImageVector
 import androidx.compose.ui.input.pointer.pointerInput
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalLifecycleOwner
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
 import androidx.core.content.ContextCompat
 import androidx.wear.compose.foundation.lazy.ScalingLazyColumn
 import androidx.wear.compose.foundation.lazy.items
 import androidx.wear.compose.foundation.lazy.itemsIndexed
 import androidx.wear.compose.material.*
+import com.example.kaybee.core.Clock
+import com.example.kaybee.core.engine.ActivityState
+import com.example.kaybee.core.engine.ActivityStateMachine
+import com.example.kaybee.core.engine.HeartRateSource
+import com.example.kaybee.core.engine.IntervalTimer
+import com.example.kaybee.core.engine.SamplingProfile
+import com.example.kaybee.core.sync.AgendaCache
+import com.example.kaybee.core.sync.ScheduleDay
+import com.example.kaybee.core.sync.SessionData
+import com.example.kaybee.core.sync.SessionLogStore
+import com.example.kaybee.core.sync.SessionSet
+import com.example.kaybee.core.sync.WearPayloads
+import com.example.kaybee.shared.metrics.Metrics
+import com.example.kaybee.shared.platform.FirebaseWrites
+import com.example.kaybee.shared.platform.OwnedScope
+import com.example.kaybee.shared.sensor.SensorSessionManager
+import com.example.kaybee.shared.sensor.SensorSessions
+import com.example.kaybeewear.data.Agenda
+import com.example.kaybeewear.data.Glances
 import com.example.kaybeewear.health.HealthManager
+import com.example.kaybeewear.health.HeartRates
+import com.example.kaybeewear.timer.RestTimers
 import com.google.android.gms.tasks.Tasks
 import com.google.android.gms.wearable.MessageClient
 import com.google.android.gms.wearable.MessageEvent
 import com.google.android.gms.wearable.Wearable
 import com.google.firebase.database.DataSnapshot
 import com.google.firebase.database.ServerValue
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
-import org.json.JSONObject
 import java.text.SimpleDateFormat
 import java.util.Date
 import java.util.Locale
@@ -66,43 +87,48 @@ val DarkBg = Color(0xFF0a0a0f)
 val CardBg = Color(0xFF1a1a20)
 val WaterBlue = Color(0xFF3b82f6)
 
-class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListener, SensorEventListener {
+class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListener {
 
-    private var heartRate by mutableIntStateOf(0)
-    private var stepCount by mutableLongStateOf(0L)
-    private var caloriesBurned by mutableDoubleStateOf(0.0)
-    private var waterLevel by mutableDoubleStateOf(0.0)
-    private var todayNutrition by mutableStateOf(NutritionData())
+    // État lu par les pages: setContent ne lit rien, chaque page lit son propre instantané
+    private val ui = WearUiState()
+    private var heartRate by ui::heartRate
+    private var stepCount by ui::steps
+    private var caloriesBurned by ui::calories
+    private var waterLevel by ui::water
+    private var todayNutrition by ui::nutrition
 
-    private var accelX by mutableFloatStateOf(0f)
-    private var accelY by mutableFloatStateOf(0f)
-    private var accelZ by mutableFloatStateOf(0f)
-    
-    private var isPhoneConnected by mutableStateOf(false)
-    private var lastFirebaseSync by mutableStateOf("Jamais")
-    private var firebaseSocketConnected by mutableStateOf(false)
-    private var firebaseDataFound by mutableStateOf(false)
+    private var isPhoneConnected by ui::phoneConnected
+    private var lastFirebaseSync by ui::lastSync
+    private var firebaseSocketConnected by ui::socketConnected
+    private var firebaseDataFound by ui::dataFound
 
     private val defaultWeekly = listOf(
         ScheduleDay("Lundi", "Repos"), ScheduleDay("Mardi", "Repos"), ScheduleDay("Mercredi", "Repos"),
         ScheduleDay("Jeudi", "Repos"), ScheduleDay("Vendredi", "Repos"), ScheduleDay("Samedi", "Repos"), ScheduleDay("Dimanche", "Repos")
     )
-    private var weeklySummary by mutableStateOf(defaultWeekly)
+    private var weeklySummary by ui::weeklySummary
+    private lateinit var agenda: AgendaCache
     private var isCoach by mutableStateOf(false)
-    private var currentUserId by mutableStateOf<String?>(null)
+    private var currentUserId by ui::uid
+    private var userDataJob: Job? = null
 
     // Session Active
-    private var activeSession by mutableStateOf<SessionData?>(null)
-    private var sessionDurationSeconds by mutableLongStateOf(0L)
+    private var activeSession by ui::activeSession
+    private var sessionDurationSeconds by ui::sessionDurationSeconds
     private var isSessionRunning by mutableStateOf(false)
-    private var restTimeLeft by mutableIntStateOf(0)
-    private var isResting by mutableStateOf(false)
-    private var restTimer: CountDownTimer? = null
+    // Séries modifiées sur la montre: affichées tout de suite, envoyées après la rafale de taps
+    private val sessionLogs = SessionLogStore(Clock.SYSTEM)
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val flushSetLogs = Runnable { writeSetLogs() }
 
     // Run Session
-    private var isRunningActive by mutableStateOf(false)
+    private var isRunningActive by ui::running
 
-    private lateinit var sensorManager: SensorManager
+    private val messagesReceived = Metrics.counter("wearable.receive")
+
+    private lateinit var sensorSessions: SensorSessionManager<SensorEvent>
+    // Cadence + FC -> repos/marche/séance/course: pilote les fréquences capteurs et la cadence d'envoi
+    private val activityState = ActivityStateMachine(onChange = ::applyActivityState)
     private lateinit var healthManager: HealthManager
 
     private val requestPermissionLauncher = registerForActivityResult(
@@ -113,40 +139,43 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        sensorManager = getSystemService(Context.SENSOR_SERVICE) as SensorManager
+        sensorSessions = SensorSessions.get(this)
         healthManager = HealthManager(this)
+        healthManager.applySamplingProfile(SamplingProfile.of(activityState.state))
+        RestTimers.restore(this)
+        agenda = Agenda.get(this)
+        weeklySummary = agenda.days().ifEmpty { defaultWeekly }
 
         val savedUserId = getSharedPreferences("kaybee_prefs", Context.MODE_PRIVATE).getString("userId", null)
         if (savedUserId != null) {
             currentUserId = savedUserId
+            scopeCachesTo(savedUserId)
             healthManager.setUserId(savedUserId)
             startFirebaseSync()
         } else {
             requestAutoPairing()
         }
 
-        healthManager.monitorFirebaseConnection { connected -> firebaseSocketConnected = connected }
+        lifecycleScope.launch {
+            repeatOnLifecycle(Lifecycle.State.STARTED) {
+                healthManager.connected.collect { connected -> firebaseSocketConnected = connected }
+            }
+        }
         checkConnection()
 
         setContent {
             WearApp(
-                heartRate = heartRate, stepCount = stepCount.toInt(), calories = caloriesBurned.toInt(),
-                nutrition = todayNutrition, water = waterLevel,
-                weeklySummary = weeklySummary,
-                isCoach = isCoach,
-                activeSession = activeSession, sessionDuration = sessionDurationSeconds,
-                restTime = restTimeLeft, isResting = isResting,
-                isRunningActive = isRunningActive,
-                isPhoneConnected = isPhoneConnected, firebaseSocketConnected = firebaseSocketConnected,
-                firebaseDataFound = firebaseDataFound, lastSync = lastFirebaseSync, currentUid = currentUserId ?: "N/A",
-                accel = Triple(accelX, accelY, accelZ),
+                ui = ui,
                 onAddWater = { amount -> healthManager.addWater(amount) },
                 onStartRest = { duration -> startRestTimer(duration) },
                 onStopSession = { stopSessionLocally() },
                 onUpdateSet = { groupIdx, exoIdx, setIdx, weight, reps, done -> updateSetData(groupIdx, exoIdx, setIdx, weight, reps, done) },
                 onAdjustWeight = { groupIdx, exoIdx, setIdx, delta -> adjustWeight(groupIdx, exoIdx, setIdx, delta) },
                 onRetryPair = { requestAutoPairing() },
-                onToggleRun = { isRunningActive = !isRunningActive }
+                onToggleRun = {
+                    isRunningActive = !isRunningActive
+                    updateWorkoutState()
+                }
             )
         }
         checkAndRequestPermissions()
@@ -167,18 +196,34 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
     }
 
     private fun startFirebaseSync() {
-        healthManager.listenToUserData { snapshot ->
-            if (snapshot.exists()) {
-                firebaseDataFound = true
-                lastFirebaseSync = SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(Date())
-                updateUIFromSnapshot(snapshot)
-            } else {
-                firebaseDataFound = false
+        val uid = currentUserId ?: return
+        // Un appairage répété remplace le collecteur: le listener users/$uid reste unique
+        userDataJob?.cancel()
+        userDataJob = lifecycleScope.launch {
+            repeatOnLifecycle(Lifecycle.State.STARTED) {
+                healthManager.userData(uid).collect { snapshot ->
+                    if (snapshot.exists()) {
+                        firebaseDataFound = true
+                        lastFirebaseSync = SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(Date())
+                        updateUIFromSnapshot(uid, snapshot)
+                    } else {
+                        firebaseDataFound = false
+                    }
+                }
             }
         }
     }
 
-    private fun updateUIFromSnapshot(snapshot: DataSnapshot) {
+    // Agenda, tuile et complications appartiennent au compte appairé: un autre uid repart de zéro
+    private fun scopeCachesTo(uid: String) {
+        if (agenda.switchUser(uid)) {
+            weeklySummary = defaultWeekly
+            Glances.refresh(this)
+        }
+        Glances.switchUser(this, uid)
+    }
+
+    private fun updateUIFromSnapshot(uid: String, snapshot: DataSnapshot) {
         try {
             val liveData = snapshot.child("live_data")
             stepCount = (liveData.child("steps").value as? Number)?.toLong() ?: stepCount
@@ -186,75 +231,19 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
             heartRate = (liveData.child("heart_rate").value as? Number)?.toInt() ?: heartRate
             waterLevel = (liveData.child("water").value as? Number)?.toDouble() ?: waterLevel
             
-            // Sync Agenda from Firebase
-            val scheduleSnap = snapshot.child("schedule")
-            if (scheduleSnap.exists()) {
-                val newSchedule = mutableListOf<ScheduleDay>()
-                scheduleSnap.children.forEach { daySnap ->
-                    val dayName = daySnap.key ?: "Jour"
-                    val workout = daySnap.child("workout").getValue(String::class.java) ?: "Repos"
-                    newSchedule.add(ScheduleDay(dayName, workout))
-                }
-                if (newSchedule.isNotEmpty()) weeklySummary = newSchedule
+            // Agenda: persisté seulement quand la branche schedule change
+            if (agenda.update(uid, snapshot.child("schedule").value)) {
+                weeklySummary = agenda.days()
+                Glances.refresh(this)
             }
 
             val sessionSnap = liveData.child("session")
-            if (sessionSnap.exists() && sessionSnap.child("active").getValue(Boolean::class.java) == true) {
+            val session = sessionLogs.onServer(sessionSnap.value)
+            if (session != null) {
                 isSessionRunning = true
+                updateWorkoutState()
                 sessionDurationSeconds = (sessionSnap.child("elapsedSeconds").value as? Number)?.toLong() ?: 0L
-                
-                val workoutName = sessionSnap.child("workoutName").getValue(String::class.java) ?: "Séance"
-                val groupsSnap = sessionSnap.child("groups")
-                val logsSnap = sessionSnap.child("logs")
-                
-                val groupsList = mutableListOf<SessionGroup>()
-                
-                if (groupsSnap.exists()) {
-                    groupsSnap.children.forEachIndexed { groupIdx, gSnap ->
-                        val setType = gSnap.child("setType").getValue(String::class.java) ?: "straight"
-                        val setsCount = (gSnap.child("sets").value as? Number)?.toInt() ?: 3
-                        val restDefault = (gSnap.child("rest").value as? Number)?.toInt() ?: 60
-                        
-                        val exercisesList = mutableListOf<SessionExercise>()
-                        gSnap.child("exercises").children.forEachIndexed { exoIdx, eSnap ->
-                            val exoName = eSnap.child("name").getValue(String::class.java) ?: "Exo"
-                            val repsDefault = (eSnap.child("reps").value as? Number)?.toInt() ?: 10
-                            val weightDefault = (eSnap.child("weight").value as? Number)?.toFloat() ?: 0f
-                            
-                            val setsList = mutableListOf<SessionSet>()
-                            for (setIdx in 0 until setsCount) {
-                                val logKey = "$groupIdx-$exoIdx-$setIdx"
-                                val logSnap = logsSnap.child(logKey)
-                                val isDone = logSnap.child("done").getValue(Boolean::class.java) ?: false
-                                val weight = (logSnap.child("weight").value as? Number)?.toFloat() ?: weightDefault
-                                val reps = (logSnap.child("reps").value as? Number)?.toInt() ?: repsDefault
-                                setsList.add(SessionSet(weight, reps, isDone))
-                            }
-                            exercisesList.add(SessionExercise(exoName, setsList, restDefault))
-                        }
-                        groupsList.add(SessionGroup(setType, exercisesList, setsCount, restDefault))
-                    }
-                } else {
-                    val exosSnap = sessionSnap.child("exercises")
-                    exosSnap.children.forEachIndexed { exoIdx, eSnap ->
-                        val setsCount = (eSnap.child("sets").value as? Number)?.toInt() ?: 3
-                        val repsDefault = (eSnap.child("reps").value as? Number)?.toInt() ?: 10
-                        val weightDefault = (eSnap.child("weight").value as? Number)?.toFloat() ?: 0f
-                        
-                        val setsList = mutableListOf<SessionSet>()
-                        for (setIdx in 0 until setsCount) {
-                            val logKey = "$exoIdx-$setIdx"
-                            val logSnap = logsSnap.child(logKey)
-                            val isDone = logSnap.child("done").getValue(Boolean::class.java) ?: false
-                            val weight = (logSnap.child("weight").value as? Number)?.toFloat() ?: weightDefault
-                            val reps = (logSnap.child("reps").value as? Number)?.toInt() ?: repsDefault
-                            setsList.add(SessionSet(weight, reps, isDone))
-                        }
-                        val exo = SessionExercise(eSnap.child("name").getValue(String::class.java) ?: "Exo", setsList, (eSnap.child("rest").value as? Number)?.toInt() ?: 60)
-                        groupsList.add(SessionGroup("straight", listOf(exo), setsCount, exo.rest))
-                    }
-                }
-                activeSession = SessionData(workoutName, groupsList)
+                activeSession = session
             } else if (isSessionRunning) {
                 stopSessionLocally()
             }
@@ -275,15 +264,21 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
     override fun onResume() {
         super.onResume()
         Wearable.getMessageClient(this).addListener(this)
-        val sensors = listOf(Sensor.TYPE_HEART_RATE, Sensor.TYPE_STEP_DETECTOR, Sensor.TYPE_ACCELEROMETER)
-        sensors.forEach { type -> sensorManager.getDefaultSensor(type)?.let { sensorManager.registerListener(this, it, SensorManager.SENSOR_DELAY_UI) } }
+        acquireSensors(SamplingProfile.of(activityState.state))
         checkConnection()
     }
 
     override fun onPause() {
         super.onPause()
         Wearable.getMessageClient(this).removeListener(this)
-        sensorManager.unregisterListener(this)
+        sensorSessions.releaseAll(SENSOR_CONSUMER)
+        mainHandler.removeCallbacks(flushSetLogs)
+        writeSetLogs()
+    }
+
+    override fun onDestroy() {
+        healthManager.close()
+        super.onDestroy()
     }
 
     private fun checkConnection() {
@@ -291,27 +286,29 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
     }
 
     private fun requestAutoPairing() {
-        CoroutineScope(Dispatchers.IO).launch {
+        lifecycleScope.launch(OwnedScope.io) {
             try {
                 val nodes = Tasks.await(Wearable.getNodeClient(this@MainActivity).connectedNodes)
-                for (node in nodes) Wearable.getMessageClient(this@MainActivity).sendMessage(node.id, "/request-pair", null)
+                for (node in nodes) Wearable.getMessageClient(this@MainActivity).sendMessage(node.id, WearPayloads.PATH_REQUEST_PAIR, null)
             } catch (e: Exception) { Log.e("KaybeeWear", "Pair Error", e) }
         }
     }
 
     override fun onMessageReceived(messageEvent: MessageEvent) {
+        messagesReceived.inc()
         isPhoneConnected = true
         when (messageEvent.path) {
-            "/pair" -> {
-                try {
-                    val uid = JSONObject(String(messageEvent.data)).getString("userId")
-                    if (uid.isNotEmpty()) {
-                        currentUserId = uid
-                        getSharedPreferences("kaybee_prefs", Context.MODE_PRIVATE).edit().putString("userId", uid).apply()
-                        healthManager.setUserId(uid)
-                        startFirebaseSync()
-                    }
-                } catch (e: Exception) { Log.e("KaybeeWear", "Pair Error", e) }
+            WearPayloads.PATH_PAIR -> {
+                val uid = WearPayloads.decodePair(messageEvent.data)
+                if (uid != null) {
+                    currentUserId = uid
+                    scopeCachesTo(uid)
+                    getSharedPreferences("kaybee_prefs", Context.MODE_PRIVATE).edit().putString("userId", uid).apply()
+                    healthManager.setUserId(uid)
+                    startFirebaseSync()
+                } else {
+                    Log.e("KaybeeWear", "Pair Error: invalid payload")
+                }
             }
             "/start-session" -> { /* Sync via RTDB */ }
             "/stop-session" -> stopSessionLocally()
@@ -319,16 +316,13 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
     }
 
     private fun updateSetData(groupIdx: Int, exoIdx: Int, setIdx: Int, weight: Float, reps: Int, done: Boolean) {
-        val uid = currentUserId ?: return
+        if (currentUserId == null) return
         val logKey = if (groupIdx >= 0) "$groupIdx-$exoIdx-$setIdx" else "$exoIdx-$setIdx"
-        val updates = mapOf(
-            "done" to done,
-            "weight" to weight,
-            "reps" to reps,
-            "timestamp" to ServerValue.TIMESTAMP
-        )
-        healthManager.updateSessionLog(uid, logKey, updates)
-        
+        val delayMs = sessionLogs.edit(logKey, weight, reps, done)
+        activeSession = sessionLogs.session
+        mainHandler.removeCallbacks(flushSetLogs)
+        if (delayMs > 0) mainHandler.postDelayed(flushSetLogs, delayMs) else writeSetLogs()
+
         if (done) {
             val group = activeSession?.groups?.getOrNull(groupIdx)
             val isLastExo = group != null && exoIdx == group.exercises.size - 1
@@ -339,84 +333,80 @@ class MainActivity : ComponentActivity(), MessageClient.OnMessageReceivedListene
         }
     }
 
+    private fun writeSetLogs() {
+        val uid = currentUserId ?: return
+        for ((logKey, fields) in sessionLogs.drain()) {
+            healthManager.updateSessionLog(uid, logKey, fields + ("timestamp" to ServerValue.TIMESTAMP))
+        }
+    }
+
     private fun adjustWeight(groupIdx: Int, exoIdx: Int, setIdx: Int, delta: Float) {
         val group = activeSession?.groups?.getOrNull(groupIdx) ?: return
         val set = group.exercises.getOrNull(exoIdx)?.sets?.getOrNull(setIdx) ?: return
         updateSetData(groupIdx, exoIdx, setIdx, (set.weight + delta).coerceAtLeast(0f), set.reps, set.isDone)
     }
 
+    // Une seule alarme à l'échéance: la vibration et l'enchaînement survivent à l'activité
     private fun startRestTimer(duration: Int) {
-        restTimer?.cancel()
-        isResting = true
-        restTimeLeft = duration
-        restTimer = object : CountDownTimer((duration * 1000).toLong(), 1000) {
-            override fun onTick(ms: Long) { restTimeLeft = (ms / 1000).toInt() }
-            override fun onFinish() { 
-                isResting = false; restTimeLeft = 0
-                vibrate(500)
-            }
-        }.start()
-    }
-
-    @SuppressLint("MissingPermission")
-    private fun vibrate(duration: Long) {
-        val vibrator = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            val vibratorManager = getSystemService(Context.VIBRATOR_MANAGER_SERVICE) as VibratorManager
-            vibratorManager.defaultVibrator
-        } else {
-            @Suppress("DEPRECATION")
-            getSystemService(Context.VIBRATOR_SERVICE) as Vibrator
-        }
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            vibrator.vibrate(VibrationEffect.createOneShot(duration, VibrationEffect.DEFAULT_AMPLITUDE))
-        } else {
-            @Suppress("DEPRECATION")
-            vibrator.vibrate(duration)
-        }
+        RestTimers.start(this, IntervalTimer.rest(duration))
     }
 
     private fun stopSessionLocally() {
         isSessionRunning = false
+        updateWorkoutState()
         activeSession = null
-        restTimer?.cancel()
-        isResting = false
+        RestTimers.cancel(this)
     }
 
-   override fun onSensorChanged(event: SensorEvent?) {
-        when (event?.sensor?.type) {
+    // Les timestamps capteurs sont en elapsedRealtime: même base pour la machine d'état
+    private fun onSensorEvent(event: SensorEvent) {
+        val at = event.timestamp / 1_000_000
+        when (event.sensor.type) {
             Sensor.TYPE_HEART_RATE -> if (event.values.isNotEmpty()) {
                 heartRate = event.values[0].toInt()
-                healthManager.syncHeartRateToFirebase(heartRate) 
+                activityState.onHeartRate(heartRate, at)
+                HeartRates.offer(this, heartRate, HeartRates.epochOfElapsed(at), HeartRateSource.SENSOR)
             }
             Sensor.TYPE_STEP_DETECTOR -> {
                 stepCount++
+                activityState.onStep(at)
                 healthManager.syncStepsToFirebase(stepCount)
             }
             Sensor.TYPE_ACCELEROMETER -> if (event.values.size >= 3) {
-                accelX = event.values[0]; accelY = event.values[1]; accelZ = event.values[2]
+                ui.motion = Motion(event.values[0], event.values[1], event.values[2])
             }
         }
     }
 
-    override fun onAccuracyChanged(sensor: Sensor?, accuracy: Int) {}
+    private fun updateWorkoutState() {
+        activityState.setWorkoutActive(isSessionRunning || isRunningActive, SystemClock.elapsedRealtime())
+    }
+
+    private fun applyActivityState(previous: ActivityState, current: ActivityState) {
+        Log.d("KaybeeWear", "Activity $previous -> $current")
+        val profile = SamplingProfile.of(current)
+        healthManager.applySamplingProfile(profile)
+        if (lifecycle.currentState.isAtLeast(Lifecycle.State.RESUMED)) acquireSensors(profile)
+    }
+
+    // Même consommateur: SensorSessions ne ré-enregistre que les capteurs dont la requête change
+    private fun acquireSensors(profile: SamplingProfile) {
+        val latency = profile.batchLatencyUs
+        sensorSessions.acquire(Sensor.TYPE_HEART_RATE, SENSOR_CONSUMER, SensorSessionManager.Request(SensorSessionManager.PERIOD_NORMAL_US, latency), ::onSensorEvent)
+        sensorSessions.acquire(Sensor.TYPE_STEP_DETECTOR, SENSOR_CONSUMER, SensorSessionManager.Request(SensorSessionManager.PERIOD_NORMAL_US, latency), ::onSensorEvent)
+        sensorSessions.acquire(Sensor.TYPE_ACCELEROMETER, SENSOR_CONSUMER, SensorSessionManager.Request(profile.accelPeriodUs, latency), ::onSensorEvent)
+    }
+
+    companion object {
+        private const val SENSOR_CONSUMER = "main_activity"
+    }
 }
 
-data class ScheduleDay(val day: String, val workout: String)
 data class NutritionData(val calories: Int = 0, val protein: Int = 0, val carbs: Int = 0, val fats: Int = 0)
-data class SessionData(val name: String, val groups: List<SessionGroup>)
-data class SessionGroup(val type: String, val exercises: List<SessionExercise>, val sets: Int, val rest: Int)
-data class SessionExercise(val name: String, val sets: List<SessionSet>, val rest: Int = 60)
-data class SessionSet(val weight: Float, val reps: Int, val isDone: Boolean = false)
 
 @Composable
 fun WearApp(
-    heartRate: Int, stepCount: Int, calories: Int, nutrition: NutritionData, water: Double,
-    weeklySummary: List<ScheduleDay>, isCoach: Boolean,
-    activeSession: SessionData?, sessionDuration: Long, restTime: Int, isResting: Boolean,
-    isRunningActive: Boolean,
-    isPhoneConnected: Boolean, firebaseSocketConnected: Boolean, firebaseDataFound: Boolean,
-    lastSync: String, currentUid: String, accel: Triple<Float, Float, Float>,
+    ui: WearUiState,
     onAddWater: (Double) -> Unit, onStartRest: (Int) -> Unit, onStopSession: () -> Unit,
     onUpdateSet: (Int, Int, Int, Float, Int, Boolean) -> Unit,
     onAdjustWeight: (Int, Int, Int, Float) -> Unit,
@@ -430,16 +420,16 @@ fun WearApp(
         Box(modifier = Modifier.fillMaxSize()) {
             HorizontalPager(state = pagerState) { page ->
                 when (page) {
-                    0 -> DashboardPage(heartRate, stepCount, calories, water, onAddWater, onLongClick = { showDebug = true })
-                    1 -> RunScreen(heartRate, stepCount, calories, isRunningActive, onToggleRun)
-                    2 -> SessionPage(activeSession, sessionDuration, restTime, isResting, onUpdateSet, onAdjustWeight)
-                    3 -> NutritionPage(nutrition)
-                    4 -> AgendaScreen(weeklySummary)
+                    0 -> DashboardPage(ui.dashboard, onAddWater, onLongClick = { showDebug = true })
+                    1 -> ui.run.let { RunScreen(it.heartRate, it.steps, it.calories, it.running, onToggleRun) }
+                    2 -> SessionPage(ui.activeSession, { ui.sessionDurationSeconds }, onUpdateSet, onAdjustWeight)
+                    3 -> NutritionPage(ui.nutrition)
+                    4 -> AgendaScreen(ui.weeklySummary)
                 }
             }
             if (showDebug) {
                 Box(modifier = Modifier.fillMaxSize().background(DarkBg)) {
-                    ConnectionDebugPage(isPhoneConnected, firebaseSocketConnected, firebaseDataFound, lastSync, currentUid, onRetryPair, onClose = { showDebug = false })
+                    ConnectionDebugPage(ui.connection, { ui.motion }, onRetryPair, onClose = { showDebug = false })
                 }
             }
         }
@@ -447,7 +437,7 @@ fun WearApp(
 }
 
 @Composable
-fun DashboardPage(hr: Int, steps: Int, calories: Int, water: Double, onAddWater: (Double) -> Unit, onLongClick: () -> Unit) {
+fun DashboardPage(state: DashboardState, onAddWater: (Double) -> Unit, onLongClick: () -> Unit) {
     ScalingLazyColumn(
         modifier = Modifier.fillMaxSize().background(DarkBg),
         horizontalAlignment = Alignment.CenterHorizontally,
@@ -465,7 +455,7 @@ fun DashboardPage(hr: Int, steps: Int, calories: Int, water: Double, onAddWater:
                 WidgetCard(
                     modifier = Modifier.weight(1f),
                     label = "CALORIES",
-                    value = "$calories",
+                    value = "${state.calories}",
                     unit = "KCAL",
                     icon = Icons.Default.LocalFireDepartment,
                     iconColor = Color(0xFFFFB703)
@@ -473,7 +463,7 @@ fun DashboardPage(hr: Int, steps: Int, calories: Int, water: Double, onAddWater:
                 WidgetCard(
                     modifier = Modifier.weight(1f),
                     label = "POULS",
-                    value = if (hr > 0) "$hr" else "--",
+                    value = if (state.heartRate > 0) "${state.heartRate}" else "--",
                     unit = "BPM",
                     icon = Icons.Default.Favorite,
                     iconColor = Color(0xFFF94144)
@@ -483,12 +473,12 @@ fun DashboardPage(hr: Int, steps: Int, calories: Int, water: Double, onAddWater:
 
         // Steps Card
         item {
-            StepWidget(steps = steps, target = 10000)
+            StepWidget(steps = state.steps, target = 10000)
         }
 
         // Hydration Card
         item {
-            HydrationWidget(water = water, target = 2.5, onAddWater = onAddWater)
+            HydrationWidget(water = state.water, target = 2.5, onAddWater = onAddWater)
         }
         
         item { Spacer(modifier = Modifier.height(20.dp)) }
@@ -630,9 +620,31 @@ fun NutritionCard(label: String, value: String, unit: String, color: Color) {
     }
 }
 
+// Décompte recalculé depuis l'échéance, uniquement quand l'activité est visible
+@Composable
+fun rememberSecondsLeft(deadline: Long): Int {
+    var secondsLeft by remember(deadline) { mutableIntStateOf(secondsUntil(deadline)) }
+    val lifecycle = LocalLifecycleOwner.current.lifecycle
+    LaunchedEffect(deadline, lifecycle) {
+        if (deadline == IntervalTimer.NONE) return@LaunchedEffect
+        lifecycle.repeatOnLifecycle(Lifecycle.State.STARTED) {
+            while (true) {
+                val leftMs = deadline - SystemClock.elapsedRealtime()
+                secondsLeft = secondsUntil(deadline)
+                if (leftMs <= 0) break
+                delay((leftMs - 1) % 1_000L + 1)
+            }
+        }
+    }
+    return secondsLeft
+}
+
+private fun secondsUntil(deadline: Long): Int =
+    if (deadline == IntervalTimer.NONE) 0 else ((deadline - SystemClock.elapsedRealtime() + 999) / 1_000).toInt().coerceAtLeast(0)
+
 @Composable
 fun SessionPage(
-    session: SessionData?, duration: Long, restTime: Int, isResting: Boolean,
+    session: SessionData?, duration: () -> Long,
     onUpdateSet: (Int, Int, Int, Float, Int, Boolean) -> Unit,
     onAdjustWeight: (Int, Int, Int, Float) -> Unit
 ) {
@@ -650,10 +662,13 @@ fun SessionPage(
             item {
                 Column(horizontalAlignment = Alignment.CenterHorizontally, modifier = Modifier.fillMaxWidth()) {
                     Text(session.name.uppercase(), color = PurplePrimary, fontWeight = FontWeight.Black, fontSize = 11.sp)
-                    Text(formatDuration(duration), color = Color.White, fontSize = 20.sp, fontWeight = FontWeight.Black)
-                    if (isResting) {
+                    // Lus ici seulement: le chrono et le repos ne recomposent que cet en-tête
+                    Text(formatDuration(duration()), color = Color.White, fontSize = 20.sp, fontWeight = FontWeight.Black)
+                    val rest by RestTimers.state.collectAsState()
+                    val restSeconds = rememberSecondsLeft(rest.deadline)
+                    if (restSeconds > 0) {
                         Box(modifier = Modifier.clip(RoundedCornerShape(12.dp)).background(GreenAccent).padding(horizontal = 12.dp, vertical = 4.dp)) {
-                            Text("REPOS: ${restTime}s", color = Color.Black, fontWeight = FontWeight.Black, fontSize = 14.sp)
+                            Text("${rest.label.uppercase()}: ${restSeconds}s", color = Color.Black, fontWeight = FontWeight.Black, fontSize = 14.sp)
                         }
                     }
                     Spacer(modifier = Modifier.height(8.dp))
@@ -713,15 +728,30 @@ fun SetCard(groupIdx: Int, exoIdx: Int, setIdx: Int, set: SessionSet, onUpdateSe
 }
 
 @Composable
-fun ConnectionDebugPage(isPhone: Boolean, firebaseSocketConnected: Boolean, firebaseDataFound: Boolean, lastSync: String, currentUid: String, onRetryPair: () -> Unit, onClose: () -> Unit) {
+fun ConnectionDebugPage(state: ConnectionState, motion: () -> Motion, onRetryPair: () -> Unit, onClose: () -> Unit) {
+    var metrics by remember { mutableStateOf<List<String>>(emptyList()) }
+    val context = LocalContext.current
     ScalingLazyColumn(modifier = Modifier.fillMaxSize().background(DarkBg).padding(8.dp)) {
         item { Text("DEBUG CONNEXION", color = GreenAccent, fontWeight = FontWeight.Bold, fontSize = 10.sp) }
-        item { DebugRow("Téléphone", isPhone) }
-        item { DebugRow("Socket Firebase", firebaseSocketConnected) }
-        item { DebugRow("Data Firebase", firebaseDataFound) }
-        item { Text("Last Sync: $lastSync", fontSize = 8.sp, color = Color.Gray) }
-        item { Text("UID: ${currentUid.take(10)}...", fontSize = 8.sp, color = Color.Gray) }
+        item { DebugRow("Téléphone", state.phoneConnected) }
+        item { DebugRow("Socket Firebase", state.socketConnected) }
+        item { DebugRow("Data Firebase", state.dataFound) }
+        item { Text("Last Sync: ${state.lastSync}", fontSize = 8.sp, color = Color.Gray) }
+        item { Text("UID: ${state.uid.take(10)}...", fontSize = 8.sp, color = Color.Gray) }
+        // Seule lecture de l'accéléromètre: recompose cette ligne au rythme du capteur
+        item {
+            val (x, y, z) = motion()
+            Text(String.format(Locale.US, "Accel: %.1f %.1f %.1f", x, y, z), fontSize = 8.sp, color = Color.Gray)
+        }
         item { Button(onClick = onRetryPair, modifier = Modifier.fillMaxWidth().padding(top = 8.dp), colors = ButtonDefaults.buttonColors(backgroundColor = PurplePrimary)) { Text("RE-PAIRER", fontSize = 10.sp) } }
+        item {
+            Button(onClick = {
+                val dump = Metrics.dump() + SensorSessions.get(context).dump() + FirebaseWrites.dump()
+                Log.i("KaybeeWear", "Metrics\n$dump")
+                metrics = dump.lines().filter { it.isNotBlank() }
+            }, modifier = Modifier.fillMaxWidth().padding(top = 4.dp)) { Text("MÉTRIQUES", fontSize = 10.sp) }
+        }
+        items(metrics) { line -> Text(line, fontSize = 7.sp, color = Color.Gray) }
         item { Button(onClick = onClose, modifier = Modifier.fillMaxWidth().padding(top = 4.dp)) { Text("FERMER", fontSize = 10.sp) } }
     }
 }
@@ -0,0 +1,70 @@
+package com.example.kaybeewear.presentation
+
+import androidx.compose.runtime.Immutable
+import androidx.compose.runtime.Stable
+import androidx.compose.runtime.derivedStateOf
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableDoubleStateOf
+import androidx.compose.runtime.mutableIntStateOf
+import androidx.compose.runtime.mutableLongStateOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.setValue
+import androidx.compose.runtime.structuralEqualityPolicy
+import com.example.kaybee.core.sync.ScheduleDay
+import com.example.kaybee.core.sync.SessionData
+
+@Immutable
+data class DashboardState(val heartRate: Int = 0, val steps: Int = 0, val calories: Int = 0, val water: Double = 0.0)
+
+@Immutable
+data class RunState(val heartRate: Int = 0, val steps: Int = 0, val calories: Int = 0, val running: Boolean = false)
+
+@Immutable
+data class ConnectionState(
+    val phoneConnected: Boolean = false,
+    val socketConnected: Boolean = false,
+    val dataFound: Boolean = false,
+    val lastSync: String = "",
+    val uid: String = ""
+)
+
+@Immutable
+data class Motion(val x: Float = 0f, val y: Float = 0f, val z: Float = 0f)
+
+/**
+ * Watch UI state, written by the activity and read page by page. Pages read the derived
+ * snapshots, which only change when what they display changes, so a sensor sample recomposes
+ * at most the page showing it; [motion] is only read by the debug page.
+ */
+@Stable
+class WearUiState {
+    var heartRate by mutableIntStateOf(0)
+    var steps by mutableLongStateOf(0L)
+    var calories by mutableDoubleStateOf(0.0)
+    var water by mutableDoubleStateOf(0.0)
+    var nutrition by mutableStateOf(NutritionData())
+    var weeklySummary by mutableStateOf<List<ScheduleDay>>(emptyList())
+
+    var activeSession by mutableStateOf<SessionData?>(null)
+    var sessionDurationSeconds by mutableLongStateOf(0L)
+    var running by mutableStateOf(false)
+
+    var phoneConnected by mutableStateOf(false)
+    var socketConnected by mutableStateOf(false)
+    var dataFound by mutableStateOf(false)
+    var lastSync by mutableStateOf("Jamais")
+    var uid by mutableStateOf<String?>(null)
+
+    // Écrit au rythme de l'accéléromètre: aucune page ne doit le lire hors debug
+    var motion by mutableStateOf(Motion())
+
+    val dashboard by derivedStateOf(structuralEqualityPolicy()) {
+        DashboardState(heartRate, steps.toInt(), calories.toInt(), water)
+    }
+    val run by derivedStateOf(structuralEqualityPolicy()) {
+        RunState(heartRate, steps.toInt(), calories.toInt(), running)
+    }
+    val connection by derivedStateOf(structuralEqualityPolicy()) {
+        ConnectionState(phoneConnected, socketConnected, dataFound, lastSync, uid ?: "N/A")
+    }
+}
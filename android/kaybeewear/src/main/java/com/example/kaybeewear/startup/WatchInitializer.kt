@@ -0,0 +1,30 @@
+package com.example.kaybeewear.startup
+
+import android.content.Context
+import androidx.startup.Initializer
+import com.example.kaybee.shared.platform.KaybeeDatabase
+import com.example.kaybee.shared.timeseries.HealthTimeSeries
+import com.example.kaybeewear.data.Agenda
+import com.example.kaybeewear.data.Glances
+
+/**
+ * Runs at process start, before the activity, the tile, the complications or Health Services
+ * callbacks. Only configuration happens on the main thread; Firebase and the local stores are
+ * opened on a background thread so the first frame does not wait for them.
+ */
+class WatchInitializer : Initializer<Unit> {
+
+    override fun create(context: Context) {
+        // PassiveDataReceiver écrit hors ligne: le cache disque doit être actif dès la création
+        KaybeeDatabase.persistence = true
+        KaybeeDatabase.warmUp(context)
+        val appContext = context.applicationContext
+        Thread({
+            HealthTimeSeries.get(appContext)
+            Agenda.get(appContext).days()
+            Glances.get(appContext).current()
+        }, "kaybee-stores-warmup").start()
+    }
+
+    override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+}
@@ -2,25 +2,41 @@ package com.example.kaybeewear.tile
 
 import android.content.Context
 import androidx.wear.protolayout.ColorBuilders.argb
+import androidx.wear.protolayout.DeviceParametersBuilders
+import androidx.wear.protolayout.DimensionBuilders.sp
 import androidx.wear.protolayout.LayoutElementBuilders
 import androidx.wear.protolayout.ResourceBuilders
+import androidx.wear.protolayout.StateBuilders
 import androidx.wear.protolayout.TimelineBuilders
+import androidx.wear.protolayout.TypeBuilders
+import androidx.wear.protolayout.expression.AppDataKey
+import androidx.wear.protolayout.expression.DynamicBuilders.DynamicString
+import androidx.wear.protolayout.expression.DynamicDataBuilders.DynamicDataValue
 import androidx.wear.protolayout.material.Colors
-import androidx.wear.protolayout.material.Text
-import androidx.wear.protolayout.material.Typography
 import androidx.wear.protolayout.material.layouts.PrimaryLayout
 import androidx.wear.tiles.RequestBuilders
 import androidx.wear.tiles.TileBuilders
 import androidx.wear.tiles.tooling.preview.Preview
 import androidx.wear.tiles.tooling.preview.TilePreviewData
 import androidx.wear.tooling.preview.devices.WearDevices
+import com.example.kaybee.core.engine.Glance
+import com.example.kaybee.core.sync.AgendaCache
+import com.example.kaybee.core.sync.ScheduleDay
+import com.example.kaybeewear.data.Agenda
+import com.example.kaybeewear.data.Glances
 import com.google.android.horologist.annotations.ExperimentalHorologistApi
 import com.google.android.horologist.tiles.SuspendingTileService
+import java.time.DayOfWeek
+import java.time.LocalDate
 
 private const val RESOURCES_VERSION = "0"
 
+// Filet de sécurité: les mises à jour sont poussées par Glances quand une valeur bouge
+private const val FRESHNESS_MS = 30 * 60_000L
+
 /**
- * Skeleton for a tile with no images.
+ * Steps, heart rate and next workout, read from the local snapshots only: a tile request
+ * never waits on Firebase.
  */
 @OptIn(ExperimentalHorologistApi::class)
 class MainTileService : SuspendingTileService() {
@@ -31,7 +47,7 @@ class MainTileService : SuspendingTileService() {
 
     override suspend fun tileRequest(
         requestParams: RequestBuilders.TileRequest
-    ) = tile(requestParams, this)
+    ) = TileRenderer.tile(requestParams, Glances.get(this).current(), Agenda.get(this).days(), LocalDate.now().dayOfWeek)
 }
 
 private fun resources(
@@ -42,44 +58,66 @@ private fun resources(
         .build()
 }
 
-private fun tile(
-    requestParams: RequestBuilders.TileRequest,
-    context: Context,
-): TileBuilders.Tile {
-    val singleTileTimeline = TimelineBuilders.Timeline.Builder()
-        .addTimelineEntry(
-            TimelineBuilders.TimelineEntry.Builder()
-                .setLayout(
-                    LayoutElementBuilders.Layout.Builder()
-                        .setRoot(tileLayout(requestParams, context))
-                        .build()
-                )
-                .build()
+/**
+ * The layout is a template bound to [STEPS], [HEART_RATE] and [NEXT_WORKOUT]: it is built once
+ * per screen size, and new values only change the tile state.
+ */
+internal object TileRenderer {
+    val STEPS = AppDataKey<DynamicString>("steps")
+    val HEART_RATE = AppDataKey<DynamicString>("heart_rate")
+    val NEXT_WORKOUT = AppDataKey<DynamicString>("next_workout")
+
+    private val layouts = HashMap<Pair<Int, Int>, LayoutElementBuilders.LayoutElement>()
+
+    var layoutsBuilt = 0
+        private set
+
+    fun values(glance: Glance, agenda: List<ScheduleDay>, today: DayOfWeek): Map<AppDataKey<DynamicString>, String> {
+        val next = AgendaCache.next(agenda, today)
+        return mapOf(
+            STEPS to "${glance.steps} pas",
+            HEART_RATE to if (glance.heartRate > 0) "${glance.heartRate} bpm" else "-- bpm",
+            NEXT_WORKOUT to (next?.let { "${it.day}: ${it.workout}" } ?: "Repos")
         )
-        .build()
+    }
 
-    return TileBuilders.Tile.Builder()
-        .setResourcesVersion(RESOURCES_VERSION)
-        .setTileTimeline(singleTileTimeline)
-        .build()
-}
+    fun tile(request: RequestBuilders.TileRequest, glance: Glance, agenda: List<ScheduleDay>, today: DayOfWeek): TileBuilders.Tile {
+        val state = StateBuilders.State.Builder()
+        for ((key, value) in values(glance, agenda, today)) state.addKeyToValueMapping(key, DynamicDataValue.fromString(value))
+        return TileBuilders.Tile.Builder()
+            .setResourcesVersion(RESOURCES_VERSION)
+            .setFreshnessIntervalMillis(FRESHNESS_MS)
+            .setState(state.build())
+            .setTileTimeline(TimelineBuilders.Timeline.fromLayoutElement(layout(request.deviceConfiguration)))
+            .build()
+    }
 
-private fun tileLayout(
-    requestParams: RequestBuilders.TileRequest,
-    context: Context,
-): LayoutElementBuilders.LayoutElement {
-    return PrimaryLayout.Builder(requestParams.deviceConfiguration)
-        .setResponsiveContentInsetEnabled(true)
-        .setContent(
-            Text.Builder(context, "Hello World!")
-                .setColor(argb(Colors.DEFAULT.onSurface))
-                .setTypography(Typography.TYPOGRAPHY_CAPTION1)
-                .build()
-        ).build()
+    @Synchronized
+    private fun layout(device: DeviceParametersBuilders.DeviceParameters): LayoutElementBuilders.LayoutElement =
+        layouts.getOrPut(device.screenWidthDp to device.screenHeightDp) {
+            layoutsBuilt++
+            PrimaryLayout.Builder(device)
+                .setResponsiveContentInsetEnabled(true)
+                .setContent(
+                    LayoutElementBuilders.Column.Builder()
+                        .addContent(boundText(STEPS, "00000 pas", 20f, Colors.DEFAULT.onSurface))
+                        .addContent(boundText(HEART_RATE, "000 bpm", 14f, Colors.DEFAULT.primary))
+                        .addContent(boundText(NEXT_WORKOUT, "Mercredi: Full body", 12f, Colors.DEFAULT.onSurface))
+                        .build()
+                ).build()
+        }
+
+    // Le texte le plus large réserve la place: la mise en page ne bouge pas avec les valeurs
+    private fun boundText(key: AppDataKey<DynamicString>, widest: String, sizeSp: Float, color: Int) =
+        LayoutElementBuilders.Text.Builder()
+            .setText(TypeBuilders.StringProp.Builder("--").setDynamicValue(DynamicString.from(key)).build())
+            .setLayoutConstraintsForDynamicText(TypeBuilders.StringLayoutConstraint.Builder(widest).build())
+            .setFontStyle(LayoutElementBuilders.FontStyle.Builder().setSize(sp(sizeSp)).setColor(argb(color)).build())
+            .build()
 }
 
 @Preview(device = WearDevices.SMALL_ROUND)
 @Preview(device = WearDevices.LARGE_ROUND)
 fun tilePreview(context: Context) = TilePreviewData(::resources) {
-    tile(it, context)
-}
\ No newline at end of file
+    TileRenderer.tile(it, Glance(8_421L, 72), listOf(ScheduleDay("Lundi", "Push")), DayOfWeek.MONDAY)
+}
@@ -0,0 +1,144 @@
+package com.example.kaybeewear.timer
+
+import android.annotation.SuppressLint
+import android.app.AlarmManager
+import android.app.PendingIntent
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.os.SystemClock
+import android.os.VibrationEffect
+import android.os.Vibrator
+import android.os.VibratorManager
+import com.example.kaybee.core.engine.IntervalTimer
+import com.example.kaybee.core.engine.TimerInterval
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * Process-wide rest/interval timer of the watch. The only wake-up is an AlarmManager alarm at
+ * the next deadline; the timer is persisted so that the alarm still vibrates and chains the
+ * next interval once the activity, or the whole process, is gone. The UI renders the countdown
+ * from [state] while it is visible.
+ */
+object RestTimers {
+    /** [deadline] in elapsedRealtime ms; [IntervalTimer.NONE] when no timer runs. */
+    data class State(val label: String, val deadline: Long)
+
+    private const val PREFS = "kaybee_rest_timer"
+    private const val KEY_TIMER = "timer"
+    private const val INEXACT_WINDOW_MS = 5_000L
+    private val IDLE = State("", IntervalTimer.NONE)
+
+    private val _state = MutableStateFlow(IDLE)
+    val state: StateFlow<State> = _state
+
+    private var loaded = false
+    private val timer = IntervalTimer()
+
+    @Synchronized
+    fun start(context: Context, program: List<TimerInterval>) {
+        timer.start(program, SystemClock.elapsedRealtime())
+        update(context)
+    }
+
+    @Synchronized
+    fun cancel(context: Context) {
+        timer.cancel()
+        update(context)
+    }
+
+    @Synchronized
+    internal fun onAlarm(context: Context) {
+        load(context)
+        val endedBefore = timer.ended
+        timer.onWake(SystemClock.elapsedRealtime())
+        // Un réveil tardif peut clore plusieurs intervalles: une seule vibration
+        if (timer.ended > endedBefore) vibrate(context, if (timer.running) 200L else 500L)
+        update(context)
+    }
+
+    /** Restores a timer persisted by another process, e.g. after the activity was killed. */
+    @Synchronized
+    fun restore(context: Context) {
+        load(context)
+    }
+
+    private fun load(context: Context) {
+        if (loaded) return
+        loaded = true
+        val json = prefs(context).getString(KEY_TIMER, null) ?: return
+        try {
+            val obj = JSONObject(json)
+            val items = obj.getJSONArray("program")
+            val program = List(items.length()) { i ->
+                val item = items.getJSONObject(i)
+                TimerInterval(item.getString("label"), item.getLong("duration_ms"))
+            }
+            timer.restore(program, obj.getLong("started_at"), obj.getInt("ended"))
+            // Redémarrage de la montre: elapsedRealtime est reparti de zéro
+            if (timer.startedAt > SystemClock.elapsedRealtime()) timer.cancel()
+        } catch (e: Exception) {
+            timer.cancel()
+        }
+        _state.value = currentState()
+    }
+
+    private fun update(context: Context) {
+        loaded = true
+        _state.value = currentState()
+        val alarms = context.getSystemService(AlarmManager::class.java)
+        val wake = alarmIntent(context)
+        val deadline = timer.nextDeadline()
+        if (deadline == IntervalTimer.NONE) {
+            alarms.cancel(wake)
+            prefs(context).edit().remove(KEY_TIMER).apply()
+            return
+        }
+        prefs(context).edit().putString(KEY_TIMER, toJson()).apply()
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarms.canScheduleExactAlarms()) {
+            alarms.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, deadline, wake)
+        } else {
+            // SCHEDULE_EXACT_ALARM refusée: fenêtre courte après l'échéance, le système peut l'élargir
+            alarms.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, deadline, INEXACT_WINDOW_MS, wake)
+        }
+    }
+
+    private fun currentState(): State = timer.current()?.let { State(it.label, timer.nextDeadline()) } ?: IDLE
+
+    private fun toJson(): String = JSONObject()
+        .put("started_at", timer.startedAt)
+        .put("ended", timer.ended)
+        .put("program", JSONArray().apply {
+            timer.program.forEach { put(JSONObject().put("label", it.label).put("duration_ms", it.durationMs)) }
+        })
+        .toString()
+
+    private fun prefs(context: Context) = context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+
+    private fun alarmIntent(context: Context): PendingIntent = PendingIntent.getBroadcast(
+        context, 0, Intent(context, RestTimerReceiver::class.java),
+        PendingIntent.FLAG_IMMUTABLE or PendingIntent.FLAG_UPDATE_CURRENT
+    )
+
+    @SuppressLint("MissingPermission")
+    private fun vibrate(context: Context, durationMs: Long) {
+        val vibrator = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            context.getSystemService(VibratorManager::class.java).defaultVibrator
+        } else {
+            @Suppress("DEPRECATION")
+            context.getSystemService(Context.VIBRATOR_SERVICE) as Vibrator
+        }
+        vibrator.vibrate(VibrationEffect.createOneShot(durationMs, VibrationEffect.DEFAULT_AMPLITUDE))
+    }
+}
+
+/** Fires at each deadline of [RestTimers]. */
+class RestTimerReceiver : BroadcastReceiver() {
+    override fun onReceive(context: Context, intent: Intent) {
+        RestTimers.onAlarm(context)
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.kaybeewear.complication
+
+import com.example.kaybee.core.engine.Glance
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class ComplicationValueTest {
+
+    @Test
+    fun stepsFitShortText() {
+        assertEquals("8421", ComplicationValue.steps(Glance(8_421L)).text)
+        assertEquals("12.3k", ComplicationValue.steps(Glance(12_345L)).text)
+        assertEquals(ComplicationValue.STEP_GOAL, ComplicationValue.steps(Glance(12_345L)).max)
+    }
+
+    @Test
+    fun staleHeartRateIsNotShown() {
+        val glance = Glance(steps = 100L, heartRate = 72, updatedAt = 0L, heartRateAt = 0L)
+        assertEquals("72", ComplicationValue.heartRate(glance, 60_000L)?.text)
+        // Des pas récents ne rafraîchissent pas un BPM vieux de 20 min
+        assertNull(ComplicationValue.heartRate(glance.copy(updatedAt = 20 * 60_000L), 20 * 60_000L))
+        assertNull(ComplicationValue.heartRate(Glance(), 0L))
+    }
+}
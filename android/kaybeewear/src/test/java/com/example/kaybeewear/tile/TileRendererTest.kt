@@ -0,0 +1,71 @@
+package com.example.kaybeewear.tile
+
+import androidx.wear.protolayout.DeviceParametersBuilders
+import androidx.wear.tiles.RequestBuilders
+import com.example.kaybee.core.engine.Glance
+import com.example.kaybee.core.engine.GlanceStore
+import com.example.kaybee.core.sim.MemoryKeyValueStore
+import com.example.kaybee.core.sync.AgendaCache
+import com.example.kaybee.shared.platform.KaybeeDatabase
+import com.example.kaybeewear.data.Agenda
+import com.example.kaybeewear.data.Glances
+import com.google.firebase.FirebaseApp
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.DayOfWeek
+
+class TileRendererTest {
+
+    private val defaultFactory = KaybeeDatabase.factory
+
+    private fun request(widthDp: Int) = RequestBuilders.TileRequest.Builder()
+        .setDeviceConfiguration(
+            DeviceParametersBuilders.DeviceParameters.Builder()
+                .setScreenWidthDp(widthDp)
+                .setScreenHeightDp(widthDp)
+                .setScreenShape(DeviceParametersBuilders.SCREEN_SHAPE_ROUND)
+                .build()
+        )
+        .build()
+
+    @After
+    fun restoreDatabaseFactory() {
+        KaybeeDatabase.factory = defaultFactory
+    }
+
+    @Test
+    fun tileRequestNeverTouchesFirebase() = runBlocking {
+        // Stores locaux en mémoire; toute ouverture de la base passerait par la factory
+        var opened = 0
+        KaybeeDatabase.factory = { opened++; throw IllegalStateException("database opened by a tile request") }
+        Glances.install(GlanceStore(MemoryKeyValueStore()).apply { publish(8_421L, 72, 1L) })
+        val week = listOf("Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche")
+        Agenda.install(AgendaCache(MemoryKeyValueStore()).apply {
+            update("u1", week.associateWith { mapOf("workout" to "Legs") })
+        })
+
+        val tile = MainTileService().tileRequest(request(192))
+
+        assertNotNull(tile.state)
+        assertEquals(3, tile.state!!.keyToValueMapping.size)
+        assertEquals(0, opened)
+        assertTrue(runCatching { FirebaseApp.getInstance() }.isFailure)
+    }
+
+    @Test
+    fun valuesAreBoundIntoOneLayoutPerScreenSize() {
+        val built = TileRenderer.layoutsBuilt
+        TileRenderer.tile(request(200), Glance(100L, 60), emptyList(), DayOfWeek.MONDAY)
+        TileRenderer.tile(request(200), Glance(5_000L, 120), emptyList(), DayOfWeek.MONDAY)
+        assertEquals(built + 1, TileRenderer.layoutsBuilt)
+
+        val values = TileRenderer.values(Glance(5_000L, 0), emptyList(), DayOfWeek.MONDAY)
+        assertEquals("5000 pas", values[TileRenderer.STEPS])
+        assertEquals("-- bpm", values[TileRenderer.HEART_RATE])
+        assertEquals("Repos", values[TileRenderer.NEXT_WORKOUT])
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.kaybee.macrobenchmark.phone
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.Until
+
+const val PACKAGE = "com.kaybeefitness.app"
+
+/** Trace section around the RTDB creation, see KaybeeDatabase in :shared. */
+const val DATABASE_SECTION = "KaybeeDatabase.create"
+
+private const val WEBVIEW_TIMEOUT_MS = 10_000L
+
+/** Without these the permission dialogs would cover the first frames of every iteration. */
+fun MacrobenchmarkScope.grantPermissions() {
+    for (permission in listOf("android.permission.ACTIVITY_RECOGNITION", "android.permission.POST_NOTIFICATIONS")) {
+        device.executeShellCommand("pm grant $packageName $permission")
+    }
+}
+
+/** Flings the page the WebView opens on (the workout list once signed in) down and back up. */
+fun MacrobenchmarkScope.browseWorkout() {
+    device.wait(Until.hasObject(By.clazz("android.webkit.WebView")), WEBVIEW_TIMEOUT_MS)
+    val webView = device.findObject(By.clazz("android.webkit.WebView")) ?: return
+    // Marge pour ne pas déclencher le geste retour du système
+    webView.setGestureMargin(device.displayWidth / 5)
+    repeat(2) {
+        webView.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+    webView.fling(Direction.UP)
+    device.waitForIdle()
+}
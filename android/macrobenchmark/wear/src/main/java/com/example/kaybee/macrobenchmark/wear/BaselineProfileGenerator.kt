@@ -0,0 +1,23 @@
+package com.example.kaybee.macrobenchmark.wear
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Run through `:kaybeewear:generateBaselineProfile`; covers the same journeys as the benchmarks. */
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun generate() = rule.collect(packageName = PACKAGE, includeInStartupProfile = true) {
+        grantPermissions()
+        pressHome()
+        startActivityAndWait()
+        browseWorkout()
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.kaybee.macrobenchmark.wear
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+
+/** Same applicationId as the phone app: the watch build is installed on the Wear OS image. */
+const val PACKAGE = "com.kaybeefitness.app"
+
+/** Trace section around the RTDB creation, see KaybeeDatabase in :shared. */
+const val DATABASE_SECTION = "KaybeeDatabase.create"
+
+private const val SWIPE_STEPS = 10
+
+/** Without these the permission dialog would cover the first frame of every iteration. */
+fun MacrobenchmarkScope.grantPermissions() {
+    for (permission in listOf("android.permission.BODY_SENSORS", "android.permission.ACTIVITY_RECOGNITION")) {
+        device.executeShellCommand("pm grant $packageName $permission")
+    }
+}
+
+/** Dashboard scroll, then every page of the pager up to the session and agenda pages. */
+fun MacrobenchmarkScope.browseWorkout() {
+    val width = device.displayWidth
+    val height = device.displayHeight
+    device.waitForIdle()
+    // Tableau de bord: aller-retour dans la ScalingLazyColumn
+    device.swipe(width / 2, height * 3 / 4, width / 2, height / 4, SWIPE_STEPS)
+    device.waitForIdle()
+    device.swipe(width / 2, height / 4, width / 2, height * 3 / 4, SWIPE_STEPS)
+    device.waitForIdle()
+    // Course, séance, nutrition puis agenda
+    repeat(4) {
+        device.swipe(width * 4 / 5, height / 2, width / 5, height / 2, SWIPE_STEPS)
+        device.waitForIdle()
+    }
+    device.swipe(width / 2, height * 3 / 4, width / 2, height / 4, SWIPE_STEPS)
+    device.waitForIdle()
+}
@@ -0,0 +1,45 @@
+package com.example.kaybee.macrobenchmark.wear
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold start of MainActivity, with and without the Baseline Profile. The database section
+ * should overlap the start instead of adding to timeToInitialDisplay.
+ */
+@OptIn(ExperimentalMetricApi::class)
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun startupWithoutProfile() = startup(CompilationMode.None())
+
+    @Test
+    fun startupWithBaselineProfile() = startup(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(compilationMode: CompilationMode) = rule.measureRepeated(
+        packageName = PACKAGE,
+        metrics = listOf(StartupTimingMetric(), TraceSectionMetric(DATABASE_SECTION)),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = {
+            grantPermissions()
+            pressHome()
+        }
+    ) {
+        startActivityAndWait()
+    }
+}
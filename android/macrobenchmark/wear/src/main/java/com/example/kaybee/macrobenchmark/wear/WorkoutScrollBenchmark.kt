@@ -0,0 +1,40 @@
+package com.example.kaybee.macrobenchmark.wear
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Frame timings of [browseWorkout], with and without the Baseline Profile. */
+@RunWith(AndroidJUnit4::class)
+class WorkoutScrollBenchmark {
+
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun scrollWithoutProfile() = scroll(CompilationMode.None())
+
+    @Test
+    fun scrollWithBaselineProfile() = scroll(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun scroll(compilationMode: CompilationMode) = rule.measureRepeated(
+        packageName = PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.WARM,
+        iterations = 5,
+        setupBlock = {
+            grantPermissions()
+            pressHome()
+            startActivityAndWait()
+        }
+    ) {
+        browseWorkout()
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.kaybee.shared.data
+
+import android.content.Context
+import android.util.Log
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import java.util.concurrent.TimeUnit
+
+/**
+ * Daily [FitnessRepository.compactHistory] run. Each run does a bounded amount of work;
+ * a backlog larger than one run is worked off over the following days.
+ */
+class FitnessCompactionWorker(context: Context, params: WorkerParameters) : CoroutineWorker(context, params) {
+
+    override suspend fun doWork(): Result = try {
+        FitnessRepository().compactHistory()
+        Result.success()
+    } catch (e: Exception) {
+        Log.w(TAG, "Compaction en échec", e)
+        Result.retry()
+    }
+
+    companion object {
+        private const val TAG = "FitnessCompaction"
+        const val WORK_NAME = "fitness_history_compaction"
+
+        /** Enqueues the daily job once; later calls keep the existing schedule. */
+        @JvmStatic
+        fun schedule(context: Context) {
+            val request = PeriodicWorkRequestBuilder<FitnessCompactionWorker>(1, TimeUnit.DAYS)
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresBatteryNotLow(true)
+                        .build()
+                )
+                .build()
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request)
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.kaybee.shared.data
+
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseReference
+import kotlinx.coroutines.tasks.await
+import java.util.TimeZone
+
+/**
+ * A raw fitness_history child. [rolledUp] samples were already counted in the rollups when written;
+ * a null [timestamp] marks a malformed child, deleted without being folded.
+ */
+data class RawSample(val key: String, val timestamp: Long?, val value: Long, val rolledUp: Boolean)
+
+data class CompactionResult(val folded: Int, val deleted: Int, val batches: Int)
+
+/** Storage seen by [FitnessHistoryCompactor]; Firebase in the app, in-memory in tests. */
+interface FitnessHistoryStore {
+    /** Up to [limit] oldest samples of [series], oldest first. */
+    suspend fun readOldest(series: String, limit: Int): List<RawSample>
+
+    /** Adds [deltas] to the stored rollup buckets and deletes [deleteKeys] in one atomic write. */
+    suspend fun commit(series: String, deltas: Map<RollupResolution, List<RollupBucket>>, deleteKeys: List<String>)
+
+    /** Deletes up to [limit] buckets of [resolution] starting before [before]; returns how many. */
+    suspend fun deleteRollupsBefore(series: String, resolution: RollupResolution, before: Long, limit: Int): Int
+}
+
+/**
+ * Keeps fitness_history small: raw samples older than [rawRetentionMs] are folded into
+ * the rollups (unless already counted at write time) and deleted, [batchSize] children
+ * at a time, at most [maxBatches] per series and run. Minute rollups older than
+ * [minuteRollupRetentionMs] are dropped as well; hour and day buckets are kept.
+ * Children without a timestamp are deleted as they reach the head of the series.
+ */
+class FitnessHistoryCompactor(
+    private val store: FitnessHistoryStore,
+    private val rawRetentionMs: Long = 7 * RollupResolution.DAY.millis,
+    private val minuteRollupRetentionMs: Long = 2 * RollupResolution.DAY.millis,
+    private val batchSize: Int = 200,
+    private val maxBatches: Int = 10,
+    private val zoneOffsetMs: (Long) -> Long = { TimeZone.getDefault().getOffset(it).toLong() }
+) {
+
+    suspend fun compact(series: String, now: Long): CompactionResult {
+        val cutoff = now - rawRetentionMs
+        val minuteCutoff = now - minuteRollupRetentionMs
+        var folded = 0
+        var deleted = 0
+        var batches = 0
+
+        while (batches < maxBatches) {
+            // Sans horodatage, un enfant resterait en tête et bloquerait chaque passe: il est supprimé
+            val batch = store.readOldest(series, batchSize).filter { it.timestamp == null || it.timestamp < cutoff }
+            if (batch.isEmpty()) break
+            // (horodatage, valeur) des échantillons pas encore comptés dans les rollups
+            val toFold = batch.filterNot { it.rolledUp }.mapNotNull { s -> s.timestamp?.let { it to s.value } }
+
+            val deltas = RollupResolution.values().associateWith { resolution ->
+                toFold
+                    // Inutile de créer des buckets minute qui seraient aussitôt purgés
+                    .filter { (timestamp, _) -> resolution != RollupResolution.MINUTE || timestamp >= minuteCutoff }
+                    .groupBy { (timestamp, _) -> resolution.bucketStart(timestamp, zoneOffsetMs(timestamp)) }
+                    .map { (start, samples) -> samples.fold(RollupBucket(start = start)) { acc, (_, value) -> acc + value } }
+            }.filterValues { it.isNotEmpty() }
+
+            store.commit(series, deltas, batch.map { it.key })
+            folded += toFold.size
+            deleted += batch.size
+            batches++
+            if (batch.size < batchSize) break
+        }
+
+        var pruned = 0
+        while (pruned < maxBatches) {
+            if (store.deleteRollupsBefore(series, RollupResolution.MINUTE, minuteCutoff, batchSize) < batchSize) break
+            pruned++
+        }
+        return CompactionResult(folded, deleted, batches)
+    }
+}
+
+/**
+ * [FitnessHistoryStore] over users/{uid}. Reads use orderByKey(): push() keys are
+ * chronological, so no .indexOn on timestamp is needed. Buckets touched by compaction
+ * are older than the retention window, hence no longer written by addSteps/addHeartRate:
+ * a read-then-multi-path update is atomic enough and keeps deletes and folds together.
+ */
+class FirebaseFitnessHistoryStore(private val userRef: DatabaseReference) : FitnessHistoryStore {
+
+    override suspend fun readOldest(series: String, limit: Int): List<RawSample> {
+        val snapshot = userRef.child("fitness_history").child(series).orderByKey().limitToFirst(limit).get().await()
+        return snapshot.children.mapNotNull { it.toRawSample() }
+    }
+
+    override suspend fun commit(series: String, deltas: Map<RollupResolution, List<RollupBucket>>, deleteKeys: List<String>) {
+        val updates = HashMap<String, Any?>()
+        for ((resolution, buckets) in deltas) {
+            for (delta in buckets) {
+                val path = "fitness_rollups/$series/${resolution.key}/${RollupResolution.keyOf(delta.start)}"
+                val current = userRef.child(path).get().await()
+                val merged = RollupBucket(
+                    start = delta.start,
+                    count = (current.child("count").value as? Number)?.toLong() ?: 0L,
+                    sum = (current.child("sum").value as? Number)?.toLong() ?: 0L,
+                    min = (current.child("min").value as? Number)?.toLong() ?: 0L,
+                    max = (current.child("max").value as? Number)?.toLong() ?: 0L
+                ) + delta
+                updates[path] = merged.toMap()
+            }
+        }
+        deleteKeys.forEach { updates["fitness_history/$series/$it"] = null }
+        if (updates.isNotEmpty()) userRef.updateChildren(updates).await()
+    }
+
+    override suspend fun deleteRollupsBefore(series: String, resolution: RollupResolution, before: Long, limit: Int): Int {
+        val snapshot = userRef.child("fitness_rollups").child(series).child(resolution.key)
+            .orderByKey().endBefore(RollupResolution.keyOf(before)).limitToFirst(limit).get().await()
+        val updates = HashMap<String, Any?>()
+        snapshot.children.forEach { updates["fitness_rollups/$series/${resolution.key}/${it.key}"] = null }
+        if (updates.isNotEmpty()) userRef.updateChildren(updates).await()
+        return updates.size
+    }
+
+    private fun DataSnapshot.toRawSample(): RawSample? {
+        val sampleKey = key ?: return null
+        val timestamp = (child("timestamp").value as? Number)?.toLong()
+        val value = (child("value").value as? Number)?.toLong() ?: 0L
+        return RawSample(sampleKey, timestamp, value, child("rolled_up").getValue(Boolean::class.java) == true)
+    }
+}
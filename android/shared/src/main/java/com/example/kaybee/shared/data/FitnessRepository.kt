@@ -1,11 +1,15 @@
 package com.example.kaybee.shared.data
 
+import com.example.kaybee.core.sync.HeartRateAverage
 import com.google.firebase.auth.FirebaseAuth
 import com.google.firebase.database.*
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.callbackFlow
 import kotlinx.coroutines.tasks.await
+import java.util.TimeZone
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 data class SessionSyncData(
     val total_steps: Int = 0,
@@ -29,6 +33,10 @@ class FitnessRepository {
     
     private val fitnessDataRef: DatabaseReference
         get() = database.getReference("users").child(userId).child("fitness_history")
+
+    // Agrégats minute/heure/jour maintenus à chaque écriture: les graphiques ne lisent jamais fitness_history
+    private val rollupsRef: DatabaseReference
+        get() = database.getReference("users").child(userId).child("fitness_rollups")
     
     fun observeSession(): Flow<SessionSyncData> = callbackFlow {
         val listener = object : ValueEventListener {
@@ -44,6 +52,34 @@ class FitnessRepository {
         awaitClose { sessionRef.removeEventListener(listener) }
     }
     
+    /**
+     * Buckets of [series] ("steps" or "heart_rate") at [resolution] overlapping [from, to).
+     * A 30-day HR chart is ~30 DAY buckets instead of every raw sample.
+     */
+    fun observeRollups(series: String, resolution: RollupResolution, from: Long, to: Long): Flow<List<RollupBucket>> = callbackFlow {
+        val zoneOffset = TimeZone.getDefault().getOffset(from).toLong()
+        val query = rollupsRef.child(series).child(resolution.key)
+            .orderByKey()
+            .startAt(RollupResolution.keyOf(resolution.bucketStart(from, zoneOffset)))
+            .endAt(RollupResolution.keyOf(to - 1))
+        val listener = object : ValueEventListener {
+            override fun onDataChange(snapshot: DataSnapshot) {
+                trySend(snapshot.children.mapNotNull { it.toRollupBucket() })
+            }
+            override fun onCancelled(error: DatabaseError) {
+                close(error.toException())
+            }
+        }
+        query.addValueEventListener(listener)
+        awaitClose { query.removeEventListener(listener) }
+    }
+
+    fun observeStepRollups(resolution: RollupResolution, from: Long, to: Long) =
+        observeRollups(SERIES_STEPS, resolution, from, to)
+
+    fun observeHeartRateRollups(resolution: RollupResolution, from: Long, to: Long) =
+        observeRollups(SERIES_HEART_RATE, resolution, from, to)
+
     suspend fun updateDeviceConnection(deviceType: String, connected: Boolean) {
         val updates = mutableMapOf<String, Any>(
             "${deviceType}_connected" to connected,
@@ -70,7 +106,7 @@ class FitnessRepository {
             "value" to stepCount,
             "timestamp" to ServerValue.TIMESTAMP
         )
-        fitnessDataRef.child("steps").push().setValue(stepData).await()
+        addSample(SERIES_STEPS, stepData, stepCount.toLong())
         
         sessionRef.child("total_steps").runTransaction(object : Transaction.Handler {
             override fun doTransaction(data: MutableData): Transaction.Result {
@@ -85,7 +121,7 @@ class FitnessRepository {
     
     suspend fun addHeartRate(heartRate: Int) {
         val hrData = mapOf("value" to heartRate, "timestamp" to ServerValue.TIMESTAMP)
-        fitnessDataRef.child("heart_rate").push().setValue(hrData).await()
+        addSample(SERIES_HEART_RATE, hrData, heartRate.toLong())
         
         sessionRef.updateChildren(mapOf(
             "current_heart_rate" to heartRate,
@@ -95,16 +131,63 @@ class FitnessRepository {
         calculateAndUpdateAverageHeartRate()
     }
     
-    private suspend fun calculateAndUpdateAverageHeartRate() {
-        val snapshot = fitnessDataRef.child("heart_rate").orderByChild("timestamp").limitToLast(50).get().await()
-        var sum = 0
-        var count = 0
-        snapshot.children.forEach { child ->
-            child.child("value").getValue(Int::class.java)?.let { sum += it; count++ }
+    /**
+     * Writes a raw sample as not rolled up, then adds it to the rollup buckets of the device
+     * time, a local estimate of its server timestamp. `rolled_up` turns true once every bucket
+     * transaction has committed; a failure or a process death leaves the sample to the compactor.
+     */
+    private suspend fun addSample(series: String, sample: Map<String, Any>, value: Long) {
+        val ref = fitnessDataRef.child(series).push()
+        val timestamp = System.currentTimeMillis()
+        ref.setValue(sample + ("rolled_up" to false)).await()
+        updateRollups(series, value, timestamp) { ref.child("rolled_up").setValue(true) }
+    }
+
+    private fun updateRollups(series: String, value: Long, timestamp: Long, onCommitted: () -> Unit) {
+        val zoneOffset = TimeZone.getDefault().getOffset(timestamp).toLong()
+        val resolutions = RollupResolution.values()
+        // Les trois transactions se terminent dans un ordre quelconque
+        val remaining = AtomicInteger(resolutions.size)
+        val failed = AtomicBoolean(false)
+        for (resolution in resolutions) {
+            val start = resolution.bucketStart(timestamp, zoneOffset)
+            rollupsRef.child(series).child(resolution.key).child(RollupResolution.keyOf(start))
+                .runTransaction(object : Transaction.Handler {
+                    override fun doTransaction(data: MutableData): Transaction.Result {
+                        val current = data.toRollupBucket(start)
+                        data.value = (current + value).toMap()
+                        return Transaction.success(data)
+                    }
+                    override fun onComplete(error: DatabaseError?, committed: Boolean, snapshot: DataSnapshot?) {
+                        if (error != null || !committed) failed.set(true)
+                        if (remaining.decrementAndGet() == 0 && !failed.get()) onCommitted()
+                    }
+                })
         }
-        if (count > 0) sessionRef.child("avg_heart_rate").setValue(sum / count)
+    }
+
+    private suspend fun calculateAndUpdateAverageHeartRate() {
+        // Les clés push() sont chronologiques: pas besoin d'index sur timestamp
+        val snapshot = fitnessDataRef.child(SERIES_HEART_RATE).orderByKey().limitToLast(50).get().await()
+        HeartRateAverage.of(snapshot.children.map { it.child("value").value })
+            ?.let { sessionRef.child("avg_heart_rate").setValue(it) }
     }
     
+    /**
+     * Folds raw samples older than [retentionMs] into the rollups and deletes them in bounded
+     * batches. Run daily by [FitnessCompactionWorker]; nothing is done while signed out.
+     */
+    suspend fun compactHistory(retentionMs: Long = 7 * RollupResolution.DAY.millis): List<CompactionResult> {
+        // Sans session, userId retomberait sur "test_user"
+        if (auth.currentUser == null) return emptyList()
+        val compactor = FitnessHistoryCompactor(
+            FirebaseFitnessHistoryStore(database.getReference("users").child(userId)),
+            rawRetentionMs = retentionMs
+        )
+        val now = System.currentTimeMillis()
+        return listOf(SERIES_STEPS, SERIES_HEART_RATE).map { compactor.compact(it, now) }
+    }
+
     suspend fun resetSession() {
         sessionRef.updateChildren(mapOf(
             "total_steps" to 0,
@@ -114,4 +197,28 @@ class FitnessRepository {
         )).await()
         fitnessDataRef.removeValue().await()
     }
+
+    companion object {
+        const val SERIES_STEPS = "steps"
+        const val SERIES_HEART_RATE = "heart_rate"
+    }
+}
+
+private fun DataSnapshot.toRollupBucket(): RollupBucket? {
+    val start = key?.toLongOrNull() ?: return null
+    return RollupBucket(
+        start = start,
+        count = (child("count").value as? Number)?.toLong() ?: 0L,
+        sum = (child("sum").value as? Number)?.toLong() ?: 0L,
+        min = (child("min").value as? Number)?.toLong() ?: 0L,
+        max = (child("max").value as? Number)?.toLong() ?: 0L
+    )
 }
+
+private fun MutableData.toRollupBucket(start: Long) = RollupBucket(
+    start = start,
+    count = (child("count").value as? Number)?.toLong() ?: 0L,
+    sum = (child("sum").value as? Number)?.toLong() ?: 0L,
+    min = (child("min").value as? Number)?.toLong() ?: 0L,
+    max = (child("max").value as? Number)?.toLong() ?: 0L
+)
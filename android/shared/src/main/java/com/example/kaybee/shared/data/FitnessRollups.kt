@@ -0,0 +1,47 @@
+package com.example.kaybee.shared.data
+
+/**
+ * Aggregate of the fitness_history samples that fall in [start, start + resolution).
+ * Stored under fitness_rollups/{series}/{resolution}/{start} as count/sum/min/max.
+ */
+data class RollupBucket(
+    val start: Long = 0L,
+    val count: Long = 0L,
+    val sum: Long = 0L,
+    val min: Long = 0L,
+    val max: Long = 0L
+) {
+    val average: Double
+        get() = if (count == 0L) 0.0 else sum.toDouble() / count
+
+    operator fun plus(value: Long): RollupBucket =
+        if (count == 0L) copy(count = 1, sum = value, min = value, max = value)
+        else copy(count = count + 1, sum = sum + value, min = minOf(min, value), max = maxOf(max, value))
+
+    operator fun plus(other: RollupBucket): RollupBucket = when {
+        other.count == 0L -> this
+        count == 0L -> other.copy(start = start)
+        else -> copy(count = count + other.count, sum = sum + other.sum, min = minOf(min, other.min), max = maxOf(max, other.max))
+    }
+
+    fun toMap(): Map<String, Any> = mapOf("count" to count, "sum" to sum, "min" to min, "max" to max)
+}
+
+enum class RollupResolution(val key: String, val millis: Long) {
+    MINUTE("minute", 60_000L),
+    HOUR("hour", 3_600_000L),
+    DAY("day", 86_400_000L);
+
+    /** Start of the bucket containing [timestamp]; [zoneOffsetMs] aligns DAY on local midnight. */
+    fun bucketStart(timestamp: Long, zoneOffsetMs: Long = 0L): Long {
+        val offset = if (this == DAY) zoneOffsetMs else 0L
+        return Math.floorDiv(timestamp + offset, millis) * millis - offset
+    }
+
+    companion object {
+        private const val KEY_WIDTH = 13
+
+        /** RTDB key of a bucket: fixed-width so that orderByKey() is chronological. */
+        fun keyOf(bucketStart: Long): String = bucketStart.toString().padStart(KEY_WIDTH, '0')
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.kaybee.shared.metrics
+
+import java.util.concurrent.atomic.LongAdder
+
+/** Monotonic counter; [LongAdder] stripes contended increments across cells. */
+class Counter internal constructor(val name: String) {
+    private val adder = LongAdder()
+
+    fun inc() = adder.increment()
+
+    fun add(n: Long) = adder.add(n)
+
+    val value: Long
+        get() = adder.sum()
+
+    internal fun reset() = adder.reset()
+}
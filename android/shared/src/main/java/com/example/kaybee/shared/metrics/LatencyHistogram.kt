@@ -0,0 +1,86 @@
+package com.example.kaybee.shared.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Lock-free latency histogram in microseconds with fixed HDR-style buckets: each power
+ * of two is split into [SUB_BUCKETS] linear sub-buckets, so any recorded value is
+ * reported within 12.5% of its true value. Recording is one array increment; no
+ * allocation, no lock.
+ */
+class LatencyHistogram internal constructor(val name: String) {
+    private val counts = AtomicLongArray(BUCKETS)
+    private val total = LongAdder()
+    private val sumMicros = LongAdder()
+    private val maxMicros = AtomicLong()
+
+    fun recordMicros(micros: Long) {
+        val value = micros.coerceIn(0L, MAX_MICROS)
+        counts.incrementAndGet(indexOf(value))
+        total.increment()
+        sumMicros.add(value)
+        maxMicros.accumulateAndGet(value) { a, b -> maxOf(a, b) }
+    }
+
+    /** Records the time elapsed since [startNanos], a [System.nanoTime] value. */
+    fun recordSince(startNanos: Long) = recordMicros((System.nanoTime() - startNanos) / 1_000)
+
+    val count: Long
+        get() = total.sum()
+
+    /** Upper bound of the bucket holding the [quantile] (0..1) of the recorded values, in µs. */
+    fun percentileMicros(quantile: Double): Long {
+        val n = count
+        if (n == 0L) return 0
+        val target = Math.ceil(quantile.coerceIn(0.0, 1.0) * n).toLong().coerceAtLeast(1)
+        var seen = 0L
+        for (i in 0 until BUCKETS) {
+            seen += counts.get(i)
+            if (seen >= target) return minOf(upperBound(i), maxMicros.get())
+        }
+        return maxMicros.get()
+    }
+
+    fun snapshot(): Map<String, Any> {
+        val n = count
+        return linkedMapOf(
+            "count" to n,
+            "mean_ms" to if (n == 0L) 0.0 else sumMicros.sum() / 1_000.0 / n,
+            "p50_ms" to percentileMicros(0.50) / 1_000.0,
+            "p90_ms" to percentileMicros(0.90) / 1_000.0,
+            "p99_ms" to percentileMicros(0.99) / 1_000.0,
+            "max_ms" to maxMicros.get() / 1_000.0
+        )
+    }
+
+    internal fun reset() {
+        for (i in 0 until BUCKETS) counts.set(i, 0)
+        total.reset()
+        sumMicros.reset()
+        maxMicros.set(0)
+    }
+
+    internal companion object {
+        private const val SUB_BITS = 3
+        const val SUB_BUCKETS = 1 shl SUB_BITS
+        /** ~12 days: anything slower is a lost callback, not a latency. */
+        const val MAX_MICROS = (1L shl 40) - 1
+        val BUCKETS = indexOf(MAX_MICROS) + 1
+
+        fun indexOf(value: Long): Int {
+            if (value < SUB_BUCKETS) return value.toInt()
+            val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - SUB_BITS
+            val top = (value ushr shift).toInt()
+            return SUB_BUCKETS * (shift + 1) + (top - SUB_BUCKETS)
+        }
+
+        fun upperBound(index: Int): Long {
+            if (index < SUB_BUCKETS) return index.toLong()
+            val shift = index / SUB_BUCKETS - 1
+            val top = (index % SUB_BUCKETS + SUB_BUCKETS).toLong()
+            return ((top + 1) shl shift) - 1
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.kaybee.shared.metrics
+
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Process-wide counters and latency histograms for the native sync paths (RTDB writes,
+ * Wearable messages, Health Connect calls, sensor events...). Look metrics up once and
+ * keep them in a field: recording is then lock-free.
+ *
+ * Names are dotted, source first: `firebase.write`, `wearable.send`, `sensor.step_counter`.
+ */
+object Metrics {
+    private val counters = ConcurrentHashMap<String, Counter>()
+    private val histograms = ConcurrentHashMap<String, LatencyHistogram>()
+
+    @JvmStatic
+    fun counter(name: String): Counter = counters.getOrPut(name) { Counter(name) }
+
+    @JvmStatic
+    fun histogram(name: String): LatencyHistogram = histograms.getOrPut(name) { LatencyHistogram(name) }
+
+    /** `{counters: {name: value}, latencies: {name: {count, mean_ms, p50_ms, ...}}}`, sorted by name. */
+    @JvmStatic
+    fun snapshot(): Map<String, Any> = linkedMapOf(
+        "counters" to TreeMap(counters.mapValues { it.value.value }),
+        "latencies" to TreeMap(histograms.mapValues { it.value.snapshot() })
+    )
+
+    /** One line per metric, for logcat. */
+    @JvmStatic
+    fun dump(): String = buildString {
+        for ((name, counter) in counters.toSortedMap()) append(name).append(' ').append(counter.value).append('\n')
+        for ((name, histogram) in histograms.toSortedMap()) {
+            val s = histogram.snapshot()
+            append(name).append(" n=").append(s["count"])
+                .append(" p50=").append(s["p50_ms"]).append("ms")
+                .append(" p99=").append(s["p99_ms"]).append("ms")
+                .append(" max=").append(s["max_ms"]).append("ms\n")
+        }
+    }
+
+    @JvmStatic
+    fun reset() {
+        counters.values.forEach { it.reset() }
+        histograms.values.forEach { it.reset() }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.kaybee.shared.metrics
+
+import com.google.android.gms.tasks.Task
+
+object TaskMetrics {
+
+    /**
+     * Counts [task] under [name] and records its latency in the histogram of the same name
+     * when it succeeds; failures are counted as `name.error`.
+     */
+    @JvmStatic
+    fun <T> track(name: String, task: Task<T>): Task<T> {
+        val start = System.nanoTime()
+        Metrics.counter(name).inc()
+        task.addOnCompleteListener {
+            if (it.isSuccessful) Metrics.histogram(name).recordSince(start)
+            else Metrics.counter("$name.error").inc()
+        }
+        return task
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.kaybee.shared.platform
+
+import android.util.Log
+import com.example.kaybee.core.Sink
+import com.example.kaybee.shared.metrics.TaskMetrics
+import com.google.firebase.database.DatabaseReference
+
+/** [Sink] over an RTDB node, typically users/{uid}/live_data. */
+class FirebaseSink(private val ref: DatabaseReference) : Sink {
+
+    override fun update(fields: Map<String, Any>) {
+        TaskMetrics.track("firebase.write", ref.updateChildren(fields))
+            .addOnFailureListener { Log.e("FirebaseSink", "updateChildren failed on ${ref.path}", it) }
+    }
+}
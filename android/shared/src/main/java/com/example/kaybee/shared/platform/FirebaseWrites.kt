@@ -0,0 +1,42 @@
+package com.example.kaybee.shared.platform
+
+import android.os.Handler
+import android.os.Looper
+import com.example.kaybee.core.engine.WriteCoalescer
+import com.google.firebase.database.FirebaseDatabase
+import java.util.Locale
+
+/**
+ * Process-wide [WriteCoalescer] over the RTDB root: every live_data writer of the process
+ * goes through it, so the fields written during one tick leave in a single updateChildren.
+ */
+object FirebaseWrites {
+    @Volatile
+    private var instance: WriteCoalescer? = null
+
+    /** [database] is only used by the first call; later ones get the same coalescer. */
+    fun get(database: FirebaseDatabase): WriteCoalescer =
+        instance ?: synchronized(this) {
+            instance ?: create(database).also { instance = it }
+        }
+
+    private fun create(database: FirebaseDatabase): WriteCoalescer {
+        val handler = Handler(Looper.getMainLooper())
+        lateinit var coalescer: WriteCoalescer
+        val flush = Runnable { coalescer.flush() }
+        coalescer = WriteCoalescer(FirebaseSink(database.reference), WriteCoalescer.TICK_MS) { delayMs ->
+            handler.postDelayed(flush, delayMs)
+        }
+        return coalescer
+    }
+
+    /** Before/after write counts, for logcat and the watch debug page; empty until first use. */
+    fun dump(): String {
+        val stats = instance?.stats() ?: return ""
+        return String.format(
+            Locale.US, "writes %d -> %d (x%.2f), fields %d -> %d\n",
+            stats["writes_before"], stats["writes_after"], stats["amplification"],
+            stats["fields_before"], stats["fields_after"]
+        )
+    }
+}
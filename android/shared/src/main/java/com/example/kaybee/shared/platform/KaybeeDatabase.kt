@@ -0,0 +1,61 @@
+package com.example.kaybee.shared.platform
+
+import android.content.Context
+import android.os.Trace
+import com.google.firebase.FirebaseApp
+import com.google.firebase.database.DatabaseException
+import com.google.firebase.database.FirebaseDatabase
+
+/**
+ * Process-wide RTDB instance, created once whatever the first caller. The app's startup
+ * initializer sets [persistence] and calls [warmUp] at process start, so activities and
+ * services usually find the instance ready instead of creating it on the main thread.
+ */
+object KaybeeDatabase {
+    const val URL = "https://kaybee-fitness-default-rtdb.firebaseio.com/"
+    /** Trace section measured by the startup macrobenchmarks. */
+    const val TRACE_SECTION = "KaybeeDatabase.create"
+
+    /** Disk cache of the RTDB client; only read by the call that creates the instance. */
+    @Volatile
+    @JvmStatic
+    var persistence = false
+
+    /** Creates the instance on the first [get]; JVM tests replace it to check who opens the database. */
+    @Volatile
+    @JvmStatic
+    var factory: (Context) -> FirebaseDatabase = { create(it.applicationContext) }
+
+    @Volatile
+    private var instance: FirebaseDatabase? = null
+
+    @JvmStatic
+    fun get(context: Context): FirebaseDatabase =
+        instance ?: synchronized(this) {
+            instance ?: factory(context).also { instance = it }
+        }
+
+    /** Creates the instance on a background thread; errors surface again on the next [get]. */
+    @JvmStatic
+    fun warmUp(context: Context) {
+        val appContext = context.applicationContext
+        Thread({
+            try { get(appContext) } catch (e: Exception) {}
+        }, "kaybee-db-warmup").start()
+    }
+
+    private fun create(context: Context): FirebaseDatabase {
+        Trace.beginSection(TRACE_SECTION)
+        try {
+            if (FirebaseApp.getApps(context).isEmpty()) FirebaseApp.initializeApp(context)
+            val database = FirebaseDatabase.getInstance(URL)
+            if (persistence) {
+                try { database.setPersistenceEnabled(true) } catch (e: DatabaseException) {}
+            }
+            database.goOnline()
+            return database
+        } finally {
+            Trace.endSection()
+        }
+    }
+}
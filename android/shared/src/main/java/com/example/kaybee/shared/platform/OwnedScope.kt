@@ -0,0 +1,53 @@
+package com.example.kaybee.shared.platform
+
+import android.util.Log
+import com.example.kaybee.shared.metrics.Metrics
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineExceptionHandler
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancelAndJoin
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Coroutine scope of one owner (activity, service, manager), closed in the owner's teardown.
+ * Jobs are supervised: a failure is counted and reported to [onError] without cancelling
+ * the other jobs. Runs on [io] unless another dispatcher is given.
+ */
+class OwnedScope(
+    private val name: String,
+    dispatcher: CoroutineDispatcher = io,
+    private val onError: (Throwable) -> Unit = { Log.e(name, "Coroutine en échec", it) },
+) : CoroutineScope {
+    private val job = SupervisorJob()
+
+    override val coroutineContext: CoroutineContext =
+        job + dispatcher + CoroutineName(name) + CoroutineExceptionHandler { _, e ->
+            failures.inc()
+            onError(e)
+        }
+
+    /** Jobs launched in this scope and not completed yet; 0 once [closeAndJoin] returns. */
+    val liveJobs: Int get() = job.children.count()
+
+    /** Cancels every job; later launches are cancelled immediately. */
+    fun close() = job.cancel()
+
+    /** [close], then waits for the jobs to finish their cancellation. */
+    suspend fun closeAndJoin() = job.cancelAndJoin()
+
+    companion object {
+        /** Threads given to Wearable and Firebase calls that block (Tasks.await, RTDB creation). */
+        const val IO_PARALLELISM = 4
+
+        // Partagé par tous les propriétaires: ces appels ne peuvent pas accaparer Dispatchers.IO
+        @OptIn(ExperimentalCoroutinesApi::class)
+        @JvmField
+        val io: CoroutineDispatcher = Dispatchers.IO.limitedParallelism(IO_PARALLELISM)
+
+        private val failures = Metrics.counter("coroutines.failed")
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.kaybee.shared.platform
+
+import android.content.SharedPreferences
+import com.example.kaybee.core.KeyValueStore
+
+class SharedPreferencesStore(private val prefs: SharedPreferences) : KeyValueStore {
+
+    override fun getString(key: String, default: String): String = prefs.getString(key, default) ?: default
+
+    override fun getLong(key: String, default: Long): Long = prefs.getLong(key, default)
+
+    override fun put(values: Map<String, Any>) {
+        val editor = prefs.edit()
+        for ((key, value) in values) {
+            when (value) {
+                is String -> editor.putString(key, value)
+                is Long -> editor.putLong(key, value)
+                is Boolean -> editor.putBoolean(key, value)
+                else -> throw IllegalArgumentException("Unsupported value for $key: ${value.javaClass.simpleName}")
+            }
+        }
+        editor.apply()
+    }
+}
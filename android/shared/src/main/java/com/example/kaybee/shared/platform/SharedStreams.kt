@@ -0,0 +1,47 @@
+package com.example.kaybee.shared.platform
+
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.DatabaseError
+import com.google.firebase.database.Query
+import com.google.firebase.database.ValueEventListener
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.shareIn
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * One upstream per key, shared by every collector of that key. The upstream starts with the
+ * first collector and is cancelled [stopTimeoutMs] after the last one leaves, so a collector
+ * replaced right away (re-pairing, configuration change) keeps the same upstream.
+ * The latest value is replayed to new collectors while the upstream is live.
+ */
+class SharedStreams<K : Any, T>(
+    private val scope: CoroutineScope,
+    private val stopTimeoutMs: Long = 5_000,
+    private val upstream: (K) -> Flow<T>,
+) {
+    private val streams = ConcurrentHashMap<K, SharedFlow<T>>()
+
+    fun get(key: K): SharedFlow<T> =
+        streams.computeIfAbsent(key) {
+            upstream(it).shareIn(scope, SharingStarted.WhileSubscribed(stopTimeoutMs, 0), replay = 1)
+        }
+}
+
+/** Value events of this query; the listener is removed when the collector goes away. */
+fun Query.values(): Flow<DataSnapshot> = callbackFlow {
+    val listener = object : ValueEventListener {
+        override fun onDataChange(snapshot: DataSnapshot) {
+            trySend(snapshot)
+        }
+        override fun onCancelled(error: DatabaseError) {
+            close(error.toException())
+        }
+    }
+    addValueEventListener(listener)
+    awaitClose { removeEventListener(listener) }
+}
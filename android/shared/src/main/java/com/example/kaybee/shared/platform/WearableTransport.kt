@@ -0,0 +1,21 @@
+package com.example.kaybee.shared.platform
+
+import android.content.Context
+import android.util.Log
+import com.example.kaybee.core.Transport
+import com.example.kaybee.shared.metrics.TaskMetrics
+import com.google.android.gms.wearable.Wearable
+
+/** [Transport] sending to every connected node through the Wearable MessageClient. */
+class WearableTransport(context: Context) : Transport {
+    private val appContext = context.applicationContext
+
+    override fun send(path: String, payload: ByteArray) {
+        Wearable.getNodeClient(appContext).connectedNodes
+            .addOnSuccessListener { nodes ->
+                val messageClient = Wearable.getMessageClient(appContext)
+                nodes.forEach { TaskMetrics.track("wearable.send", messageClient.sendMessage(it.id, path, payload)) }
+            }
+            .addOnFailureListener { Log.e("WearableTransport", "Send failed on $path", it) }
+    }
+}
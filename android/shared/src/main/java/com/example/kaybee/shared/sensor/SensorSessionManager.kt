@@ -0,0 +1,151 @@
+package com.example.kaybee.shared.sensor
+
+import com.example.kaybee.shared.metrics.Counter
+import com.example.kaybee.shared.metrics.LatencyHistogram
+import com.example.kaybee.shared.metrics.Metrics
+import java.util.Locale
+import java.util.TreeMap
+
+/** Hardware side of [SensorSessionManager]: at most one registration per sensor type. */
+interface SensorRegistrar {
+    /** Replaces the registration of [sensorType]; false when the device has no such sensor. */
+    fun register(sensorType: Int, samplingPeriodUs: Int, maxReportLatencyUs: Int): Boolean
+
+    fun unregister(sensorType: Int)
+}
+
+fun interface SensorConsumer<E> {
+    fun onEvent(event: E)
+}
+
+/**
+ * Merges every consumer of a sensor onto one hardware registration, using the fastest
+ * sampling period and the shortest report latency asked for, and fans events out to them.
+ * Acquiring again with the same request is a no-op, so lifecycle callbacks may call
+ * [acquire] as often as they like without re-registering anything.
+ *
+ * Per sensor, `sensor.<name>` counts delivered events, `sensor.<name>.register` hardware
+ * registrations and `sensor.<name>.interval` records the time between two deliveries.
+ */
+class SensorSessionManager<E>(
+    private val registrar: SensorRegistrar,
+    private val nameOf: (Int) -> String,
+    private val elapsedNanos: () -> Long = System::nanoTime
+) {
+    /** Periods in microseconds: SENSOR_DELAY_* codes cannot be merged with each other. */
+    data class Request(val samplingPeriodUs: Int, val maxReportLatencyUs: Int = 0)
+
+    private class Session<E>(val name: String) {
+        val consumers = LinkedHashMap<String, Pair<Request, SensorConsumer<E>>>()
+        var registered: Request? = null
+        var registeredAt = 0L
+        var eventsSinceRegistration = 0L
+        var lastEventAt = 0L
+
+        @Volatile
+        var listeners: List<SensorConsumer<E>> = emptyList()
+
+        val events: Counter = Metrics.counter("sensor.$name")
+        val registrations: Counter = Metrics.counter("sensor.$name.register")
+        val interval: LatencyHistogram = Metrics.histogram("sensor.$name.interval")
+    }
+
+    private val sessions = HashMap<Int, Session<E>>()
+
+    /**
+     * Adds or updates [consumer] on [sensorType]; returns false when the sensor is missing.
+     * [listener] replaces the consumer's previous one.
+     */
+    @Synchronized
+    fun acquire(sensorType: Int, consumer: String, request: Request, listener: SensorConsumer<E>): Boolean {
+        val session = sessions.getOrPut(sensorType) { Session(nameOf(sensorType)) }
+        session.consumers[consumer] = request to listener
+        session.listeners = session.consumers.values.map { it.second }
+        return apply(sensorType, session)
+    }
+
+    @Synchronized
+    fun release(sensorType: Int, consumer: String) {
+        val session = sessions[sensorType] ?: return
+        if (session.consumers.remove(consumer) == null) return
+        session.listeners = session.consumers.values.map { it.second }
+        apply(sensorType, session)
+    }
+
+    /** Releases every sensor held by [consumer], e.g. from onPause. */
+    @Synchronized
+    fun releaseAll(consumer: String) {
+        sessions.keys.toList().forEach { release(it, consumer) }
+    }
+
+    /** Called by the registrar for each hardware event. */
+    fun dispatch(sensorType: Int, event: E) {
+        val session = synchronized(this) { sessions[sensorType] } ?: return
+        session.events.inc()
+        val now = elapsedNanos()
+        synchronized(session) {
+            if (session.lastEventAt != 0L) session.interval.recordMicros((now - session.lastEventAt) / 1_000)
+            session.lastEventAt = now
+            session.eventsSinceRegistration++
+        }
+        session.listeners.forEach { it.onEvent(event) }
+    }
+
+    /** `{name: {consumers, sampling_period_us, max_report_latency_us, events_per_s}}` for registered sensors. */
+    @Synchronized
+    fun snapshot(): Map<String, Map<String, Any>> {
+        val now = elapsedNanos()
+        val result = TreeMap<String, Map<String, Any>>()
+        for (session in sessions.values) {
+            val request = session.registered ?: continue
+            val seconds = (now - session.registeredAt) / 1e9
+            val events = synchronized(session) { session.eventsSinceRegistration }
+            result[session.name] = linkedMapOf(
+                "consumers" to session.consumers.keys.toList(),
+                "sampling_period_us" to request.samplingPeriodUs,
+                "max_report_latency_us" to request.maxReportLatencyUs,
+                "events_per_s" to if (seconds > 0) events / seconds else 0.0
+            )
+        }
+        return result
+    }
+
+    /** One line per registered sensor, for logcat and the watch debug page. */
+    fun dump(): String = buildString {
+        for ((name, s) in snapshot()) {
+            append(name).append(' ').append(String.format(Locale.US, "%.1f", s["events_per_s"])).append("/s")
+                .append(" x").append((s["consumers"] as List<*>).size).append('\n')
+        }
+    }
+
+    private fun apply(sensorType: Int, session: Session<E>): Boolean {
+        val merged = session.consumers.values.map { it.first }.reduceOrNull { a, b ->
+            Request(minOf(a.samplingPeriodUs, b.samplingPeriodUs), minOf(a.maxReportLatencyUs, b.maxReportLatencyUs))
+        }
+        if (merged == session.registered) return true
+        if (merged == null) {
+            registrar.unregister(sensorType)
+            session.registered = null
+            return true
+        }
+        if (!registrar.register(sensorType, merged.samplingPeriodUs, merged.maxReportLatencyUs)) {
+            session.registered = null
+            return false
+        }
+        session.registrations.inc()
+        session.registered = merged
+        synchronized(session) {
+            session.registeredAt = elapsedNanos()
+            session.eventsSinceRegistration = 0
+            session.lastEventAt = 0L
+        }
+        return true
+    }
+
+    companion object {
+        /** Same rates as SensorManager.SENSOR_DELAY_NORMAL / UI / GAME. */
+        const val PERIOD_NORMAL_US = 200_000
+        const val PERIOD_UI_US = 66_667
+        const val PERIOD_GAME_US = 20_000
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.kaybee.shared.sensor
+
+import android.content.Context
+import android.hardware.Sensor
+import android.hardware.SensorEvent
+import android.hardware.SensorEventListener
+import android.hardware.SensorManager
+
+/** Process-wide [SensorSessionManager] over the [SensorManager], shared by services and activities. */
+object SensorSessions {
+    @Volatile
+    private var instance: SensorSessionManager<SensorEvent>? = null
+
+    @JvmStatic
+    fun get(context: Context): SensorSessionManager<SensorEvent> =
+        instance ?: synchronized(this) {
+            instance ?: create(context.getSystemService(Context.SENSOR_SERVICE) as SensorManager).also { instance = it }
+        }
+
+    private fun create(sensorManager: SensorManager): SensorSessionManager<SensorEvent> {
+        lateinit var manager: SensorSessionManager<SensorEvent>
+        val registrar = AndroidSensorRegistrar(sensorManager) { type, event -> manager.dispatch(type, event) }
+        // stringType: "android.sensor.heart_rate" -> sensor.heart_rate dans Metrics
+        manager = SensorSessionManager(registrar, { type ->
+            sensorManager.getDefaultSensor(type)?.stringType?.removePrefix("android.sensor.") ?: "type_$type"
+        })
+        return manager
+    }
+}
+
+/** One [SensorEventListener] per sensor type, replaced on each [register]. */
+class AndroidSensorRegistrar(
+    private val sensorManager: SensorManager,
+    private val onEvent: (Int, SensorEvent) -> Unit
+) : SensorRegistrar {
+    private val listeners = HashMap<Int, SensorEventListener>()
+
+    override fun register(sensorType: Int, samplingPeriodUs: Int, maxReportLatencyUs: Int): Boolean {
+        val sensor: Sensor = sensorManager.getDefaultSensor(sensorType) ?: return false
+        unregister(sensorType)
+        val listener = object : SensorEventListener {
+            override fun onSensorChanged(event: SensorEvent) = onEvent(sensorType, event)
+            override fun onAccuracyChanged(sensor: Sensor?, accuracy: Int) {}
+        }
+        listeners[sensorType] = listener
+        return sensorManager.registerListener(listener, sensor, samplingPeriodUs, maxReportLatencyUs)
+    }
+
+    override fun unregister(sensorType: Int) {
+        listeners.remove(sensorType)?.let { sensorManager.unregisterListener(it) }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.kaybee.shared.timeseries
+
+import android.content.Context
+import java.io.File
+import java.util.concurrent.Executors
+
+/**
+ * Process-wide [TimeSeriesStore] under filesDir/timeseries, shared by the phone app and
+ * the watch. Charts and sync read history from here instead of RTDB fitness_history.
+ */
+object HealthTimeSeries {
+    const val HEART_RATE = "heart_rate"
+    /** Step increments, so the sum of a bucket is the number of steps taken in it. */
+    const val STEPS = "steps"
+
+    @Volatile
+    private var instance: TimeSeriesStore? = null
+
+    // Un append peut ouvrir ou sceller un segment: hors du thread principal, dans l'ordre d'arrivée
+    private val writer = Executors.newSingleThreadExecutor { Thread(it, "kaybee-timeseries") }
+
+    @JvmStatic
+    fun get(context: Context): TimeSeriesStore =
+        instance ?: synchronized(this) {
+            instance ?: TimeSeriesStore(File(context.applicationContext.filesDir, "timeseries")).also { instance = it }
+        }
+
+    /** Appends on a background writer thread, in call order; meant for sensor callbacks. */
+    @JvmStatic
+    fun append(context: Context, name: String, timestamp: Long, value: Long) {
+        val store = get(context)
+        writer.execute { store.append(name, timestamp, value) }
+    }
+}
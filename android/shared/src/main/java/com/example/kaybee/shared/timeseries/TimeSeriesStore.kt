@@ -0,0 +1,324 @@
+package com.example.kaybee.shared.timeseries
+
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.RandomAccessFile
+import java.util.TreeMap
+
+data class Sample(val timestamp: Long, val value: Long)
+
+data class Bucket(val start: Long, val count: Long, val min: Long, val max: Long, val sum: Long) {
+    val average: Double
+        get() = if (count == 0L) 0.0 else sum.toDouble() / count
+}
+
+/**
+ * Append-only, on-device store for health samples (HR in bpm, step increments...).
+ *
+ * Each series lives in its own directory and is cut into segments of [segmentSpanMs]
+ * (one hour by default). A segment file holds zigzag-varint deltas of timestamp and
+ * value, so a 1 Hz heart-rate hour is a few KB. When a segment is sealed its
+ * count/min/max/sum is appended to the series index, which lets hourly and daily
+ * rollups be answered from the index alone; only partially covered segments and
+ * sub-segment buckets are decoded.
+ *
+ * Samples must be appended in timestamp order per series; late samples are rejected.
+ * Sealed segments that end more than [retentionMs] before the newest sample are deleted.
+ * Not tied to Android so it runs in plain JVM tests; see [HealthTimeSeries] for the
+ * app-wide instance.
+ */
+class TimeSeriesStore @JvmOverloads constructor(
+    private val root: File,
+    private val segmentSpanMs: Long = HOUR_MS,
+    private val retentionMs: Long = DEFAULT_RETENTION_MS
+) : Closeable {
+
+    private val series = HashMap<String, Series>()
+
+    /** @return false if [timestamp] is older than the last sample of the series. */
+    @Synchronized
+    fun append(name: String, timestamp: Long, value: Long): Boolean = series(name).append(timestamp, value)
+
+    /** Raw samples with `from <= timestamp < to`. */
+    @Synchronized
+    fun query(name: String, from: Long, to: Long): List<Sample> {
+        val result = ArrayList<Sample>()
+        series(name).forEachSegment(from, to) { segment ->
+            segment.decode().filterTo(result) { it.timestamp in from until to }
+        }
+        return result
+    }
+
+    /**
+     * Aggregates `[from, to)` into buckets of [bucketMs], aligned on `epoch - alignOffsetMs`
+     * (pass the zone offset for local days). Empty buckets are omitted.
+     */
+    @JvmOverloads
+    @Synchronized
+    fun rollup(name: String, from: Long, to: Long, bucketMs: Long, alignOffsetMs: Long = 0L): List<Bucket> {
+        require(bucketMs > 0) { "bucketMs must be > 0" }
+        val buckets = TreeMap<Long, Accumulator>()
+        fun bucketStart(ts: Long) = Math.floorDiv(ts + alignOffsetMs, bucketMs) * bucketMs - alignOffsetMs
+
+        series(name).forEachSegment(from, to) { segment ->
+            val end = segment.start + segmentSpanMs
+            val covered = segment.start >= from && end <= to
+            val oneBucket = bucketStart(segment.start) == bucketStart(end - 1)
+            if (covered && oneBucket) {
+                buckets.getOrPut(bucketStart(segment.start)) { Accumulator() }.add(segment)
+            } else {
+                for (sample in segment.decode()) {
+                    if (sample.timestamp < from || sample.timestamp >= to) continue
+                    buckets.getOrPut(bucketStart(sample.timestamp)) { Accumulator() }.add(sample.value)
+                }
+            }
+        }
+        return buckets.map { (start, acc) -> acc.toBucket(start) }
+    }
+
+    @Synchronized
+    fun latest(name: String): Sample? = series(name).latest()
+
+    @Synchronized
+    override fun close() {
+        series.values.forEach { it.close() }
+        series.clear()
+    }
+
+    private fun series(name: String): Series {
+        require(NAME_PATTERN.matches(name)) { "Invalid series name: $name" }
+        return series.getOrPut(name) { Series(File(root, name), segmentSpanMs, retentionMs).also { it.load() } }
+    }
+
+    private class Accumulator {
+        var count = 0L
+        var min = Long.MAX_VALUE
+        var max = Long.MIN_VALUE
+        var sum = 0L
+
+        fun add(value: Long) {
+            count++; sum += value
+            if (value < min) min = value
+            if (value > max) max = value
+        }
+
+        fun add(segment: Segment) {
+            count += segment.count; sum += segment.sum
+            if (segment.min < min) min = segment.min
+            if (segment.max > max) max = segment.max
+        }
+
+        fun toBucket(start: Long) = Bucket(start, count, min, max, sum)
+    }
+
+    private class Segment(val file: File, val start: Long) {
+        var count = 0L
+        var min = Long.MAX_VALUE
+        var max = Long.MIN_VALUE
+        var sum = 0L
+        var lastTimestamp = start
+        var lastValue = 0L
+
+        fun record(timestamp: Long, value: Long) {
+            count++; sum += value
+            if (value < min) min = value
+            if (value > max) max = value
+            lastTimestamp = timestamp
+            lastValue = value
+        }
+
+        fun decode(): List<Sample> = VarintCodec.decode(file.readBytes(), start).samples
+    }
+
+    private class Series(private val dir: File, private val segmentSpanMs: Long, private val retentionMs: Long) : Closeable {
+        private val indexFile = File(dir, INDEX_FILE)
+        private val sealedSegments = TreeMap<Long, Segment>()
+        private var open: Segment? = null
+        private var openStream: FileOutputStream? = null
+
+        fun load() {
+            dir.mkdirs()
+            if (indexFile.exists()) {
+                // Enregistrement tronqué en fin de fichier (crash pendant l'écriture): coupé, sinon
+                // les scellements suivants s'ajouteraient décalés derrière les octets partiels
+                val records = indexFile.length() / INDEX_RECORD_BYTES
+                if (records * INDEX_RECORD_BYTES < indexFile.length()) {
+                    RandomAccessFile(indexFile, "rw").use { it.setLength(records * INDEX_RECORD_BYTES) }
+                }
+                DataInputStream(FileInputStream(indexFile).buffered()).use { input ->
+                    repeat(records.toInt()) {
+                        val start = input.readLong()
+                        sealedSegments[start] = Segment(segmentFile(start), start).apply {
+                            count = input.readLong()
+                            min = input.readLong()
+                            max = input.readLong()
+                            sum = input.readLong()
+                            lastTimestamp = input.readLong()
+                        }
+                    }
+                }
+            }
+
+            val unsealed = dir.listFiles()
+                ?.filter { it.name.endsWith(SEGMENT_EXT) }
+                ?.mapNotNull { it.name.removeSuffix(SEGMENT_EXT).toLongOrNull() }
+                ?.filter { it !in sealedSegments }
+                ?.sorted()
+                .orEmpty()
+            for (start in unsealed) {
+                val segment = recover(start)
+                if (start == unsealed.last()) open = segment else seal(segment)
+            }
+        }
+
+        fun append(timestamp: Long, value: Long): Boolean {
+            val last = open?.lastTimestamp ?: sealedSegments.lastEntry()?.value?.lastTimestamp
+            if (last != null && timestamp < last) return false
+
+            val start = Math.floorDiv(timestamp, segmentSpanMs) * segmentSpanMs
+            open?.let { if (it.start != start) seal(it) }
+            val segment = open ?: Segment(segmentFile(start), start).also { open = it }
+            if (openStream == null) openStream = FileOutputStream(segment.file, true)
+
+            val bytes = VarintCodec.encode(timestamp - segment.lastTimestamp, value - segment.lastValue)
+            openStream!!.write(bytes)
+            segment.record(timestamp, value)
+            return true
+        }
+
+        fun forEachSegment(from: Long, to: Long, block: (Segment) -> Unit) {
+            if (to <= from) return
+            val firstStart = Math.floorDiv(from, segmentSpanMs) * segmentSpanMs
+            sealedSegments.subMap(firstStart, true, to, false).values.forEach { if (it.count > 0) block(it) }
+            open?.let { if (it.count > 0 && it.start >= firstStart && it.start < to) block(it) }
+        }
+
+        fun latest(): Sample? {
+            val segment = open?.takeIf { it.count > 0 } ?: sealedSegments.lastEntry()?.value ?: return null
+            return segment.decode().lastOrNull()
+        }
+
+        override fun close() {
+            openStream?.close()
+            openStream = null
+        }
+
+        private fun seal(segment: Segment) {
+            if (segment === open) {
+                close()
+                open = null
+            }
+            DataOutputStream(FileOutputStream(indexFile, true)).use { writeRecord(it, segment) }
+            sealedSegments[segment.start] = segment
+            prune(segment.lastTimestamp - retentionMs)
+        }
+
+        // Supprime les segments scellés finis avant [before] et réécrit l'index sans eux
+        private fun prune(before: Long) {
+            val expired = sealedSegments.headMap(before - segmentSpanMs, true)
+            if (expired.isEmpty()) return
+            expired.values.forEach { it.file.delete() }
+            expired.clear()
+            val tmp = File(dir, "$INDEX_FILE.tmp")
+            DataOutputStream(FileOutputStream(tmp).buffered()).use { out ->
+                sealedSegments.values.forEach { writeRecord(out, it) }
+            }
+            tmp.renameTo(indexFile)
+        }
+
+        private fun writeRecord(out: DataOutputStream, segment: Segment) {
+            out.writeLong(segment.start)
+            out.writeLong(segment.count)
+            out.writeLong(segment.min)
+            out.writeLong(segment.max)
+            out.writeLong(segment.sum)
+            out.writeLong(segment.lastTimestamp)
+        }
+
+        // Relit un segment non scellé et coupe une éventuelle écriture partielle en fin de fichier
+        private fun recover(start: Long): Segment {
+            val file = segmentFile(start)
+            val decoded = VarintCodec.decode(file.readBytes(), start)
+            if (decoded.validBytes < file.length()) {
+                RandomAccessFile(file, "rw").use { it.setLength(decoded.validBytes.toLong()) }
+            }
+            return Segment(file, start).apply { decoded.samples.forEach { record(it.timestamp, it.value) } }
+        }
+
+        private fun segmentFile(start: Long) = File(dir, "$start$SEGMENT_EXT")
+    }
+
+    companion object {
+        const val MINUTE_MS = 60_000L
+        const val HOUR_MS = 60 * MINUTE_MS
+        const val DAY_MS = 24 * HOUR_MS
+        /** Daily charts go back one year at most. */
+        const val DEFAULT_RETENTION_MS = 400 * DAY_MS
+
+        private const val SEGMENT_EXT = ".seg"
+        private const val INDEX_FILE = "index"
+        private const val INDEX_RECORD_BYTES = 6 * 8L
+        private val NAME_PATTERN = Regex("[a-z0-9_]+")
+    }
+}
+
+/** Zigzag varint pairs (timestamp delta, value delta), as stored in segment files. */
+internal object VarintCodec {
+
+    class Decoded(val samples: List<Sample>, val validBytes: Int)
+
+    fun encode(timestampDelta: Long, valueDelta: Long): ByteArray {
+        val buffer = ByteArray(20)
+        var pos = writeVarint(buffer, 0, zigzag(timestampDelta))
+        pos = writeVarint(buffer, pos, zigzag(valueDelta))
+        return buffer.copyOf(pos)
+    }
+
+    fun decode(bytes: ByteArray, segmentStart: Long): Decoded {
+        val samples = ArrayList<Sample>()
+        var timestamp = segmentStart
+        var value = 0L
+        var pos = 0
+        while (pos < bytes.size) {
+            val (tsDelta, afterTs) = readVarint(bytes, pos) ?: break
+            val (valueDelta, afterValue) = readVarint(bytes, afterTs) ?: break
+            timestamp += unzigzag(tsDelta)
+            value += unzigzag(valueDelta)
+            samples.add(Sample(timestamp, value))
+            pos = afterValue
+        }
+        return Decoded(samples, pos)
+    }
+
+    private fun zigzag(v: Long) = (v shl 1) xor (v shr 63)
+
+    private fun unzigzag(v: Long) = (v ushr 1) xor -(v and 1L)
+
+    private fun writeVarint(buffer: ByteArray, start: Int, value: Long): Int {
+        var v = value
+        var pos = start
+        while ((v and 0x7FL.inv()) != 0L) {
+            buffer[pos++] = ((v and 0x7FL) or 0x80L).toByte()
+            v = v ushr 7
+        }
+        buffer[pos++] = v.toByte()
+        return pos
+    }
+
+    private fun readVarint(bytes: ByteArray, start: Int): Pair<Long, Int>? {
+        var result = 0L
+        var shift = 0
+        var pos = start
+        while (pos < bytes.size && shift < 64) {
+            val b = bytes[pos++].toLong()
+            result = result or ((b and 0x7FL) shl shift)
+            if ((b and 0x80L) == 0L) return result to pos
+            shift += 7
+        }
+        return null
+    }
+}
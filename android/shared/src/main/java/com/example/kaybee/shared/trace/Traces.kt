@@ -0,0 +1,117 @@
+package com.example.kaybee.shared.trace
+
+import com.example.kaybee.shared.metrics.LatencyHistogram
+import com.example.kaybee.shared.metrics.Metrics
+import java.util.TreeMap
+
+/**
+ * Collector for the sampled watch -> RTDB -> phone -> WebView traces. The watch writes
+ * {id, watch_send} in the same live_data update as a merged heart-rate sample; the phone
+ * [join]s the trace when its listener reads it and marks the points it sees. When both ends
+ * of a [Hop] are known its latency goes into the `trace.<hop>` histogram of [Metrics].
+ *
+ * Hops starting at watch_send include the clock offset between watch and phone.
+ */
+object Traces {
+    const val WATCH_SEND = "watch_send"
+    const val LISTENER = "listener"
+    const val BRIDGE = "bridge"
+
+    /** Field of live_data carrying {id, watch_send} for the current trace. */
+    const val LIVE_DATA_FIELD = "trace"
+
+    /** Older traces are the stale field of an earlier write, read again with a new snapshot. */
+    const val MAX_JOIN_AGE_MS = 60_000L
+
+    class Hop(val name: String, val from: String, val to: String) {
+        internal val latency: LatencyHistogram = Metrics.histogram("trace.$name")
+    }
+
+    @JvmField
+    val HOPS = listOf(
+        Hop("watch_to_listener", WATCH_SEND, LISTENER),
+        Hop("listener_to_bridge", LISTENER, BRIDGE),
+        Hop("end_to_end", WATCH_SEND, BRIDGE)
+    )
+
+    private const val MAX_OPEN_TRACES = 64
+    private val started = Metrics.counter("trace.started")
+
+    // Traces en cours: les plus anciennes sont abandonnées (message perdu, app tuée...)
+    private val open = object : LinkedHashMap<String, HashMap<String, Long>>() {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, HashMap<String, Long>>) = size > MAX_OPEN_TRACES
+    }
+    // Traces déjà rejointes: live_data garde le champ trace jusqu'à la suivante
+    private val joined = object : LinkedHashMap<String, Boolean>() {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Boolean>) = size > MAX_OPEN_TRACES
+    }
+
+    /** Opens [traceId] at [point]; a trace id that is already open is left untouched. */
+    @JvmStatic
+    @Synchronized
+    fun begin(traceId: String, point: String, at: Long) {
+        if (traceId in open) return
+        open[traceId] = hashMapOf(point to at)
+        started.inc()
+    }
+
+    /**
+     * Opens [traceId], started by the other device at [sentAt], on its first read at [at].
+     * @return false for a trace already joined or older than [MAX_JOIN_AGE_MS].
+     */
+    @JvmStatic
+    @Synchronized
+    fun join(traceId: String, sentAt: Long, at: Long): Boolean {
+        if (traceId in joined || at - sentAt > MAX_JOIN_AGE_MS) return false
+        joined[traceId] = true
+        begin(traceId, WATCH_SEND, sentAt)
+        return true
+    }
+
+    /**
+     * Marks [point] of an open trace and records every hop it completes. Unknown ids and
+     * points already marked are ignored, so repeated snapshots are harmless.
+     */
+    @JvmStatic
+    @Synchronized
+    fun mark(traceId: String, point: String, at: Long) {
+        val points = open[traceId] ?: return
+        if (point in points) return
+        points[point] = at
+        for (hop in HOPS) {
+            if (hop.to != point) continue
+            val from = points[hop.from] ?: continue
+            hop.latency.recordMicros(maxOf(0L, at - from) * 1_000)
+        }
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun isOpen(traceId: String): Boolean = traceId in open
+
+    @JvmStatic
+    @Synchronized
+    fun end(traceId: String) {
+        open.remove(traceId)
+    }
+
+    /** `{started, hops: {name: {count, p50_ms, ...}}}` */
+    @JvmStatic
+    fun snapshot(): Map<String, Any> = linkedMapOf(
+        "started" to started.value,
+        "hops" to TreeMap(HOPS.associate { it.name to it.latency.snapshot() })
+    )
+
+    /** One line per hop with samples, for logcat and the watch debug page. */
+    @JvmStatic
+    fun dump(): String = buildString {
+        for (hop in HOPS) {
+            val s = hop.latency.snapshot()
+            if (s["count"] == 0L) continue
+            append(hop.name).append(" n=").append(s["count"])
+                .append(" p50=").append(s["p50_ms"]).append("ms")
+                .append(" p90=").append(s["p90_ms"]).append("ms")
+                .append(" p99=").append(s["p99_ms"]).append("ms\n")
+        }
+    }
+}
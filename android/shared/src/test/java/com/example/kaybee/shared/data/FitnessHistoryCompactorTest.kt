@@ -0,0 +1,125 @@
+package com.example.kaybee.shared.data
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.TreeMap
+
+class FitnessHistoryCompactorTest {
+
+    /** fitness_history / fitness_rollups en mémoire, clés triées comme des clés push(). */
+    private class InMemoryHistoryStore : FitnessHistoryStore {
+        val raw = HashMap<String, TreeMap<String, RawSample>>()
+        val rollups = HashMap<String, TreeMap<Long, RollupBucket>>()
+        var commits = 0
+
+        fun add(series: String, sample: RawSample) {
+            raw.getOrPut(series) { TreeMap() }[sample.key] = sample
+        }
+
+        fun buckets(series: String, resolution: RollupResolution) =
+            rollups.getOrPut("$series/${resolution.key}") { TreeMap() }
+
+        override suspend fun readOldest(series: String, limit: Int) =
+            raw[series]?.values?.take(limit).orEmpty()
+
+        override suspend fun commit(series: String, deltas: Map<RollupResolution, List<RollupBucket>>, deleteKeys: List<String>) {
+            commits++
+            for ((resolution, list) in deltas) {
+                val buckets = buckets(series, resolution)
+                list.forEach { buckets[it.start] = (buckets[it.start] ?: RollupBucket(start = it.start)) + it }
+            }
+            deleteKeys.forEach { raw[series]?.remove(it) }
+        }
+
+        override suspend fun deleteRollupsBefore(series: String, resolution: RollupResolution, before: Long, limit: Int): Int {
+            val buckets = buckets(series, resolution)
+            val keys = buckets.headMap(before, false).keys.take(limit)
+            keys.forEach { buckets.remove(it) }
+            return keys.size
+        }
+    }
+
+    private val day = RollupResolution.DAY.millis
+    private val now = 1_700_006_400_000L + 30 * day
+
+    private fun sampleKey(i: Int) = "k%08d".format(i)
+
+    @Test
+    fun oldSamplesAreFoldedAndDeletedInBatches() = runBlocking {
+        val store = InMemoryHistoryStore()
+        // 10 jours de HR, un échantillon par heure, dont 3 jours dans la fenêtre de rétention
+        val start = now - 10 * day
+        for (i in 0 until 240) store.add("heart_rate", RawSample(sampleKey(i), start + i * 3_600_000L, 60L + i % 24, rolledUp = false))
+
+        val compactor = FitnessHistoryCompactor(store, rawRetentionMs = 3 * day, batchSize = 50, maxBatches = 100, zoneOffsetMs = { 0L })
+        val result = compactor.compact("heart_rate", now)
+
+        assertEquals(168, result.folded)
+        assertEquals(168, result.deleted)
+        assertEquals(4, result.batches)
+        assertEquals(72, store.raw["heart_rate"]!!.size)
+        assertTrue(store.raw["heart_rate"]!!.values.all { it.timestamp!! >= now - 3 * day })
+
+        val days = store.buckets("heart_rate", RollupResolution.DAY)
+        assertEquals(7, days.size)
+        assertTrue(days.values.all { it.count == 24L && it.min == 60L && it.max == 83L })
+        assertEquals(168, store.buckets("heart_rate", RollupResolution.HOUR).size)
+        assertTrue(store.buckets("heart_rate", RollupResolution.MINUTE).isEmpty())
+    }
+
+    @Test
+    fun samplesRolledUpAtWriteTimeAreNotCountedTwice() = runBlocking {
+        val store = InMemoryHistoryStore()
+        val old = now - 10 * day
+        store.add("steps", RawSample(sampleKey(0), old, 100, rolledUp = false))
+        store.add("steps", RawSample(sampleKey(1), old + 1_000L, 50, rolledUp = true))
+
+        val result = FitnessHistoryCompactor(store, zoneOffsetMs = { 0L }).compact("steps", now)
+
+        assertEquals(1, result.folded)
+        assertEquals(2, result.deleted)
+        assertEquals(100L, store.buckets("steps", RollupResolution.DAY).values.single().sum)
+    }
+
+    @Test
+    fun samplesWithoutTimestampDoNotBlockTheHead() = runBlocking {
+        val store = InMemoryHistoryStore()
+        // Enfants en tête sans horodatage (écriture interrompue), puis des échantillons anciens
+        for (i in 0 until 3) store.add("steps", RawSample(sampleKey(i), null, 0, rolledUp = false))
+        for (i in 3 until 6) store.add("steps", RawSample(sampleKey(i), now - 10 * day, 10, rolledUp = false))
+
+        val result = FitnessHistoryCompactor(store, batchSize = 3, zoneOffsetMs = { 0L }).compact("steps", now)
+
+        assertEquals(3, result.folded)
+        assertEquals(6, result.deleted)
+        assertTrue(store.raw["steps"]!!.isEmpty())
+        assertEquals(30L, store.buckets("steps", RollupResolution.DAY).values.single().sum)
+    }
+
+    @Test
+    fun workPerRunIsBounded() = runBlocking {
+        val store = InMemoryHistoryStore()
+        for (i in 0 until 1_000) store.add("steps", RawSample(sampleKey(i), now - 20 * day + i * 1_000L, 1, rolledUp = false))
+
+        val result = FitnessHistoryCompactor(store, batchSize = 100, maxBatches = 3, zoneOffsetMs = { 0L }).compact("steps", now)
+
+        assertEquals(3, result.batches)
+        assertEquals(300, result.deleted)
+        assertEquals(3, store.commits)
+        assertEquals(700, store.raw["steps"]!!.size)
+    }
+
+    @Test
+    fun staleMinuteRollupsArePruned() = runBlocking {
+        val store = InMemoryHistoryStore()
+        val minutes = store.buckets("heart_rate", RollupResolution.MINUTE)
+        for (i in 0 until 10) minutes[now - 5 * day + i * 60_000L] = RollupBucket(now - 5 * day + i * 60_000L, 1, 70, 70, 70)
+        minutes[now - 60_000L] = RollupBucket(now - 60_000L, 1, 70, 70, 70)
+
+        FitnessHistoryCompactor(store, batchSize = 4, zoneOffsetMs = { 0L }).compact("heart_rate", now)
+
+        assertEquals(listOf(now - 60_000L), minutes.keys.toList())
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.kaybee.shared.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class FitnessRollupsTest {
+
+    private val day0 = 1_700_006_400_000L // minuit UTC
+
+    @Test
+    fun bucketsAreUpdatedIncrementally() {
+        val bucket = listOf(72L, 65L, 90L).fold(RollupBucket(start = day0)) { acc, bpm -> acc + bpm }
+        assertEquals(RollupBucket(day0, count = 3, sum = 227, min = 65, max = 90), bucket)
+        assertEquals(227 / 3.0, bucket.average, 0.0001)
+    }
+
+    @Test
+    fun bucketsMerge() {
+        val a = RollupBucket(day0, 2, 150, 70, 80)
+        val b = RollupBucket(day0 + 60_000L, 1, 100, 100, 100)
+        assertEquals(RollupBucket(day0, 3, 250, 70, 100), a + b)
+        assertEquals(a, a + RollupBucket())
+        assertEquals(RollupBucket(day0, 2, 150, 70, 80), RollupBucket(start = day0) + a)
+    }
+
+    @Test
+    fun bucketStartPerResolution() {
+        val ts = day0 + 3 * 3_600_000L + 25 * 60_000L + 17_000L
+        assertEquals(day0 + 3 * 3_600_000L + 25 * 60_000L, RollupResolution.MINUTE.bucketStart(ts))
+        assertEquals(day0 + 3 * 3_600_000L, RollupResolution.HOUR.bucketStart(ts))
+        assertEquals(day0, RollupResolution.DAY.bucketStart(ts))
+    }
+
+    @Test
+    fun dayBucketsFollowLocalMidnight() {
+        val utcMinus5 = -5 * 3_600_000L
+        // 03:25 UTC = 22:25 la veille à UTC-5
+        val ts = day0 + 3 * 3_600_000L + 25 * 60_000L
+        assertEquals(day0 - 19 * 3_600_000L, RollupResolution.DAY.bucketStart(ts, utcMinus5))
+        assertEquals(day0 + 3 * 3_600_000L, RollupResolution.HOUR.bucketStart(ts, utcMinus5))
+    }
+
+    @Test
+    fun keysSortChronologically() {
+        val keys = listOf(999_999_999_999L, 1_700_006_400_000L).map { RollupResolution.keyOf(it) }
+        assertEquals(keys.sorted(), keys)
+        assertEquals(13, keys[0].length)
+    }
+}
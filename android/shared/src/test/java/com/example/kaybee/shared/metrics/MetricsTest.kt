@@ -0,0 +1,53 @@
+package com.example.kaybee.shared.metrics
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MetricsTest {
+
+    @After
+    fun tearDown() {
+        Metrics.reset()
+    }
+
+    @Test
+    fun bucketsCoverTheRangeWithoutGaps() {
+        var previousUpper = -1L
+        for (i in 0 until LatencyHistogram.BUCKETS) {
+            val upper = LatencyHistogram.upperBound(i)
+            assertEquals(i, LatencyHistogram.indexOf(previousUpper + 1))
+            assertEquals(i, LatencyHistogram.indexOf(upper))
+            previousUpper = upper
+        }
+        assertEquals(LatencyHistogram.MAX_MICROS, previousUpper)
+    }
+
+    @Test
+    fun percentilesAreWithinBucketPrecision() {
+        val histogram = Metrics.histogram("test.latency")
+        for (ms in 1..1_000L) histogram.recordMicros(ms * 1_000)
+
+        assertEquals(1_000L, histogram.count)
+        val p50 = histogram.percentileMicros(0.5)
+        val p99 = histogram.percentileMicros(0.99)
+        assertTrue("p50=$p50", p50 in 500_000L..562_500L)
+        assertTrue("p99=$p99", p99 in 990_000L..1_000_000L)
+        assertEquals(1_000_000L, histogram.percentileMicros(1.0))
+    }
+
+    @Test
+    fun concurrentIncrementsAreNotLost() {
+        val counter = Metrics.counter("test.counter")
+        val threads = List(8) { Thread { repeat(100_000) { counter.inc() } } }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertEquals(800_000L, counter.value)
+        assertTrue(Metrics.counter("test.counter") === counter)
+        @Suppress("UNCHECKED_CAST")
+        val counters = Metrics.snapshot()["counters"] as Map<String, Long>
+        assertEquals(800_000L, counters["test.counter"])
+    }
+}
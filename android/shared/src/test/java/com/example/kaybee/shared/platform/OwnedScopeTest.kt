@@ -0,0 +1,82 @@
+package com.example.kaybee.shared.platform
+
+import com.example.kaybee.shared.metrics.Metrics
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceUntilIdle
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class OwnedScopeTest {
+
+    private val errors = mutableListOf<Throwable>()
+
+    private fun TestScope.ownedScope() = OwnedScope("test", StandardTestDispatcher(testScheduler)) { errors.add(it) }
+
+    @Test
+    fun serviceLifecycleLeavesNoJobs() = runTest {
+        // onCreate: flush différé, listener partagé et son collecteur, comme HealthManager
+        val scope = ownedScope()
+        var flushed = false
+        val streams = SharedStreams(scope) { _: String -> flow { emit(1); awaitCancellation() } }
+        scope.launch { delay(1_000); flushed = true }
+        scope.launch { streams.get("users/u1").collect {} }
+        runCurrent()
+        assertEquals(3, scope.liveJobs)
+
+        // onDestroy
+        scope.closeAndJoin()
+        assertEquals(0, scope.liveJobs)
+        scope.launch { flushed = true }
+        advanceUntilIdle()
+        assertFalse(flushed)
+        assertEquals(0, scope.liveJobs)
+    }
+
+    @Test
+    fun failingJobDoesNotCancelItsSiblings() = runTest {
+        val scope = ownedScope()
+        val failures = Metrics.counter("coroutines.failed")
+        val before = failures.value
+        var done = false
+        scope.launch { throw IllegalStateException("boom") }
+        scope.launch { delay(10); done = true }
+        advanceUntilIdle()
+
+        assertTrue(done)
+        assertEquals(listOf("boom"), errors.map { it.message })
+        assertEquals(before + 1, failures.value)
+        scope.closeAndJoin()
+    }
+
+    @Test
+    fun ioDispatcherIsBounded() = runBlocking {
+        val scope = OwnedScope("io") { errors.add(it) }
+        val running = AtomicInteger()
+        val peak = AtomicInteger()
+        // Appels bloquants type Tasks.await
+        repeat(OwnedScope.IO_PARALLELISM * 3) {
+            scope.launch {
+                peak.accumulateAndGet(running.incrementAndGet()) { a, b -> maxOf(a, b) }
+                Thread.sleep(20)
+                running.decrementAndGet()
+            }
+        }
+        while (scope.liveJobs > 0) delay(5)
+
+        assertTrue("peak: ${peak.get()}", peak.get() <= OwnedScope.IO_PARALLELISM)
+        assertTrue(errors.isEmpty())
+    }
+}
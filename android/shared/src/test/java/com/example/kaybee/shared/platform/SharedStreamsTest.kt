@@ -0,0 +1,97 @@
+package com.example.kaybee.shared.platform
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class SharedStreamsTest {
+
+    // Faux RTDB: compte les listeners attachés par chemin
+    private val attached = mutableMapOf<String, Int>()
+    private var registrations = 0
+
+    private fun listen(path: String): Flow<String> = callbackFlow {
+        attached[path] = (attached[path] ?: 0) + 1
+        registrations++
+        trySend("snapshot $path")
+        awaitClose { attached[path] = attached.getValue(path) - 1 }
+    }
+
+    // Comme MainActivity.startFirebaseSync: chaque appairage remplace le collecteur précédent
+    private fun TestScope.pair(streams: SharedStreams<String, String>, previous: Job?, uid: String, seen: MutableList<String>): Job {
+        previous?.cancel()
+        return backgroundScope.launch { streams.get("users/$uid").collect { seen.add(it) } }
+    }
+
+    @Test
+    fun repeatedPairingsKeepOneListener() = runTest {
+        val streams = SharedStreams(backgroundScope, STOP_TIMEOUT) { path: String -> listen(path) }
+        val seen = mutableListOf<String>()
+        var collector: Job? = null
+        repeat(10) {
+            collector = pair(streams, collector, "u1", seen)
+            runCurrent()
+            assertEquals(1, attached["users/u1"])
+        }
+        advanceTimeBy(STOP_TIMEOUT * 2)
+        runCurrent()
+
+        assertEquals(1, attached["users/u1"])
+        assertEquals(1, registrations)
+        // Chaque collecteur reçoit le dernier snapshot sans nouvel aller-retour
+        assertEquals(10, seen.size)
+    }
+
+    @Test
+    fun collectorsOfOnePathShareTheListener() = runTest {
+        val streams = SharedStreams(backgroundScope, STOP_TIMEOUT) { path: String -> listen(path) }
+        val jobs = List(3) { backgroundScope.launch { streams.get(".info/connected").collect {} } }
+        runCurrent()
+        assertEquals(1, attached[".info/connected"])
+
+        jobs.forEach { it.cancel() }
+        advanceTimeBy(STOP_TIMEOUT - 1)
+        runCurrent()
+        assertEquals(1, attached[".info/connected"])
+        advanceTimeBy(2)
+        runCurrent()
+        assertEquals(0, attached[".info/connected"])
+    }
+
+    @Test
+    fun pairingAnotherUserDetachesThePreviousPath() = runTest {
+        val streams = SharedStreams(backgroundScope, STOP_TIMEOUT) { path: String -> listen(path) }
+        val seen = mutableListOf<String>()
+        var collector = pair(streams, null, "u1", seen)
+        runCurrent()
+        collector = pair(streams, collector, "u2", seen)
+        runCurrent()
+        assertEquals(1, attached["users/u1"])
+        assertEquals(1, attached["users/u2"])
+
+        advanceTimeBy(STOP_TIMEOUT + 1)
+        runCurrent()
+        assertEquals(0, attached["users/u1"])
+        assertEquals(1, attached["users/u2"])
+
+        collector.cancel()
+        advanceTimeBy(STOP_TIMEOUT + 1)
+        runCurrent()
+        assertEquals(0, attached.values.sum())
+        assertEquals(listOf("snapshot users/u1", "snapshot users/u2"), seen)
+    }
+
+    private companion object {
+        const val STOP_TIMEOUT = 5_000L
+    }
+}
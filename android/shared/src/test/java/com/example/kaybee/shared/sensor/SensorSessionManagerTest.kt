@@ -0,0 +1,103 @@
+package com.example.kaybee.shared.sensor
+
+import com.example.kaybee.shared.metrics.Metrics
+import com.example.kaybee.shared.sensor.SensorSessionManager.Request
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class SensorSessionManagerTest {
+
+    private class FakeRegistrar : SensorRegistrar {
+        val calls = mutableListOf<String>()
+        val available = mutableSetOf(STEP, HEART_RATE)
+
+        override fun register(sensorType: Int, samplingPeriodUs: Int, maxReportLatencyUs: Int): Boolean {
+            if (sensorType !in available) return false
+            calls += "register $sensorType $samplingPeriodUs $maxReportLatencyUs"
+            return true
+        }
+
+        override fun unregister(sensorType: Int) {
+            calls += "unregister $sensorType"
+        }
+    }
+
+    private val registrar = FakeRegistrar()
+    private var nanos = 0L
+    private val manager = SensorSessionManager<Int>(registrar, { if (it == STEP) "test_step" else "test_$it" }, { nanos })
+
+    @Before
+    fun setUp() {
+        Metrics.reset()
+    }
+
+    @Test
+    fun repeatedAcquireIsANoOp() {
+        repeat(5) { manager.acquire(STEP, "service", Request(200_000, 60_000_000)) {} }
+        assertEquals(listOf("register $STEP 200000 60000000"), registrar.calls)
+        assertEquals(1L, Metrics.counter("sensor.test_step.register").value)
+    }
+
+    @Test
+    fun consumersAreMergedOntoTheFastestRequest() {
+        manager.acquire(STEP, "service", Request(200_000, 60_000_000)) {}
+        manager.acquire(STEP, "activity", Request(66_667, 0)) {}
+        manager.release(STEP, "activity")
+        manager.release(STEP, "service")
+
+        assertEquals(listOf(
+            "register $STEP 200000 60000000",
+            "register $STEP 66667 0",
+            "register $STEP 200000 60000000",
+            "unregister $STEP"
+        ), registrar.calls)
+    }
+
+    @Test
+    fun eventsAreFannedOutAndCounted() {
+        val service = mutableListOf<Int>()
+        val activity = mutableListOf<Int>()
+        manager.acquire(STEP, "service", Request(200_000)) { service += it }
+        manager.acquire(STEP, "activity", Request(200_000)) { activity += it }
+
+        for (i in 1..10) {
+            nanos += 500_000_000L
+            manager.dispatch(STEP, i)
+        }
+
+        assertEquals((1..10).toList(), service)
+        assertEquals(service, activity)
+        assertEquals(10L, Metrics.counter("sensor.test_step").value)
+        assertEquals(9L, Metrics.histogram("sensor.test_step.interval").count)
+        assertEquals(2.0, manager.snapshot().getValue("test_step")["events_per_s"] as Double, 0.01)
+    }
+
+    @Test
+    fun releaseAllOnlyDropsThatConsumer() {
+        manager.acquire(STEP, "activity", Request(66_667)) {}
+        manager.acquire(HEART_RATE, "activity", Request(200_000)) {}
+        manager.acquire(STEP, "service", Request(200_000, 60_000_000)) {}
+        registrar.calls.clear()
+
+        manager.releaseAll("activity")
+
+        assertEquals(listOf("register $STEP 200000 60000000", "unregister $HEART_RATE"), registrar.calls)
+        assertEquals(setOf("test_step"), manager.snapshot().keys)
+    }
+
+    @Test
+    fun missingSensorIsReported() {
+        assertFalse(manager.acquire(ACCEL, "activity", Request(200_000)) {})
+        assertTrue(manager.snapshot().isEmpty())
+        manager.dispatch(ACCEL, 1)
+    }
+
+    companion object {
+        private const val STEP = 19
+        private const val HEART_RATE = 21
+        private const val ACCEL = 1
+    }
+}
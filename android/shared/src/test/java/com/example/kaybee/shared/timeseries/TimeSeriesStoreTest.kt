@@ -0,0 +1,182 @@
+package com.example.kaybee.shared.timeseries
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.FileOutputStream
+
+class TimeSeriesStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private lateinit var root: File
+    private lateinit var store: TimeSeriesStore
+
+    private val day0 = 1_700_006_400_000L // minuit UTC
+
+    @Before
+    fun setUp() {
+        root = folder.newFolder("ts")
+        store = TimeSeriesStore(root)
+    }
+
+    @After
+    fun tearDown() {
+        store.close()
+    }
+
+    @Test
+    fun rangeQueryReturnsSamplesInOrder() {
+        for (i in 0 until 10) store.append("heart_rate", day0 + i * 1_000L, 60L + i)
+
+        val samples = store.query("heart_rate", day0 + 2_000L, day0 + 5_000L)
+        assertEquals(listOf(62L, 63L, 64L), samples.map { it.value })
+        assertEquals(day0 + 2_000L, samples.first().timestamp)
+    }
+
+    @Test
+    fun lateSamplesAreRejected() {
+        assertTrue(store.append("heart_rate", day0 + 10_000L, 70))
+        assertFalse(store.append("heart_rate", day0 + 5_000L, 71))
+        assertEquals(1, store.query("heart_rate", day0, day0 + TimeSeriesStore.DAY_MS).size)
+    }
+
+    @Test
+    fun hourlyAndDailyRollups() {
+        // 2 jours, un échantillon par minute: valeur = heure du jour
+        for (minute in 0 until 2 * 24 * 60) {
+            val ts = day0 + minute * TimeSeriesStore.MINUTE_MS
+            store.append("heart_rate", ts, ((minute / 60) % 24).toLong() + 60)
+        }
+
+        val hours = store.rollup("heart_rate", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS)
+        assertEquals(24, hours.size)
+        assertEquals(60L, hours[5].count)
+        assertEquals(65L, hours[5].min)
+        assertEquals(65L, hours[5].max)
+
+        val days = store.rollup("heart_rate", day0, day0 + 2 * TimeSeriesStore.DAY_MS, TimeSeriesStore.DAY_MS)
+        assertEquals(2, days.size)
+        assertEquals(24 * 60L, days[0].count)
+        assertEquals(60L, days[0].min)
+        assertEquals(83L, days[0].max)
+        assertEquals(71.5, days[1].average, 0.001)
+    }
+
+    @Test
+    fun partialRangesDecodeEdgeSegments() {
+        for (minute in 0 until 180) store.append("steps", day0 + minute * TimeSeriesStore.MINUTE_MS, 10)
+
+        val buckets = store.rollup("steps", day0 + 30 * TimeSeriesStore.MINUTE_MS, day0 + 150 * TimeSeriesStore.MINUTE_MS, TimeSeriesStore.DAY_MS)
+        assertEquals(1, buckets.size)
+        assertEquals(120 * 10L, buckets[0].sum)
+    }
+
+    @Test
+    fun minuteBucketsAreFinerThanSegments() {
+        for (second in 0 until 300) store.append("heart_rate", day0 + second * 1_000L, 100)
+
+        val minutes = store.rollup("heart_rate", day0, day0 + TimeSeriesStore.HOUR_MS, TimeSeriesStore.MINUTE_MS)
+        assertEquals(5, minutes.size)
+        assertTrue(minutes.all { it.count == 60L && it.average == 100.0 })
+    }
+
+    @Test
+    fun localDayAlignment() {
+        val offset = -5 * TimeSeriesStore.HOUR_MS // UTC-5
+        store.append("steps", day0 + 2 * TimeSeriesStore.HOUR_MS, 100) // 21h la veille en local
+        store.append("steps", day0 + 6 * TimeSeriesStore.HOUR_MS, 50)
+
+        val days = store.rollup("steps", day0 - TimeSeriesStore.DAY_MS, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.DAY_MS, offset)
+        assertEquals(listOf(100L, 50L), days.map { it.sum })
+    }
+
+    @Test
+    fun dataSurvivesReopenAndIndexIsUsed() {
+        for (minute in 0 until 3 * 60) store.append("heart_rate", day0 + minute * TimeSeriesStore.MINUTE_MS, 80)
+        store.close()
+
+        store = TimeSeriesStore(root)
+        assertEquals(180, store.query("heart_rate", day0, day0 + TimeSeriesStore.DAY_MS).size)
+        assertTrue(store.append("heart_rate", day0 + 3 * TimeSeriesStore.HOUR_MS, 90))
+
+        // Les segments scellés sont servis par l'index: on supprime leurs fichiers bruts
+        File(root, "heart_rate/$day0.seg").delete()
+        val hours = store.rollup("heart_rate", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS)
+        assertEquals(4, hours.size)
+        assertEquals(60L, hours[0].count)
+        assertEquals(90L, hours[3].max)
+    }
+
+    @Test
+    fun truncatedTailIsRecovered() {
+        store.append("heart_rate", day0, 70)
+        store.append("heart_rate", day0 + 1_000L, 71)
+        store.close()
+
+        // Écriture interrompue: un varint incomplet en fin de segment
+        FileOutputStream(File(root, "heart_rate/$day0.seg"), true).use { it.write(byteArrayOf(0x81.toByte())) }
+
+        store = TimeSeriesStore(root)
+        assertTrue(store.append("heart_rate", day0 + 2_000L, 72))
+        assertEquals(listOf(70L, 71L, 72L), store.query("heart_rate", day0, day0 + 10_000L).map { it.value })
+    }
+
+    @Test
+    fun tornIndexRecordIsCutBeforeTheNextSeal() {
+        for (minute in 0 until 2 * 60) store.append("heart_rate", day0 + minute * TimeSeriesStore.MINUTE_MS, 80)
+        store.append("heart_rate", day0 + 2 * TimeSeriesStore.HOUR_MS, 80)
+        store.close()
+        // Crash pendant le scellement suivant: 10 octets d'un enregistrement de 48
+        FileOutputStream(File(root, "heart_rate/index"), true).use { it.write(ByteArray(10) { 0x7F }) }
+
+        store = TimeSeriesStore(root)
+        for (minute in 0 until 2 * 60) store.append("heart_rate", day0 + 3 * TimeSeriesStore.HOUR_MS + minute * TimeSeriesStore.MINUTE_MS, 90)
+        store.close()
+
+        assertEquals(0L, File(root, "heart_rate/index").length() % 48)
+        store = TimeSeriesStore(root)
+        val hours = store.rollup("heart_rate", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS)
+        assertEquals(listOf(60L, 60L, 1L, 60L, 60L), hours.map { it.count })
+        assertEquals(listOf(80L, 80L, 80L, 90L, 90L), hours.map { it.max })
+    }
+
+    @Test
+    fun segmentsOlderThanTheRetentionAreDeleted() {
+        store.close()
+        store = TimeSeriesStore(root, retentionMs = 2 * TimeSeriesStore.HOUR_MS)
+        for (minute in 0 until 6 * 60) store.append("steps", day0 + minute * TimeSeriesStore.MINUTE_MS, 10)
+
+        // Scellement de l'heure 4 (dernier échantillon 4h59): les heures 0 et 1 ont plus de 2 h
+        val files = File(root, "steps").list()!!.filter { it.endsWith(".seg") }.sorted()
+        assertEquals((2 until 6).map { "${day0 + it * TimeSeriesStore.HOUR_MS}.seg" }, files)
+        assertEquals(4, store.rollup("steps", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS).size)
+
+        store.close()
+        store = TimeSeriesStore(root, retentionMs = 2 * TimeSeriesStore.HOUR_MS)
+        val hours = store.rollup("steps", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS)
+        assertEquals(listOf(600L, 600L, 600L, 600L), hours.map { it.sum })
+    }
+
+    @Test
+    fun emptySeries() {
+        assertNull(store.latest("steps"))
+        assertTrue(store.rollup("steps", day0, day0 + TimeSeriesStore.DAY_MS, TimeSeriesStore.HOUR_MS).isEmpty())
+    }
+
+    @Test
+    fun varintRoundTrip() {
+        val bytes = VarintCodec.encode(-123_456_789L, Long.MAX_VALUE) + VarintCodec.encode(1L, Long.MIN_VALUE)
+        val decoded = VarintCodec.decode(bytes, 1_000_000_000L)
+        assertEquals(bytes.size, decoded.validBytes)
+        assertEquals(Sample(1_000_000_000L - 123_456_789L, Long.MAX_VALUE), decoded.samples[0])
+    }
+}
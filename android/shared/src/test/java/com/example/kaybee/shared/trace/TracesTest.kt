@@ -0,0 +1,62 @@
+package com.example.kaybee.shared.trace
+
+import com.example.kaybee.shared.metrics.Metrics
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class TracesTest {
+
+    @Before
+    fun setUp() {
+        Metrics.reset()
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun hop(name: String): Map<String, Any> = (Traces.snapshot()["hops"] as Map<String, Map<String, Any>>).getValue(name)
+
+    @Test
+    fun hopsAreRecordedOnceBothEndsAreKnown() {
+        assertTrue(Traces.join("a1", 1_000L, 1_150L))
+        Traces.mark("a1", Traces.LISTENER, 1_150L)
+        Traces.mark("a1", Traces.BRIDGE, 1_200L)
+        Traces.end("a1")
+
+        assertEquals(1L, hop("watch_to_listener")["count"])
+        assertEquals(150.0, hop("watch_to_listener")["p50_ms"] as Double, 10.0)
+        assertEquals(50.0, hop("listener_to_bridge")["p50_ms"] as Double, 5.0)
+        assertEquals(200.0, hop("end_to_end")["p50_ms"] as Double, 15.0)
+        assertFalse(Traces.isOpen("a1"))
+    }
+
+    @Test
+    fun repeatedAndUnknownMarksAreIgnored() {
+        Traces.begin("b2", Traces.WATCH_SEND, 0L)
+        Traces.mark("b2", Traces.LISTENER, 500L)
+        Traces.mark("b2", Traces.LISTENER, 9_000L)
+        Traces.mark("unknown", Traces.LISTENER, 9_000L)
+
+        assertEquals(1L, hop("watch_to_listener")["count"])
+        assertEquals(500.0, hop("watch_to_listener")["max_ms"] as Double, 40.0)
+    }
+
+    @Test
+    fun aTraceIsJoinedOnceAndOnlyWhileFresh() {
+        assertTrue(Traces.join("c3", 10_000L, 10_100L))
+        Traces.end("c3")
+        // Snapshot suivant: le champ trace n'a pas changé
+        assertFalse(Traces.join("c3", 10_000L, 11_000L))
+        assertFalse(Traces.join("d4", 10_000L, 10_000L + Traces.MAX_JOIN_AGE_MS + 1))
+        assertFalse(Traces.isOpen("d4"))
+    }
+
+    @Test
+    fun oldestOpenTracesAreEvicted() {
+        for (i in 0 until 100) Traces.begin("t$i", Traces.WATCH_SEND, i.toLong())
+        assertFalse(Traces.isOpen("t0"))
+        Traces.mark("t99", Traces.LISTENER, 200L)
+        assertEquals(1L, hop("watch_to_listener")["count"])
+    }
+}
@@ -6,9 +6,10 @@ import { Dialog, DialogContent, DialogHeader, DialogTitle } from "@/components/u
 import { Progress } from "@/components/ui/progress";
 import { Flame, Utensils, Activity, Plus, ScanSearch, BellRing, X, Zap, Camera, Upload, History, ChefHat, Loader2, Sparkles, Send, MessageSquare, AlertCircle, Trash2, Eye, ShieldCheck } from 'lucide-react';
 import { doc, updateDoc, increment, getDoc, setDoc } from 'firebase/firestore';
-import { getDatabase, ref as dbRef, update, onValue } from "firebase/database";
+import { getDatabase, ref as dbRef, update } from "firebase/database";
 import { db, app } from '@/lib/firebase';
 import { useAuth } from '@/context/AuthContext';
+import { subscribeToLiveData } from '@/lib/livedata';
 import { analyzeFoodChat } from '@/lib/geminicalcul';
 import { useTranslation } from 'react-i18next';
 import { Badge } from '@/components/ui/badge';
@@ -54,9 +55,10 @@ export default function SmartCalorieWidget({ userProfile, consumed = 0, burned =
         const rtdbLiveRef = dbRef(rtdb, `users/${currentUser.uid}/live_data`);
         const nutritionRef = dbRef(rtdb, `users/${currentUser.uid}/live_data/nutrition`);
 
-        const unsubscribe = onValue(nutritionRef, (snapshot) => {
-            if (snapshot.exists()) {
-                const data = snapshot.val();
+        // Même abonnement live_data que le Dashboard: pas de second listener sur nutrition
+        const unsubscribe = subscribeToLiveData(currentUser.uid, (live) => {
+            const data = live?.nutrition;
+            if (data) {
                 if (data.date && data.date !== today) {
                     update(rtdbLiveRef, {
                         calories_consumed: 0,
@@ -1,5 +1,4 @@
-import { getDatabase, ref, onValue } from "firebase/database";
-import { app } from "./firebase";
+import { subscribeToLiveData } from "./livedata";
 
 /**
  * S'abonne au BPM en direct.
@@ -7,12 +6,7 @@ import { app } from "./firebase";
  */
 export const subscribeToHeartRate = (userId, callback) => {
     if (!userId) return;
-    const db = getDatabase(app);
-    const liveDataRef = ref(db, `users/${userId}/live_data`);
-
-    return onValue(liveDataRef, (snapshot) => {
-        const data = snapshot.val();
-        
+    return subscribeToLiveData(userId, (data) => {
         if (!data || !data.heart_rate) {
             callback(0);
             return;
@@ -1,6 +1,5 @@
-import { getDatabase, ref, onValue, update } from "firebase/database";
-import { app } from "./firebase";
 import { Plugins } from '@capacitor/core';
+import { subscribeToLiveData } from "./livedata";
 // Assure-toi d'avoir enregistré ton plugin
 const { WearPlugin } = Plugins; 
 
@@ -17,11 +16,8 @@ export const subscribeToSteps = (userId, callback) => {
         WearPlugin.setUserId({ userId: userId });
     }
 
-    const db = getDatabase(app);
-    const stepsRef = ref(db, `users/${userId}/live_data`);
-
-    return onValue(stepsRef, (snapshot) => {
-        const data = snapshot.val();
+    // Sur Android, les données arrivent par WearPlugin (un seul listener RTDB par appareil)
+    return subscribeToLiveData(userId, (data) => {
         if (!data) {
             callback(0);
             return;
@@ -0,0 +1,22 @@
+import { Capacitor } from '@capacitor/core';
+import { WearPlugin } from './wear';
+
+const DAY_MS = 24 * 60 * 60 * 1000;
+
+/**
+ * Historique local agrégé par jour local, lu dans le TimeSeriesStore natif (pas du téléphone,
+ * FC fusionnée de la montre) au lieu de fitness_history.
+ * series : 'steps' (somme du jour) ou 'heart_rate' (moyenne du jour).
+ * Renvoie null hors Android : l'appelant garde ses propres données.
+ */
+export const getDailyHistory = async (series, days) => {
+    if (!Capacitor.isNativePlatform() || !Capacitor.isPluginAvailable('WearPlugin')) return null;
+    const to = Date.now();
+    try {
+        const { buckets } = await WearPlugin.getHealthHistory({ series, bucket: 'day', from: to - days * DAY_MS, to });
+        return buckets.map((b) => ({ start: b.start, value: series === 'steps' ? b.sum : Math.round(b.avg) }));
+    } catch (e) {
+        console.error("WearPlugin.getHealthHistory", e);
+        return null;
+    }
+};
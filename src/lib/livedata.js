@@ -0,0 +1,70 @@
+import { Capacitor } from '@capacitor/core';
+import { getDatabase, ref, onValue } from "firebase/database";
+import { app } from "./firebase";
+import { WearPlugin } from "./wear";
+
+const hasNativeLiveData = () =>
+    Capacitor.isNativePlatform() && Capacitor.isPluginAvailable('WearPlugin');
+
+const subscribeWithSdk = (userId, callback) => {
+    const db = getDatabase(app);
+    return onValue(ref(db, `users/${userId}/live_data`), (snapshot) => callback(snapshot.val()));
+};
+
+/**
+ * S'abonne à users/{uid}/live_data et renvoie l'objet complet à chaque changement.
+ *
+ * Sur Android, WearPlugin écoute déjà ce noeud : on réutilise ses deltas (onHealthUpdate)
+ * au lieu d'attacher un second onValue, ce qui évite de télécharger chaque changement deux fois.
+ * Si le plugin suit un autre utilisateur (ex: vue coach), on retombe sur le SDK JS.
+ * Un delta peut retirer des champs (`removed`); `reset` (changement de compte côté natif)
+ * impose de relire l'état complet.
+ */
+export const subscribeToLiveData = (userId, callback, { allowNative = true } = {}) => {
+    if (!userId) return () => {};
+    if (!allowNative || !hasNativeLiveData()) return subscribeWithSdk(userId, callback);
+
+    let state = {};
+    let seq = -1;
+    let closed = false;
+    let handle = null;
+    let sdkUnsubscribe = null;
+
+    const resync = async () => {
+        try {
+            const res = await WearPlugin.getLiveData();
+            if (closed || sdkUnsubscribe) return;
+            if (res.userId !== userId) {
+                handle?.remove();
+                sdkUnsubscribe = subscribeWithSdk(userId, callback);
+                return;
+            }
+            state = { ...res.data };
+            seq = res.seq;
+            callback(state);
+        } catch (e) {
+            console.error("WearPlugin.getLiveData", e);
+        }
+    };
+
+    WearPlugin.addListener('onHealthUpdate', (delta) => {
+        if (seq < 0 || sdkUnsubscribe) return; // pas encore amorcé
+        const { seq: next, reset, removed = [], ...fields } = delta;
+        if (next <= seq) return;
+        // Événement manqué ou état remis à zéro : on relit l'état complet
+        if (reset || next !== seq + 1) { resync(); return; }
+        seq = next;
+        state = { ...state, ...fields };
+        for (const key of removed) delete state[key];
+        callback(state);
+    }).then((h) => {
+        if (closed) h.remove(); else handle = h;
+    });
+    resync();
+
+    return () => {
+        closed = true;
+        handle?.remove();
+        sdkUnsubscribe?.();
+    };
+};
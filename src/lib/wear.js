@@ -11,7 +11,14 @@ try {
         setUserId: async () => { console.log("Simulated setUserId"); },
         pairWatch: async () => { console.log("Simulated pairWatch"); },
         writeRunToHealthConnect: async (data) => { console.log("Simulated Health Connect Write", data); },
-        getRunHistory: async () => { return { history: [] }; }
+        getRunHistory: async () => { return { history: [] }; },
+        getHealthUpdateStats: async () => { return { received: 0, suppressed: 0, emitted: 0 }; },
+        getLiveData: async () => { return { userId: null, seq: 0, data: {} }; },
+        getHealthHistory: async () => { return { buckets: [] }; },
+        getMetrics: async () => { return { counters: {}, latencies: {}, sensors: {} }; },
+        getTraceStats: async () => { return { started: 0, hops: {} }; },
+        getInitTiming: async () => { return { ready: true, replayed: 0, failures: {} }; },
+        addListener: async () => { return { remove: () => {} }; }
     };
 }
 
@@ -5,7 +5,7 @@ import { db, app } from '@/lib/firebase';
 import { 
   doc, onSnapshot, updateDoc, arrayRemove, increment as firestoreIncrement, getDoc, setDoc, deleteField
 } from 'firebase/firestore';
-import { getDatabase, ref, onValue, update } from "firebase/database";
+import { getDatabase, ref, update } from "firebase/database";
 
 import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card";
 import { Button } from "@/components/ui/button";
@@ -30,6 +30,7 @@ import { NotificationManager } from '@/lib/notifications';
 // --- IMPORTS NATIFS & PLUGINS ---
 import { Capacitor } from '@capacitor/core';
 import { WearPlugin } from '@/lib/wear';
+import { subscribeToLiveData } from '@/lib/livedata';
 
 const safe = (val) => (val === null || val === undefined || typeof val === 'object' ? "" : String(val));
 const getTodayString = () => new Date().toISOString().split('T')[0];
@@ -267,8 +268,8 @@ export default function Dashboard() {
         }
     });
 
-    const unsubRTDB = onValue(ref(rtdb, `users/${targetId}/live_data`), (snapshot) => {
-        const data = snapshot.val();
+    // Pour son propre compte, on passe par WearPlugin (pas de second listener RTDB sur Android)
+    const unsubRTDB = subscribeToLiveData(targetId, (data) => {
         if (data) {
             const today = getTodayString();
             const firebaseDate = data.date || "";
@@ -288,7 +289,7 @@ export default function Dashboard() {
                 macros: isTodayData ? (data.nutrition || prev.macros) : { protein: 0, carbs: 0, fats: 0, fiber: 0, sugar: 0, meals: [], calories: 0 }
             }));
         }
-    });
+    }, { allowNative: targetId === currentUser.uid });
 
     return () => { unsubProfile(); unsubRTDB(); };
   }, [currentUser, targetUserId]);
@@ -1,5 +1,6 @@
 import React, { useState, useEffect, useMemo } from 'react';
 import { db } from '@/lib/firebase';
+import { getDailyHistory } from '@/lib/healthhistory';
 import { useAuth } from '@/context/AuthContext';
 import { useClient } from '@/context/ClientContext';
 import { doc, getDoc } from "firebase/firestore";
@@ -86,6 +87,8 @@ export default function Performance() {
   const [userProfile, setUserProfile] = useState(null);
   const [timeRange, setTimeRange] = useState("month");
   const [selectedMetric, setSelectedMetric] = useState("steps");
+  // Historique de l'appareil (pas, FC par jour): seulement pour ses propres données
+  const [localHistory, setLocalHistory] = useState(null);
 
   useEffect(() => {
     const fetchData = async () => {
@@ -104,6 +107,16 @@ export default function Performance() {
     fetchData();
   }, [targetUserId, currentUser]);
 
+  useEffect(() => {
+    if (isCoachView) { setLocalHistory(null); return; }
+    let cancelled = false;
+    const days = timeRange === 'week' ? 7 : timeRange === 'month' ? 30 : 365;
+    Promise.all([getDailyHistory('steps', days), getDailyHistory('heart_rate', days)]).then(([steps, heartRate]) => {
+      if (!cancelled) setLocalHistory(steps || heartRate ? { steps: steps || [], heart_rate: heartRate || [] } : null);
+    });
+    return () => { cancelled = true; };
+  }, [timeRange, isCoachView]);
+
   const filteredHistory = useMemo(() => {
     const now = new Date();
     let cutoff = subDays(now, timeRange === 'week' ? 7 : timeRange === 'month' ? 30 : 365);
@@ -156,15 +169,28 @@ export default function Performance() {
   }, [filteredHistory, userProfile]);
 
   const chartData = useMemo(() => {
-    return filteredHistory.filter(h => h.type === 'daily_summary').map(h => ({
+    const byDay = new Map();
+    for (const h of filteredHistory.filter(h => h.type === 'daily_summary')) {
+      byDay.set(format(new Date(h.date), 'yyyy-MM-dd'), {
         date: format(new Date(h.date), 'dd/MM'),
         steps: h.steps || 0,
         calories: Math.round(h.calories || 0),
         burned: Math.round(h.burned || 0),
         water: h.water || 0,
         weight: h.weight || 0
-    }));
-  }, [filteredHistory]);
+      });
+    }
+    // Jours sans résumé (dont aujourd'hui): pas locaux; la FC ne vient que de l'historique local
+    for (const series of ['steps', 'heart_rate']) {
+      for (const b of localHistory?.[series] || []) {
+        const key = format(new Date(b.start), 'yyyy-MM-dd');
+        const day = byDay.get(key) || { date: format(new Date(b.start), 'dd/MM') };
+        if (series === 'heart_rate' || day.steps === undefined) day[series] = b.value;
+        byDay.set(key, day);
+      }
+    }
+    return [...byDay.entries()].sort(([a], [b]) => a.localeCompare(b)).map(([, day]) => day);
+  }, [filteredHistory, localHistory]);
 
   if (loading) return <div className="h-screen bg-[#0a0a0f] flex items-center justify-center text-[#00f5d4] font-black uppercase animate-pulse">Sync Stats...</div>;
 
@@ -267,6 +293,7 @@ export default function Performance() {
                   <SelectItem value="calories" className="text-[10px] font-bold uppercase">Consommées</SelectItem>
                   <SelectItem value="burned" className="text-[10px] font-bold uppercase">Brûlées</SelectItem>
                   <SelectItem value="weight" className="text-[10px] font-bold uppercase">Poids (LBS)</SelectItem>
+                  {localHistory && <SelectItem value="heart_rate" className="text-[10px] font-bold uppercase">FC moy. (BPM)</SelectItem>}
                 </SelectContent>
               </Select>
             </CardHeader>
@@ -4,7 +4,7 @@ import { useClient } from '@/context/ClientContext';
 import { useLocation, useNavigate } from 'react-router-dom';
 import { db, app } from '@/lib/firebase';
 import { doc, onSnapshot, updateDoc, arrayUnion, increment } from 'firebase/firestore';
-import { getDatabase, ref, update, onValue, set } from "firebase/database";
+import { getDatabase, ref, update, set } from "firebase/database";
 import {
   ChevronDown, ChevronUp, ChevronLeft, ChevronRight,
   Dumbbell, XCircle, Zap, Clock, Coffee, Plus, Minus, Layers, Link2, Target, TrendingDown, TrendingUp, Repeat, Footprints, Activity, Flame, X
@@ -15,6 +15,7 @@ import { Dialog, DialogContent, DialogHeader, DialogTitle } from "@/components/u
 import { Badge } from "@/components/ui/badge";
 import { useTranslation } from 'react-i18next';
 import { WearPlugin } from '@/lib/wear';
+import { subscribeToLiveData } from '@/lib/livedata';
 import { format, isSameDay, addDays } from 'date-fns';
 import { fr } from 'date-fns/locale';
 import { TimerManager } from '@/lib/timer';
@@ -33,6 +34,9 @@ const SET_TYPE_INFO = {
   reverse_pyramid: { name: 'Pyramide Inversée', icon: Repeat, color: 'bg-cyan-600' }
 };
 
+// Log réécrit par le web: sans la rev de la montre et daté, pour qu'elle sache si sa modification en attente est dépassée
+const webLog = ({ rev, ...log }) => ({ ...log, timestamp: Date.now() });
+
 export default function Session() {
   const { currentUser, loading: authLoading } = useAuth();
   const { isCoachView, targetUserId } = useClient();
@@ -101,8 +105,8 @@ export default function Session() {
       setLoading(false);
     });
 
-    const unsubRTDB = onValue(ref(rtdb, `users/${targetId}/live_data`), (snapshot) => {
-      const data = snapshot.val();
+    // Son propre compte passe par WearPlugin; la vue coach lit session, non relayé: SDK JS
+    const unsubRTDB = subscribeToLiveData(targetId, (data) => {
       if (data) {
         if (data.date === new Date().toISOString().split('T')[0]) setLiveSteps(Number(data.steps) || 0);
         if (isCoachView && data.session?.active) {
@@ -111,7 +115,7 @@ export default function Session() {
             setIsSessionStarted(true);
         }
       }
-    });
+    }, { allowNative: targetId === currentUser?.uid });
 
     return () => { unsubProfile(); unsubRTDB(); };
   }, [targetId, authLoading, isCoachView, viewDate]);
@@ -173,14 +177,14 @@ export default function Session() {
         await TimerManager.clearRest();
         setRestTime(0);
     }
-    update(ref(rtdb, `users/${currentUser.uid}/live_data/session/logs`), { [key]: newLog });
+    update(ref(rtdb, `users/${currentUser.uid}/live_data/session/logs`), { [key]: webLog(newLog) });
   };
 
   const handleUpdateField = (gIdx, eIdx, sIdx, field, val) => {
     const key = `${gIdx}-${eIdx}-${sIdx}`;
     const updated = { ...sessionLogs, [key]: { ...sessionLogs[key], [field]: val } };
     setSessionLogs(updated);
-    update(ref(rtdb, `users/${currentUser.uid}/live_data/session/logs`), { [key]: updated[key] });
+    update(ref(rtdb, `users/${currentUser.uid}/live_data/session/logs`), { [key]: webLog(updated[key]) });
   };
 
   const handleFinalizeSession = async () => {